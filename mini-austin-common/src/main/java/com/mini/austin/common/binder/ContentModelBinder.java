@@ -0,0 +1,60 @@
+package com.mini.austin.common.binder;
+
+import com.mini.austin.common.domain.ContentModel;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * ContentModel 绑定器
+ * <p>
+ * 每个 ContentModel 子类生成一份：无参构造器 + 按声明顺序排列的字段访问器。
+ * 渲染模板、反序列化 MQ 消息时都通过它创建和填充模型，热路径上不再有反射
+ *
+ * @author mini-austin
+ */
+public final class ContentModelBinder<T extends ContentModel> {
+
+    @Getter
+    private final Class<T> modelClass;
+
+    private final Supplier<T> constructor;
+
+    /**
+     * 字段访问器（按声明顺序）
+     */
+    @Getter
+    private final List<FieldBinding> fields;
+
+    private final Map<String, FieldBinding> fieldsByName;
+
+    ContentModelBinder(Class<T> modelClass, Supplier<T> constructor, List<FieldBinding> fields) {
+        this.modelClass = modelClass;
+        this.constructor = constructor;
+        this.fields = Collections.unmodifiableList(fields);
+        this.fieldsByName = new HashMap<>(fields.size() * 2);
+        for (FieldBinding field : fields) {
+            fieldsByName.put(field.getName(), field);
+        }
+    }
+
+    /**
+     * 创建空模型
+     */
+    public T newInstance() {
+        return constructor.get();
+    }
+
+    /**
+     * 根据字段名获取访问器
+     *
+     * @return 字段不存在时返回 null
+     */
+    public FieldBinding field(String name) {
+        return fieldsByName.get(name);
+    }
+}
@@ -0,0 +1,181 @@
+package com.mini.austin.common.binder;
+
+import cn.hutool.core.util.StrUtil;
+import com.mini.austin.common.domain.ContentModel;
+import com.mini.austin.common.enums.ChannelType;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ContentModel 绑定器注册中心
+ * <p>
+ * ★★★ 面试重点：如何去掉热路径上的反射？ ★★★
+ * <p>
+ * 原实现每条消息都要 ReflectUtil.newInstance + getFields + setFieldValue，
+ * 反射调用有权限检查、参数装箱、无法内联等开销
+ * <p>
+ * 现实现：每个 ContentModel 子类只在第一次使用时，
+ * 通过 LambdaMetafactory 把构造器、setter、getter 生成为 Supplier/BiConsumer/Function，
+ * JIT 可以像普通方法调用一样内联。新增渠道（IM/PUSH）只需在 ChannelType 中登记模型类即可
+ *
+ * @author mini-austin
+ */
+public final class ContentModelBinders {
+
+    private static final ClassValue<ContentModelBinder<?>> BINDERS = new ClassValue<ContentModelBinder<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected ContentModelBinder<?> computeValue(Class<?> type) {
+            return build((Class) type);
+        }
+    };
+
+    /**
+     * 渠道编码 -> 绑定器（没有内容模型的渠道不会出现在这里）
+     */
+    private static final Map<Integer, ContentModelBinder<?>> CHANNEL_BINDERS = new ConcurrentHashMap<>(8);
+
+    private ContentModelBinders() {
+    }
+
+    /**
+     * 获取模型类的绑定器
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ContentModel> ContentModelBinder<T> of(Class<T> modelClass) {
+        return (ContentModelBinder<T>) BINDERS.get(modelClass);
+    }
+
+    /**
+     * 根据渠道编码获取绑定器
+     *
+     * @return 渠道不存在或没有内容模型时返回 null
+     */
+    public static ContentModelBinder<?> ofChannel(Integer channelCode) {
+        if (channelCode == null) {
+            return null;
+        }
+        ContentModelBinder<?> binder = CHANNEL_BINDERS.get(channelCode);
+        if (binder != null) {
+            return binder;
+        }
+        Class<? extends ContentModel> modelClass = ChannelType.getContentModelClassByCode(channelCode);
+        if (modelClass == null) {
+            return null;
+        }
+        binder = of(modelClass);
+        CHANNEL_BINDERS.put(channelCode, binder);
+        return binder;
+    }
+
+    private static <T extends ContentModel> ContentModelBinder<T> build(Class<T> modelClass) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(modelClass, MethodHandles.lookup());
+
+            List<FieldBinding> bindings = new ArrayList<>();
+            for (Field field : declaredFields(modelClass)) {
+                bindings.add(new FieldBinding(field.getName(), field.getType(), bindings.size(),
+                        setter(lookup, modelClass, field), getter(lookup, modelClass, field)));
+            }
+            return new ContentModelBinder<>(modelClass, constructor(lookup, modelClass), bindings);
+        } catch (Throwable e) {
+            throw new IllegalStateException("生成ContentModel绑定器失败: " + modelClass.getName(), e);
+        }
+    }
+
+    /**
+     * 按声明顺序收集实例字段（父类在前），跳过 static/transient
+     */
+    private static List<Field> declaredFields(Class<?> modelClass) {
+        Deque<Class<?>> hierarchy = new LinkedList<>();
+        for (Class<?> c = modelClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.addFirst(c);
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructor(MethodHandles.Lookup lookup, Class<T> modelClass) throws Throwable {
+        MethodHandle handle = lookup.findConstructor(modelClass, MethodType.methodType(void.class));
+        CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class),
+                handle,
+                MethodType.methodType(modelClass));
+        return (Supplier<T>) site.getTarget().invoke();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(MethodHandles.Lookup lookup, Class<?> modelClass, Field field)
+            throws Throwable {
+        MethodHandle handle;
+        try {
+            handle = lookup.findVirtual(modelClass, "set" + StrUtil.upperFirst(field.getName()),
+                    MethodType.methodType(void.class, field.getType()));
+        } catch (NoSuchMethodException e) {
+            // 没有标准 setter（如 Lombok 链式 setter），退化为字段句柄
+            MethodHandle fieldHandle = lookup.unreflectSetter(field);
+            return (model, value) -> invokeUnchecked(fieldHandle, model, value);
+        }
+        CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class),
+                handle,
+                MethodType.methodType(void.class, modelClass, MethodType.methodType(field.getType()).wrap().returnType()));
+        return (BiConsumer<Object, Object>) site.getTarget().invoke();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(MethodHandles.Lookup lookup, Class<?> modelClass, Field field)
+            throws Throwable {
+        String prefix = field.getType() == boolean.class ? "is" : "get";
+        MethodHandle handle;
+        try {
+            handle = lookup.findVirtual(modelClass, prefix + StrUtil.upperFirst(field.getName()),
+                    MethodType.methodType(field.getType()));
+        } catch (NoSuchMethodException e) {
+            MethodHandle fieldHandle = lookup.unreflectGetter(field);
+            return model -> invokeUnchecked(fieldHandle, model);
+        }
+        CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                handle,
+                MethodType.methodType(MethodType.methodType(field.getType()).wrap().returnType(), modelClass));
+        return (Function<Object, Object>) site.getTarget().invoke();
+    }
+
+    private static Object invokeUnchecked(MethodHandle handle, Object... args) {
+        try {
+            return handle.invokeWithArguments(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
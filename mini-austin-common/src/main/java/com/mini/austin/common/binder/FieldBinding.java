@@ -0,0 +1,60 @@
+package com.mini.austin.common.binder;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * ContentModel 单个字段的访问器
+ * <p>
+ * setter/getter 由 LambdaMetafactory 在启动时生成，
+ * 调用开销等同于普通方法调用，没有反射的权限检查和装箱数组
+ *
+ * @author mini-austin
+ */
+@Getter
+@AllArgsConstructor
+public final class FieldBinding {
+
+    /**
+     * 字段名（与 JSON 属性名、模板字段名一致）
+     */
+    private final String name;
+
+    /**
+     * 字段类型
+     */
+    private final Class<?> type;
+
+    /**
+     * 字段在模型中的顺序（稳定，可用于编码/哈希）
+     */
+    private final int index;
+
+    private final BiConsumer<Object, Object> setter;
+
+    private final Function<Object, Object> getter;
+
+    /**
+     * 设置字段值
+     */
+    public void set(Object model, Object value) {
+        setter.accept(model, value);
+    }
+
+    /**
+     * 读取字段值
+     */
+    public Object get(Object model) {
+        return getter.apply(model);
+    }
+
+    /**
+     * 是否为字符串字段
+     */
+    public boolean isString() {
+        return type == String.class;
+    }
+}
@@ -0,0 +1,106 @@
+package com.mini.austin.common.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 二进制读游标，与 BinaryWriter 一一对应
+ * <p>
+ * 所有长度、数量、下标在使用前都按剩余字节数校验，
+ * 损坏或恶意构造的消息只会抛出 TaskInfoDecodeException，不会触发超大数组分配或数组越界
+ *
+ * @author mini-austin
+ */
+final class BinaryReader {
+
+    private final byte[] buf;
+
+    private int pos;
+
+    BinaryReader(byte[] buf) {
+        this.buf = buf;
+    }
+
+    int readByte() {
+        if (pos >= buf.length) {
+            throw new TaskInfoDecodeException("二进制消息不完整: offset=" + pos);
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new TaskInfoDecodeException("varint 过长: offset=" + pos);
+    }
+
+    int readVarInt() {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new TaskInfoDecodeException("varint 超出 int 范围: offset=" + pos + ", value=" + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * 读取元素数量：每个元素至少占 1 个字节，数量不可能超过剩余字节数
+     */
+    int readCount() {
+        int count = readVarInt();
+        if (count > remaining()) {
+            throw new TaskInfoDecodeException("数量超过剩余字节数: offset=" + pos + ", count=" + count
+                    + ", remaining=" + remaining());
+        }
+        return count;
+    }
+
+    /**
+     * 读取下标并校验范围 [0, bound)
+     */
+    int readIndex(int bound) {
+        int index = readVarInt();
+        if (index >= bound) {
+            throw new TaskInfoDecodeException("下标越界: offset=" + pos + ", index=" + index + ", bound=" + bound);
+        }
+        return index;
+    }
+
+    long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * 读取 zigzag 编码的 int 字段
+     */
+    int readSignedVarInt() {
+        long value = readSignedVarLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new TaskInfoDecodeException("zigzag varint 超出 int 范围: offset=" + pos + ", value=" + value);
+        }
+        return (int) value;
+    }
+
+    String readNullableString() {
+        int lengthPlusOne = readVarInt();
+        if (lengthPlusOne == 0) {
+            return null;
+        }
+        int length = lengthPlusOne - 1;
+        if (length > remaining()) {
+            throw new TaskInfoDecodeException("字符串长度越界: offset=" + pos + ", length=" + length);
+        }
+        String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    int remaining() {
+        return buf.length - pos;
+    }
+}
@@ -0,0 +1,328 @@
+package com.mini.austin.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mini.austin.common.binder.ContentModelBinder;
+import com.mini.austin.common.binder.ContentModelBinders;
+import com.mini.austin.common.binder.FieldBinding;
+import com.mini.austin.common.domain.ContentModel;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.ChannelType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * TaskInfo 紧凑二进制编解码
+ * <p>
+ * ★★★ 面试重点：为什么不用 JSON 传输？ ★★★
+ * <p>
+ * JSON 每条消息都重复携带字段名，数字按十进制文本传输，解析时还要构建整棵树。
+ * 二进制格式：
+ * <pre>
+ * 魔数(1B) 版本(1B)
+ * 字符串表：varint 数量 + 每个接收者字符串（同一批中重复的接收者只存一次）
+ * varint 任务数
+ * 每个任务：
+ *   varint 字段存在位图
+ *   messageId          可空字符串
+ *   businessId         zigzag varint
+ *   messageTemplateId  zigzag varint
+ *   receiver           varint 数量 + 字符串表下标
+ *   sendChannel / msgType / sendAccount  zigzag varint
+ *   contentModel       varint 渠道标签 + varint 字段数 + 按绑定器字段顺序的可空字符串
+ *   retryCount         varint（版本 2 新增，只有带重试次数的批次才按版本 2 编码，旧节点会明确拒绝而不是读错）
+ *   receiverMessageIds varint 数量 + 每项（接收者字符串表下标 + 可空字符串）（版本 3 新增，同样只在需要时使用）
+ * </pre>
+ * 内容模型是以渠道编码为标签的联合类型，新增字段只能追加在模型末尾（按位置编码）
+ * <p>
+ * 通过 AMQP Content-Type 区分格式，旧的 JSON 消息仍可正常解析
+ * <p>
+ * 解码时所有数量、长度、字符串表下标都按剩余字节数校验，损坏的消息只会抛出 TaskInfoDecodeException
+ *
+ * @author mini-austin
+ */
+public final class TaskInfoBinaryCodec {
+
+    /**
+     * AMQP Content-Type
+     */
+    public static final String CONTENT_TYPE = "application/x-austin-taskinfo";
+
+    private static final int MAGIC = 0xA5;
+
+    private static final int VERSION = 3;
+
+    /**
+     * 含重试次数、不含 receiverMessageIds 的批次按版本 2 编码
+     */
+    private static final int VERSION_WITH_RETRY = 2;
+
+    /**
+     * 两者都不含的批次仍按版本 1 编码，未升级的 Handler 节点可以继续消费
+     */
+    private static final int VERSION_WITHOUT_RETRY = 1;
+
+    private static final int HAS_MESSAGE_ID = 1;
+    private static final int HAS_BUSINESS_ID = 1 << 1;
+    private static final int HAS_TEMPLATE_ID = 1 << 2;
+    private static final int HAS_RECEIVER = 1 << 3;
+    private static final int HAS_SEND_CHANNEL = 1 << 4;
+    private static final int HAS_MSG_TYPE = 1 << 5;
+    private static final int HAS_SEND_ACCOUNT = 1 << 6;
+    private static final int HAS_CONTENT = 1 << 7;
+    private static final int HAS_RETRY_COUNT = 1 << 8;
+    private static final int HAS_RECEIVER_MESSAGE_IDS = 1 << 9;
+
+    /**
+     * 预估单个任务的编码长度，用于预分配缓冲区
+     */
+    private static final int ESTIMATED_TASK_BYTES = 128;
+
+    /**
+     * 非字符串字段（目前没有）退化为 JSON 文本
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private TaskInfoBinaryCodec() {
+    }
+
+    /**
+     * 编码一批 TaskInfo
+     */
+    public static byte[] encode(List<TaskInfo> taskInfoList) {
+        // 1. 构建接收者字符串表
+        Map<String, Integer> stringTable = new LinkedHashMap<>();
+        boolean hasRetry = false;
+        boolean hasReceiverMessageIds = false;
+        for (TaskInfo taskInfo : taskInfoList) {
+            hasRetry |= taskInfo.getRetryCount() != null;
+            if (taskInfo.getReceiver() != null) {
+                for (String receiver : taskInfo.getReceiver()) {
+                    stringTable.putIfAbsent(receiver, stringTable.size());
+                }
+            }
+            if (taskInfo.getReceiverMessageIds() != null) {
+                hasReceiverMessageIds = true;
+                for (String receiver : taskInfo.getReceiverMessageIds().keySet()) {
+                    stringTable.putIfAbsent(receiver, stringTable.size());
+                }
+            }
+        }
+
+        BinaryWriter writer = new BinaryWriter(taskInfoList.size() * ESTIMATED_TASK_BYTES);
+        writer.writeByte(MAGIC);
+        writer.writeByte(hasReceiverMessageIds ? VERSION : hasRetry ? VERSION_WITH_RETRY : VERSION_WITHOUT_RETRY);
+
+        writer.writeVarInt(stringTable.size());
+        for (String value : stringTable.keySet()) {
+            writer.writeNullableString(value);
+        }
+
+        // 2. 逐个编码任务
+        writer.writeVarInt(taskInfoList.size());
+        for (TaskInfo taskInfo : taskInfoList) {
+            writeTask(writer, taskInfo, stringTable);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * 解码，逐个回调
+     * <p>
+     * 先完整解码整个消息体再回调：消息损坏时一个任务都不会下发，接收端可以整条拒绝
+     *
+     * @throws TaskInfoDecodeException 消息体格式不支持、被截断或字段非法
+     */
+    public static void decode(byte[] body, Consumer<TaskInfo> consumer) {
+        decode(body).forEach(consumer);
+    }
+
+    /**
+     * 解码为列表
+     *
+     * @throws TaskInfoDecodeException 消息体格式不支持、被截断或字段非法
+     */
+    public static List<TaskInfo> decode(byte[] body) {
+        BinaryReader reader = new BinaryReader(body);
+        int magic = reader.readByte();
+        int version = reader.readByte();
+        if (magic != MAGIC || version < 1 || version > VERSION) {
+            throw new TaskInfoDecodeException("不支持的二进制消息: magic=" + magic + ", version=" + version);
+        }
+
+        String[] stringTable = new String[reader.readCount()];
+        for (int i = 0; i < stringTable.length; i++) {
+            stringTable[i] = reader.readNullableString();
+        }
+
+        int taskCount = reader.readCount();
+        List<TaskInfo> result = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            result.add(readTask(reader, stringTable));
+        }
+        if (reader.remaining() != 0) {
+            throw new TaskInfoDecodeException("二进制消息末尾有多余字节: remaining=" + reader.remaining());
+        }
+        return result;
+    }
+
+    private static void writeTask(BinaryWriter writer, TaskInfo taskInfo, Map<String, Integer> stringTable) {
+        int flags = 0;
+        flags |= taskInfo.getMessageId() != null ? HAS_MESSAGE_ID : 0;
+        flags |= taskInfo.getBusinessId() != null ? HAS_BUSINESS_ID : 0;
+        flags |= taskInfo.getMessageTemplateId() != null ? HAS_TEMPLATE_ID : 0;
+        flags |= taskInfo.getReceiver() != null ? HAS_RECEIVER : 0;
+        flags |= taskInfo.getSendChannel() != null ? HAS_SEND_CHANNEL : 0;
+        flags |= taskInfo.getMsgType() != null ? HAS_MSG_TYPE : 0;
+        flags |= taskInfo.getSendAccount() != null ? HAS_SEND_ACCOUNT : 0;
+        flags |= taskInfo.getContentModel() != null ? HAS_CONTENT : 0;
+        flags |= taskInfo.getRetryCount() != null ? HAS_RETRY_COUNT : 0;
+        flags |= taskInfo.getReceiverMessageIds() != null ? HAS_RECEIVER_MESSAGE_IDS : 0;
+        writer.writeVarInt(flags);
+
+        if ((flags & HAS_MESSAGE_ID) != 0) {
+            writer.writeNullableString(taskInfo.getMessageId());
+        }
+        if ((flags & HAS_BUSINESS_ID) != 0) {
+            writer.writeSignedVarLong(taskInfo.getBusinessId());
+        }
+        if ((flags & HAS_TEMPLATE_ID) != 0) {
+            writer.writeSignedVarLong(taskInfo.getMessageTemplateId());
+        }
+        if ((flags & HAS_RECEIVER) != 0) {
+            writer.writeVarInt(taskInfo.getReceiver().size());
+            for (String receiver : taskInfo.getReceiver()) {
+                writer.writeVarInt(stringTable.get(receiver));
+            }
+        }
+        if ((flags & HAS_SEND_CHANNEL) != 0) {
+            writer.writeSignedVarLong(taskInfo.getSendChannel());
+        }
+        if ((flags & HAS_MSG_TYPE) != 0) {
+            writer.writeSignedVarLong(taskInfo.getMsgType());
+        }
+        if ((flags & HAS_SEND_ACCOUNT) != 0) {
+            writer.writeSignedVarLong(taskInfo.getSendAccount());
+        }
+        if ((flags & HAS_CONTENT) != 0) {
+            writeContent(writer, taskInfo.getContentModel());
+        }
+        if ((flags & HAS_RETRY_COUNT) != 0) {
+            writer.writeVarInt(taskInfo.getRetryCount());
+        }
+        if ((flags & HAS_RECEIVER_MESSAGE_IDS) != 0) {
+            writer.writeVarInt(taskInfo.getReceiverMessageIds().size());
+            for (Map.Entry<String, String> entry : taskInfo.getReceiverMessageIds().entrySet()) {
+                writer.writeVarInt(stringTable.get(entry.getKey()));
+                writer.writeNullableString(entry.getValue());
+            }
+        }
+    }
+
+    private static void writeContent(BinaryWriter writer, ContentModel contentModel) {
+        ChannelType channelType = ChannelType.getByContentModelClass(contentModel.getClass());
+        if (channelType == null) {
+            throw new IllegalArgumentException("内容模型未在ChannelType中登记: " + contentModel.getClass().getName());
+        }
+        ContentModelBinder<?> binder = ContentModelBinders.ofChannel(channelType.getCode());
+
+        writer.writeVarInt(channelType.getCode());
+        writer.writeVarInt(binder.getFields().size());
+        for (FieldBinding field : binder.getFields()) {
+            Object value = field.get(contentModel);
+            writer.writeNullableString(field.isString() || value == null ? (String) value : toJson(value));
+        }
+    }
+
+    private static TaskInfo readTask(BinaryReader reader, String[] stringTable) {
+        int flags = reader.readVarInt();
+        TaskInfo taskInfo = new TaskInfo();
+
+        if ((flags & HAS_MESSAGE_ID) != 0) {
+            taskInfo.setMessageId(reader.readNullableString());
+        }
+        if ((flags & HAS_BUSINESS_ID) != 0) {
+            taskInfo.setBusinessId(reader.readSignedVarLong());
+        }
+        if ((flags & HAS_TEMPLATE_ID) != 0) {
+            taskInfo.setMessageTemplateId(reader.readSignedVarLong());
+        }
+        if ((flags & HAS_RECEIVER) != 0) {
+            int count = reader.readCount();
+            Set<String> receivers = new HashSet<>(Math.max(count * 4 / 3 + 1, 16));
+            for (int i = 0; i < count; i++) {
+                receivers.add(stringTable[reader.readIndex(stringTable.length)]);
+            }
+            taskInfo.setReceiver(receivers);
+        }
+        if ((flags & HAS_SEND_CHANNEL) != 0) {
+            taskInfo.setSendChannel(reader.readSignedVarInt());
+        }
+        if ((flags & HAS_MSG_TYPE) != 0) {
+            taskInfo.setMsgType(reader.readSignedVarInt());
+        }
+        if ((flags & HAS_SEND_ACCOUNT) != 0) {
+            taskInfo.setSendAccount(reader.readSignedVarInt());
+        }
+        if ((flags & HAS_CONTENT) != 0) {
+            taskInfo.setContentModel(readContent(reader));
+        }
+        if ((flags & HAS_RETRY_COUNT) != 0) {
+            taskInfo.setRetryCount(reader.readVarInt());
+        }
+        if ((flags & HAS_RECEIVER_MESSAGE_IDS) != 0) {
+            int count = reader.readCount();
+            Map<String, String> receiverMessageIds = new HashMap<>(Math.max(count * 4 / 3 + 1, 16));
+            for (int i = 0; i < count; i++) {
+                receiverMessageIds.put(stringTable[reader.readIndex(stringTable.length)], reader.readNullableString());
+            }
+            taskInfo.setReceiverMessageIds(receiverMessageIds);
+        }
+        return taskInfo;
+    }
+
+    private static ContentModel readContent(BinaryReader reader) {
+        int channelTag = reader.readVarInt();
+        int fieldCount = reader.readCount();
+        ContentModelBinder<?> binder = ContentModelBinders.ofChannel(channelTag);
+        if (binder == null) {
+            throw new TaskInfoDecodeException("未知的内容模型渠道标签: " + channelTag);
+        }
+
+        ContentModel contentModel = binder.newInstance();
+        List<FieldBinding> fields = binder.getFields();
+        for (int i = 0; i < fieldCount; i++) {
+            String value = reader.readNullableString();
+            // 发送端字段比本地多时（新版本追加了字段）直接跳过
+            if (i >= fields.size() || value == null) {
+                continue;
+            }
+            FieldBinding field = fields.get(i);
+            field.set(contentModel, field.isString() ? value : fromJson(value, field.getType()));
+        }
+        return contentModel;
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("内容字段序列化失败", e);
+        }
+    }
+
+    private static Object fromJson(String value, Class<?> type) {
+        try {
+            return OBJECT_MAPPER.readValue(value, type);
+        } catch (IOException e) {
+            throw new TaskInfoDecodeException("内容字段反序列化失败", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.mini.austin.common.codec;
+
+/**
+ * MQ 消息体无法解码为 TaskInfo（格式不支持、数据截断或被篡改）
+ * <p>
+ * 重投也不可能解码成功，接收端捕获后应直接拒绝（不重新入队）
+ *
+ * @author mini-austin
+ */
+public class TaskInfoDecodeException extends IllegalArgumentException {
+
+    public TaskInfoDecodeException(String message) {
+        super(message);
+    }
+
+    public TaskInfoDecodeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
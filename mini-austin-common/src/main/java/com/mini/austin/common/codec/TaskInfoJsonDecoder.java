@@ -0,0 +1,190 @@
+package com.mini.austin.common.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.mini.austin.common.binder.ContentModelBinder;
+import com.mini.austin.common.binder.ContentModelBinders;
+import com.mini.austin.common.binder.FieldBinding;
+import com.mini.austin.common.domain.ContentModel;
+import com.mini.austin.common.domain.TaskInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * TaskInfo JSON 流式解码
+ * <p>
+ * ★★★ 面试重点：大消息怎么反序列化才省内存？ ★★★
+ * <p>
+ * readValue(List&lt;JsonNode&gt;) 会先把整批消息构建成一棵树，再从树上取值拼装对象，
+ * 同一份数据在内存中存在两遍。这里直接基于 JsonParser 逐个 token 读取：
+ * 1. 字段值直接写入 TaskInfo，不构建 JsonNode
+ * 2. 根据 sendChannel 选择内容模型绑定器，contentModel 按字段名直接赋值；
+ *    contentModel 出现在 sendChannel 之前时才暂存为 TokenBuffer
+ * 3. 每解出一个 TaskInfo 立即回调，不必等整批解析完
+ * <p>
+ * 未知字段直接跳过，兼容新版本发送端追加的字段
+ *
+ * @author mini-austin
+ */
+public final class TaskInfoJsonDecoder {
+
+    /**
+     * 仅用于非字符串内容字段（目前没有）和 TokenBuffer
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private TaskInfoJsonDecoder() {
+    }
+
+    /**
+     * 解码 JSON 数组，每解出一个 TaskInfo 立即回调
+     */
+    public static void decode(byte[] body, Consumer<TaskInfo> consumer) throws IOException {
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("消息体不是 JSON 数组");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("数组元素不是 JSON 对象: " + token);
+                }
+                consumer.accept(readTask(parser));
+            }
+        }
+    }
+
+    /**
+     * 解码为列表
+     */
+    public static List<TaskInfo> decode(byte[] body) throws IOException {
+        List<TaskInfo> result = new ArrayList<>();
+        decode(body, result::add);
+        return result;
+    }
+
+    private static TaskInfo readTask(JsonParser parser) throws IOException {
+        TaskInfo taskInfo = new TaskInfo();
+        TokenBuffer pendingContent = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            boolean isNull = value == JsonToken.VALUE_NULL;
+
+            switch (name) {
+                case "messageId":
+                    taskInfo.setMessageId(isNull ? null : parser.getText());
+                    break;
+                case "businessId":
+                    taskInfo.setBusinessId(isNull ? null : parser.getValueAsLong());
+                    break;
+                case "messageTemplateId":
+                    taskInfo.setMessageTemplateId(isNull ? null : parser.getValueAsLong());
+                    break;
+                case "sendChannel":
+                    taskInfo.setSendChannel(isNull ? null : parser.getValueAsInt());
+                    break;
+                case "msgType":
+                    taskInfo.setMsgType(isNull ? null : parser.getValueAsInt());
+                    break;
+                case "sendAccount":
+                    taskInfo.setSendAccount(isNull ? null : parser.getValueAsInt());
+                    break;
+                case "retryCount":
+                    taskInfo.setRetryCount(isNull ? null : parser.getValueAsInt());
+                    break;
+                case "receiver":
+                    taskInfo.setReceiver(value == JsonToken.START_ARRAY ? readReceiver(parser) : null);
+                    parser.skipChildren();
+                    break;
+                case "receiverMessageIds":
+                    taskInfo.setReceiverMessageIds(value == JsonToken.START_OBJECT ? readStringMap(parser) : null);
+                    parser.skipChildren();
+                    break;
+                case "contentModel":
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                    } else if (taskInfo.getSendChannel() != null) {
+                        taskInfo.setContentModel(readContent(parser, ContentModelBinders.ofChannel(taskInfo.getSendChannel())));
+                    } else {
+                        // 渠道还没读到，先暂存
+                        pendingContent = new TokenBuffer(parser);
+                        pendingContent.copyCurrentStructure(parser);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        if (pendingContent != null) {
+            try (JsonParser contentParser = pendingContent.asParser(OBJECT_MAPPER)) {
+                contentParser.nextToken();
+                taskInfo.setContentModel(readContent(contentParser, ContentModelBinders.ofChannel(taskInfo.getSendChannel())));
+            }
+        }
+        return taskInfo;
+    }
+
+    private static Set<String> readReceiver(JsonParser parser) throws IOException {
+        Set<String> receivers = new HashSet<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            receivers.add(parser.getText());
+            parser.skipChildren();
+        }
+        return receivers;
+    }
+
+    private static Map<String, String> readStringMap(JsonParser parser) throws IOException {
+        Map<String, String> map = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            map.put(key, value == JsonToken.VALUE_NULL || !value.isScalarValue() ? null : parser.getText());
+            parser.skipChildren();
+        }
+        return map;
+    }
+
+    /**
+     * 通过绑定器填充内容模型；未知渠道时跳过整个对象
+     * <p>
+     * 调用时 parser 位于 START_OBJECT，返回时位于对应的 END_OBJECT
+     */
+    private static ContentModel readContent(JsonParser parser, ContentModelBinder<?> binder) throws IOException {
+        if (binder == null) {
+            parser.skipChildren();
+            return null;
+        }
+
+        ContentModel contentModel = binder.newInstance();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            FieldBinding field = binder.field(parser.getCurrentName());
+            JsonToken value = parser.nextToken();
+            // 忽略未知属性和 null 值
+            if (field == null || value == JsonToken.VALUE_NULL) {
+                parser.skipChildren();
+                continue;
+            }
+            if (!field.isString()) {
+                field.set(contentModel, OBJECT_MAPPER.readValue(parser, field.getType()));
+            } else if (value.isScalarValue()) {
+                field.set(contentModel, parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return contentModel;
+    }
+}
@@ -1,11 +1,14 @@
 package com.mini.austin.common.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.mini.austin.common.pipeline.ProcessModel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -13,18 +16,22 @@ import java.util.Set;
  * <p>
  * 当API层接收到发送请求后，会将 MessageTemplate + MessageParam 拼装成 TaskInfo
  * 然后投递到MQ，Handler层消费后进行去重、限流、发送等操作
+ * <p>
+ * 拆分 / 重试时用 toBuilder() 复制，只覆盖变化的字段，新增字段不会在复制时被漏掉
  *
  * @author mini-austin
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class TaskInfo implements ProcessModel {
 
     /**
-     * 消息唯一标识（UUID）
-     * 用于链路追踪
+     * 消息唯一标识（雪花ID），用于链路追踪
+     * <p>
+     * 多个参数内容相同、合并到同一个 TaskInfo 时（receiverMessageIds 不为空），只作为组ID，
+     * 每个参数自己的消息ID见 receiverMessageIds
      */
     private String messageId;
 
@@ -44,6 +51,12 @@ public class TaskInfo implements ProcessModel {
      */
     private Set<String> receiver;
 
+    /**
+     * 接收者 → 所属参数的消息ID（仅合并了多个参数的 TaskInfo 才有）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, String> receiverMessageIds;
+
     /**
      * 发送渠道类型
      * @see com.mini.austin.common.enums.ChannelType
@@ -66,4 +79,34 @@ public class TaskInfo implements ProcessModel {
      */
     private Integer sendAccount;
 
+    /**
+     * 已重试次数（首次发送时为空），由 Handler 重试时设置
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer retryCount;
+
+    /**
+     * 内容指纹缓存（不参与序列化和 MQ 传输，见 ContentFingerprint）
+     */
+    @JsonIgnore
+    private transient String contentFingerprint;
+
+    /**
+     * 某个接收者对应的消息ID（未合并的 TaskInfo 即 messageId）
+     */
+    public String messageIdOf(String receiver) {
+        if (receiverMessageIds == null) {
+            return messageId;
+        }
+        return receiverMessageIds.getOrDefault(receiver, messageId);
+    }
+
+    /**
+     * 替换内容模型时清空内容指纹缓存
+     */
+    public void setContentModel(ContentModel contentModel) {
+        this.contentModel = contentModel;
+        this.contentFingerprint = null;
+    }
+
 }
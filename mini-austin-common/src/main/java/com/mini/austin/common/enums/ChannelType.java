@@ -71,4 +71,16 @@ public enum ChannelType {
         ChannelType channelType = getByCode(code);
         return channelType != null ? channelType.getContentModelClass() : null;
     }
+
+    /**
+     * 根据内容模型Class获取渠道
+     */
+    public static ChannelType getByContentModelClass(Class<?> contentModelClass) {
+        for (ChannelType value : values()) {
+            if (value.getContentModelClass() != null && value.getContentModelClass().equals(contentModelClass)) {
+                return value;
+            }
+        }
+        return null;
+    }
 }
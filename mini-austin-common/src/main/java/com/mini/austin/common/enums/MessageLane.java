@@ -0,0 +1,47 @@
+package com.mini.austin.common.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 消息优先级通道
+ * <p>
+ * 通知、验证码走高优先级通道，营销走低优先级通道：
+ * Web 端按通道投递到不同队列，Handler 端按权重调度，营销洪峰不会拖慢通知类消息
+ * <p>
+ * 队列名 / 路由键命名规则：基础名 + "." + 通道名，如 austin-send-queue.high、austin.send.low
+ *
+ * @author mini-austin
+ */
+@Getter
+@AllArgsConstructor
+public enum MessageLane {
+
+    /**
+     * 高优先级（通知、验证码）
+     */
+    HIGH("high"),
+
+    /**
+     * 低优先级（营销）
+     */
+    LOW("low"),
+
+    ;
+
+    private final String suffix;
+
+    /**
+     * 根据消息类型确定通道
+     */
+    public static MessageLane of(Integer msgType) {
+        return MessageType.MARKETING.getCode().equals(msgType) ? LOW : HIGH;
+    }
+
+    /**
+     * 通道对应的队列名 / 路由键
+     */
+    public String resolve(String base) {
+        return base + "." + suffix;
+    }
+}
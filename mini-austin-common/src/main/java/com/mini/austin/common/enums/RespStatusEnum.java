@@ -17,6 +17,11 @@ public enum RespStatusEnum {
      */
     SUCCESS("00000", "操作成功"),
 
+    /**
+     * 部分成功（批量/流式发送中只有部分参数投递成功，成功与失败条数见响应体）
+     */
+    PARTIAL_SUCCESS("00001", "部分成功"),
+
     /**
      * 失败
      */
@@ -0,0 +1,15 @@
+package com.mini.austin.common.id;
+
+/**
+ * 无法生成 ID：workerId 租约无效或已过期
+ * <p>
+ * 此时宁可拒绝请求，也不能生成可能与其他节点重复的 ID；租约恢复后自动恢复生成
+ *
+ * @author mini-austin
+ */
+public class IdGenerationException extends IllegalStateException {
+
+    public IdGenerationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,229 @@
+package com.mini.austin.common.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 雪花算法 ID 生成器（无锁）
+ * <p>
+ * ★★★ 面试重点：分布式唯一 ID 怎么生成？ ★★★
+ * <p>
+ * 64 位 long 布局：
+ * <pre>
+ * 0 | 41 位毫秒时间戳（相对 EPOCH，约 69 年） | 10 位 workerId | 12 位序列号
+ * </pre>
+ * 1. 趋势递增：高位是时间，按 ID 范围即可查询一段时间内的发送记录
+ * 2. 无锁：时间戳 + 序列号合并存放在一个 AtomicLong 中，CAS 一次完成"取号"
+ * 3. 时钟回拨保护：逻辑时钟只增不减，时钟回拨或单毫秒序列号用完时"借用"下一毫秒，
+ *    借用超过 maxDriftMillis 才等待物理时钟追上
+ * 4. workerId 由外部租约分配（见 Web 模块 WorkerIdLease），租约过期后拒绝生成，避免与其他节点撞号
+ * <p>
+ * 字符串形式为定长 11 位 Base62，字典序与数值大小一致
+ *
+ * @author mini-austin
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * 起始时间：2024-01-01 00:00:00 UTC
+     */
+    public static final long EPOCH = 1704067200000L;
+
+    public static final int WORKER_BITS = 10;
+
+    public static final int SEQUENCE_BITS = 12;
+
+    public static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final int TIMESTAMP_SHIFT = WORKER_BITS + SEQUENCE_BITS;
+
+    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private static final int BASE62_LENGTH = 11;
+
+    /**
+     * 逻辑时钟状态：高位为相对时间戳，低 12 位为该毫秒内已用的序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 允许逻辑时钟领先物理时钟的最大毫秒数
+     */
+    private final long maxDriftMillis;
+
+    /**
+     * 物理时钟（毫秒）
+     */
+    private final LongSupplier clock;
+
+    /**
+     * 当前租约：workerId + 有效期，整体替换保证两者一致
+     */
+    private volatile Lease lease;
+
+    public SnowflakeIdGenerator(long maxDriftMillis) {
+        this(maxDriftMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * 指定物理时钟（测试时模拟时钟回拨）
+     */
+    SnowflakeIdGenerator(long maxDriftMillis, LongSupplier clock) {
+        this.maxDriftMillis = maxDriftMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 授予 workerId 租约
+     *
+     * @param workerId       0 ~ 1023
+     * @param expireAtMillis 租约到期的本地时间，之后拒绝生成
+     */
+    public void grant(int workerId, long expireAtMillis) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId 越界: " + workerId);
+        }
+        this.lease = new Lease(workerId, expireAtMillis);
+    }
+
+    /**
+     * 收回租约，之后调用 nextId 会抛出 IdGenerationException
+     */
+    public void revoke() {
+        this.lease = null;
+    }
+
+    /**
+     * 当前 workerId，未持有租约时返回 -1
+     */
+    public int getWorkerId() {
+        Lease current = lease;
+        return current == null ? -1 : current.workerId;
+    }
+
+    /**
+     * 允许逻辑时钟领先物理时钟的最大毫秒数（租约提前到期时要把这段领先量扣掉）
+     */
+    public long getMaxDriftMillis() {
+        return maxDriftMillis;
+    }
+
+    /**
+     * 已发出的最大时间戳（毫秒）；逻辑时钟可能领先物理时钟，释放租约时据此决定 workerId 还要保留多久
+     */
+    public long lastTimestampMillis() {
+        return (state.get() >>> SEQUENCE_BITS) + EPOCH;
+    }
+
+    /**
+     * 生成下一个 ID
+     *
+     * @throws IdGenerationException 未持有有效租约时
+     */
+    public long nextId() {
+        Lease current = lease;
+        long now = clock.getAsLong();
+        if (current == null || now >= current.expireAtMillis) {
+            throw new IdGenerationException("workerId 租约无效或已过期，暂停生成ID");
+        }
+
+        long next = nextState(now);
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << TIMESTAMP_SHIFT) | ((long) current.workerId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * 生成下一个 ID 的 Base62 字符串形式
+     *
+     * @throws IdGenerationException 未持有有效租约时
+     */
+    public String nextIdString() {
+        return toBase62(nextId());
+    }
+
+    /**
+     * CAS 推进逻辑时钟
+     */
+    private long nextState(long now) {
+        while (true) {
+            long prev = state.get();
+            long prevTimestamp = prev >>> SEQUENCE_BITS;
+            long physical = now - EPOCH;
+
+            long next;
+            if (physical > prevTimestamp) {
+                // 新的一毫秒，序列号归零
+                next = physical << SEQUENCE_BITS;
+            } else if ((prev & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // 同一毫秒（或时钟回拨），序列号 +1
+                next = prev + 1;
+            } else {
+                // 序列号用完，借用下一毫秒
+                next = (prevTimestamp + 1) << SEQUENCE_BITS;
+            }
+
+            // 逻辑时钟领先太多（时钟大幅回拨或持续超发），等物理时钟追上
+            if ((next >>> SEQUENCE_BITS) - physical > maxDriftMillis) {
+                LockSupport.parkNanos(1_000_000L);
+                now = clock.getAsLong();
+                continue;
+            }
+
+            if (state.compareAndSet(prev, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * long 转定长 Base62 字符串
+     */
+    public static String toBase62(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID 不能为负数: " + id);
+        }
+        char[] chars = new char[BASE62_LENGTH];
+        for (int i = BASE62_LENGTH - 1; i >= 0; i--) {
+            chars[i] = BASE62.charAt((int) (id % 62));
+            id /= 62;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Base62 字符串转回 long
+     */
+    public static long fromBase62(String value) {
+        long id = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int digit = BASE62.indexOf(value.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("非法的 Base62 字符: " + value);
+            }
+            id = id * 62 + digit;
+        }
+        return id;
+    }
+
+    /**
+     * 从 ID 中解析出生成时间（毫秒时间戳）
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    private static final class Lease {
+
+        private final int workerId;
+
+        private final long expireAtMillis;
+
+        private Lease(int workerId, long expireAtMillis) {
+            this.workerId = workerId;
+            this.expireAtMillis = expireAtMillis;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.mini.austin.common.shard;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 按接收者分片
+ * <p>
+ * ★★★ 面试重点：一致性哈希 / 最高随机权重（HRW）哈希 ★★★
+ * <p>
+ * 两层映射：
+ * 1. 接收者 -> 分片：Web 端用跳跃一致性哈希（Jump Consistent Hash）计算，
+ *    同一接收者的消息永远进入同一个分片队列；分片数从 N 扩到 N+1 时只有约 1/(N+1) 的接收者换分片
+ * 2. 分片 -> Handler 实例：Handler 端用最高随机权重哈希（Rendezvous Hashing）计算，
+ *    每个分片归 hash(实例, 分片) 最大的实例所有；实例加入或离开时只有它涉及的分片换主，
+ *    且所有实例只要看到同一份成员列表就能各自算出相同的结果，不需要中心协调
+ * <p>
+ * 队列名 / 路由键命名规则：基础名 + ".shard-" + 分片号，如 austin-send-queue.shard-3
+ *
+ * @author mini-austin
+ */
+public final class ReceiverShards {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private ReceiverShards() {
+    }
+
+    /**
+     * 接收者所属分片
+     */
+    public static int shardOf(String receiver, int shardCount) {
+        return Hashing.consistentHash(HASH.hashString(receiver, StandardCharsets.UTF_8), shardCount);
+    }
+
+    /**
+     * 分片对应的队列名 / 路由键
+     */
+    public static String resolve(String base, int shard) {
+        return base + ".shard-" + shard;
+    }
+
+    /**
+     * 计算某个实例负责的分片
+     *
+     * @param self    当前实例 ID（必须包含在 members 中才可能分到分片）
+     * @param members 所有存活实例 ID
+     */
+    public static Set<Integer> assign(String self, Collection<String> members, int shardCount) {
+        Set<Integer> owned = new TreeSet<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (self.equals(ownerOf(shard, members))) {
+                owned.add(shard);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * 分片的所有者：hash(实例, 分片) 最大的实例；分数相同时取实例 ID 较小者，保证结果确定
+     */
+    public static String ownerOf(int shard, Collection<String> members) {
+        String owner = null;
+        long best = Long.MIN_VALUE;
+        for (String member : members) {
+            long score = HASH.newHasher()
+                    .putString(member, StandardCharsets.UTF_8)
+                    .putInt(shard)
+                    .hash()
+                    .asLong();
+            if (owner == null || score > best || (score == best && member.compareTo(owner) < 0)) {
+                owner = member;
+                best = score;
+            }
+        }
+        return owner;
+    }
+}
@@ -0,0 +1,194 @@
+package com.mini.austin.common.binder;
+
+import com.mini.austin.common.domain.ContentModel;
+import com.mini.austin.common.dto.model.EmailContentModel;
+import com.mini.austin.common.dto.model.SmsContentModel;
+import com.mini.austin.common.enums.ChannelType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ContentModelBinders：所有已登记的 ContentModel 字段往返（包括 null），
+ * 以及 LambdaMetafactory 生成的访问器与没有标准 setter / getter 时的 MethodHandle 退化路径
+ *
+ * @author mini-austin
+ */
+class ContentModelBindersTest {
+
+    @Test
+    void everyRegisteredModelRoundTripsItsFields() {
+        int registered = 0;
+        for (ChannelType channelType : ChannelType.values()) {
+            ContentModelBinder<?> binder = ContentModelBinders.ofChannel(channelType.getCode());
+            if (channelType.getContentModelClass() == null) {
+                assertThat(binder).as(channelType.name()).isNull();
+                continue;
+            }
+            registered++;
+            assertThat(binder.getModelClass()).isEqualTo(channelType.getContentModelClass());
+            assertThat(ContentModelBinders.ofChannel(channelType.getCode())).isSameAs(binder);
+
+            ContentModel model = binder.newInstance();
+            assertThat(binder.newInstance()).isNotSameAs(model);
+            for (FieldBinding field : binder.getFields()) {
+                assertThat(binder.field(field.getName())).isSameAs(field);
+                assertThat(field.isString()).isTrue();
+                assertThat(field.get(model)).as(field.getName()).isNull();
+
+                field.set(model, channelType.name() + "-" + field.getName());
+                assertThat(field.get(model)).isEqualTo(channelType.name() + "-" + field.getName());
+                field.set(model, null);
+                assertThat(field.get(model)).as(field.getName()).isNull();
+
+                // 已登记的模型都有标准 setter / getter，走 LambdaMetafactory
+                assertThat(generated(field, binder.getModelClass())).isTrue();
+            }
+        }
+        assertThat(registered).isEqualTo(2);
+        assertThat(ContentModelBinders.ofChannel(null)).isNull();
+        assertThat(ContentModelBinders.ofChannel(-1)).isNull();
+    }
+
+    @Test
+    void fieldsFollowDeclarationOrderAndMatchTheModelAccessors() {
+        ContentModelBinder<EmailContentModel> binder = ContentModelBinders.of(EmailContentModel.class);
+        assertThat(names(binder)).containsExactly("title", "content", "url");
+        assertThat(binder.getFields()).extracting(FieldBinding::getIndex).containsExactly(0, 1, 2);
+        assertThat(binder.field("missing")).isNull();
+
+        EmailContentModel model = binder.newInstance();
+        binder.field("title").set(model, "标题");
+        binder.field("content").set(model, "<p>正文</p>");
+        assertThat(model).isEqualTo(EmailContentModel.builder().title("标题").content("<p>正文</p>").build());
+
+        SmsContentModel sms = SmsContentModel.builder().content("验证码 1234").url("https://t.cn/x").build();
+        ContentModelBinder<SmsContentModel> smsBinder = ContentModelBinders.of(SmsContentModel.class);
+        assertThat(smsBinder.field("content").get(sms)).isEqualTo("验证码 1234");
+        assertThat(smsBinder.field("url").get(sms)).isEqualTo("https://t.cn/x");
+    }
+
+    @Test
+    void primitiveAndInheritedFieldsUseGeneratedAccessors() {
+        ContentModelBinder<ExtendedModel> binder = ContentModelBinders.of(ExtendedModel.class);
+
+        // 父类字段在前，static / transient 字段跳过
+        assertThat(names(binder)).containsExactly("count", "enabled", "note");
+
+        ExtendedModel model = binder.newInstance();
+        binder.field("count").set(model, 42);
+        binder.field("enabled").set(model, true);
+        binder.field("note").set(model, null);
+        assertThat(model.getCount()).isEqualTo(42);
+        assertThat(model.isEnabled()).isTrue();
+        assertThat(binder.field("count").get(model)).isEqualTo(42);
+        assertThat(binder.field("enabled").get(model)).isEqualTo(true);
+        assertThat(binder.field("note").get(model)).isNull();
+        assertThat(binder.field("count").isString()).isFalse();
+
+        for (FieldBinding field : binder.getFields()) {
+            assertThat(generated(field, ExtendedModel.class) || generated(field, PrimitiveModel.class)).as(field.getName()).isTrue();
+        }
+    }
+
+    @Test
+    void missingAccessorsFallBackToFieldHandles() {
+        ContentModelBinder<ChainModel> binder = ContentModelBinders.of(ChainModel.class);
+        FieldBinding title = binder.field("title");
+        FieldBinding raw = binder.field("raw");
+
+        ChainModel model = binder.newInstance();
+        title.set(model, "链式");
+        raw.set(model, "无访问器");
+        assertThat(model.getTitle()).isEqualTo("链式");
+        assertThat(model.raw).isEqualTo("无访问器");
+        assertThat(title.get(model)).isEqualTo("链式");
+        assertThat(raw.get(model)).isEqualTo("无访问器");
+
+        title.set(model, null);
+        raw.set(model, null);
+        assertThat(title.get(model)).isNull();
+        assertThat(raw.get(model)).isNull();
+
+        // 链式 setter 不是 void 返回值：setter 退化为字段句柄，getter 仍由 LambdaMetafactory 生成
+        assertThat(generated(title, ChainModel.class)).isFalse();
+        assertThat(title.getGetter().getClass().getName()).startsWith(ChainModel.class.getName() + "$$Lambda");
+        assertThat(generated(raw, ChainModel.class)).isFalse();
+        assertThat(raw.getGetter().getClass().getName()).startsWith(ContentModelBinders.class.getName() + "$$Lambda");
+    }
+
+    /**
+     * LambdaMetafactory 生成的访问器定义在模型类的 Lookup 中（隐藏类名以模型类名开头），
+     * 退化路径的 lambda 定义在 ContentModelBinders 中
+     */
+    private static boolean generated(FieldBinding field, Class<?> modelClass) {
+        return field.getSetter().getClass().getName().startsWith(modelClass.getName() + "$$Lambda")
+                && field.getGetter().getClass().getName().startsWith(modelClass.getName() + "$$Lambda");
+    }
+
+    private static List<String> names(ContentModelBinder<?> binder) {
+        return binder.getFields().stream().map(FieldBinding::getName).collect(Collectors.toList());
+    }
+
+    static class PrimitiveModel implements ContentModel {
+
+        static final String IGNORED = "static";
+
+        private int count;
+
+        private boolean enabled;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    static class ExtendedModel extends PrimitiveModel {
+
+        private String note = "default";
+
+        private transient String cached;
+
+        public String getNote() {
+            return note;
+        }
+
+        public void setNote(String note) {
+            this.note = note;
+        }
+    }
+
+    /**
+     * title 只有链式 setter，raw 没有任何访问器
+     */
+    static class ChainModel implements ContentModel {
+
+        private String title;
+
+        private String raw;
+
+        public String getTitle() {
+            return title;
+        }
+
+        public ChainModel setTitle(String title) {
+            this.title = title;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.mini.austin.common.codec;
+
+import com.mini.austin.common.domain.ContentModel;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.dto.model.EmailContentModel;
+import com.mini.austin.common.dto.model.SmsContentModel;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ContentFingerprint：字段级指纹的区分度与缓存
+ *
+ * @author mini-austin
+ */
+class ContentFingerprintTest {
+
+    @Test
+    void equalContentHasEqualFingerprint() {
+        String fingerprint = ContentFingerprint.of(sms("您的验证码是123456", "https://x"));
+
+        assertThat(fingerprint).hasSize(32).matches("[0-9a-f]+");
+        assertThat(ContentFingerprint.of(sms("您的验证码是123456", "https://x"))).isEqualTo(fingerprint);
+        assertThat(ContentFingerprint.of(sms("您的验证码是654321", "https://x"))).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    void fieldBoundariesAreNotAmbiguous() {
+        assertThat(ContentFingerprint.of(sms("ab", "c"))).isNotEqualTo(ContentFingerprint.of(sms("a", "bc")));
+        assertThat(ContentFingerprint.of(sms("", null))).isNotEqualTo(ContentFingerprint.of(sms(null, "")));
+    }
+
+    @Test
+    void channelIsPartOfFingerprint() {
+        EmailContentModel email = EmailContentModel.builder().content("hello").build();
+
+        assertThat(ContentFingerprint.of(email)).isNotEqualTo(ContentFingerprint.of(sms("hello", null)));
+    }
+
+    @Test
+    void nullContentHasStableFingerprint() {
+        assertThat(ContentFingerprint.of((ContentModel) null))
+                .isEqualTo(ContentFingerprint.of((ContentModel) null))
+                .isNotEqualTo(ContentFingerprint.of(sms(null, null)));
+    }
+
+    @Test
+    void fingerprintIsCachedUntilContentChanges() {
+        TaskInfo taskInfo = TaskInfo.builder().contentModel(sms("v1", null)).build();
+
+        String first = ContentFingerprint.of(taskInfo);
+        assertThat(taskInfo.getContentFingerprint()).isEqualTo(first);
+
+        taskInfo.setContentModel(sms("v2", null));
+        assertThat(taskInfo.getContentFingerprint()).isNull();
+        assertThat(ContentFingerprint.of(taskInfo)).isNotEqualTo(first);
+    }
+
+    @Test
+    void rejectsUnregisteredContentModel() {
+        assertThatThrownBy(() -> ContentFingerprint.of(new ContentModel() {
+        })).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SmsContentModel sms(String content, String url) {
+        return SmsContentModel.builder().content(content).url(url).build();
+    }
+}
@@ -0,0 +1,169 @@
+package com.mini.austin.common.codec;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.dto.model.EmailContentModel;
+import com.mini.austin.common.dto.model.SmsContentModel;
+import com.mini.austin.common.enums.ChannelType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TaskInfoBinaryCodec 编解码往返与损坏消息校验
+ *
+ * @author mini-austin
+ */
+class TaskInfoBinaryCodecTest {
+
+    @Test
+    void roundTripsAllFields() {
+        List<TaskInfo> tasks = List.of(
+                sms("m1", Set.of("13800000001", "13800000002"), null),
+                TaskInfo.builder()
+                        .messageId("m2")
+                        .businessId(-7L)
+                        .messageTemplateId(Long.MAX_VALUE)
+                        .receiver(Set.of("a@example.com"))
+                        .sendChannel(ChannelType.EMAIL.getCode())
+                        .msgType(Integer.MIN_VALUE)
+                        .sendAccount(0)
+                        .contentModel(EmailContentModel.builder().title("标题").content(null).url("https://x").build())
+                        .build(),
+                new TaskInfo());
+
+        assertThat(TaskInfoBinaryCodec.decode(TaskInfoBinaryCodec.encode(tasks))).isEqualTo(tasks);
+    }
+
+    @Test
+    void retryCountSwitchesToVersionTwo() {
+        byte[] withoutRetry = TaskInfoBinaryCodec.encode(List.of(sms("m1", Set.of("r"), null)));
+        byte[] withRetry = TaskInfoBinaryCodec.encode(List.of(sms("m1", Set.of("r"), 2)));
+
+        assertThat(withoutRetry[1]).isEqualTo((byte) 1);
+        assertThat(withRetry[1]).isEqualTo((byte) 2);
+        assertThat(TaskInfoBinaryCodec.decode(withRetry).get(0).getRetryCount()).isEqualTo(2);
+    }
+
+    @Test
+    void receiverMessageIdsSwitchToVersionThree() {
+        TaskInfo merged = sms("group", Set.of("a", "b"), 1);
+        merged.setReceiverMessageIds(Map.of("a", "m-a", "b", "m-b"));
+
+        byte[] body = TaskInfoBinaryCodec.encode(List.of(merged));
+
+        assertThat(body[1]).isEqualTo((byte) 3);
+        TaskInfo decoded = TaskInfoBinaryCodec.decode(body).get(0);
+        assertThat(decoded).isEqualTo(merged);
+        assertThat(decoded.messageIdOf("b")).isEqualTo("m-b");
+    }
+
+    @Test
+    void sharedReceiversAreStoredOnce() {
+        Set<String> receivers = new LinkedHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            receivers.add("1380000" + String.format("%04d", i));
+        }
+        List<TaskInfo> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(sms("m" + i, receivers, null));
+        }
+
+        byte[] once = TaskInfoBinaryCodec.encode(tasks.subList(0, 1));
+        byte[] tenTimes = TaskInfoBinaryCodec.encode(tasks);
+
+        // 后 9 个任务只多出下标，不重复存接收者字符串
+        assertThat(tenTimes.length - once.length).isLessThan(9 * (100 * 2 + 64));
+        assertThat(TaskInfoBinaryCodec.decode(tenTimes)).isEqualTo(tasks);
+    }
+
+    @Test
+    void rejectsUnknownHeader() {
+        assertThatThrownBy(() -> TaskInfoBinaryCodec.decode(new byte[]{0x00, 0x01, 0x00, 0x00}))
+                .isInstanceOf(TaskInfoDecodeException.class);
+        assertThatThrownBy(() -> TaskInfoBinaryCodec.decode(new byte[]{(byte) 0xA5, 0x09, 0x00, 0x00}))
+                .isInstanceOf(TaskInfoDecodeException.class);
+        assertThatThrownBy(() -> TaskInfoBinaryCodec.decode(new byte[0]))
+                .isInstanceOf(TaskInfoDecodeException.class);
+    }
+
+    @Test
+    void rejectsCountLargerThanBody() {
+        // 字符串表声明 2^31-1 个条目，不应该分配数组
+        byte[] body = {(byte) 0xA5, 0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x00};
+
+        assertThatThrownBy(() -> TaskInfoBinaryCodec.decode(body))
+                .isInstanceOf(TaskInfoDecodeException.class)
+                .hasMessageContaining("数量超过剩余字节数");
+    }
+
+    @Test
+    void rejectsReceiverIndexOutOfStringTable() {
+        // 字符串表 1 项 "a"；1 个任务，flags=HAS_RECEIVER，接收者 1 个，下标 5
+        byte[] body = {(byte) 0xA5, 0x01, 0x01, 0x02, 'a', 0x01, 0x08, 0x01, 0x05};
+
+        assertThatThrownBy(() -> TaskInfoBinaryCodec.decode(body))
+                .isInstanceOf(TaskInfoDecodeException.class)
+                .hasMessageContaining("下标越界");
+    }
+
+    @Test
+    void rejectsTrailingBytes() {
+        byte[] body = TaskInfoBinaryCodec.encode(List.of(sms("m1", Set.of("r"), null)));
+        byte[] padded = Arrays.copyOf(body, body.length + 1);
+
+        assertThatThrownBy(() -> TaskInfoBinaryCodec.decode(padded)).isInstanceOf(TaskInfoDecodeException.class);
+    }
+
+    /**
+     * 截断或随机改写字节后，解码要么成功，要么只抛 TaskInfoDecodeException，且不会下发任何任务
+     */
+    @Test
+    void corruptedBodiesOnlyThrowDecodeException() {
+        List<TaskInfo> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(sms("m" + i, Set.of("1380000" + i, "1390000" + i), i % 3 == 0 ? i : null));
+        }
+        byte[] body = TaskInfoBinaryCodec.encode(tasks);
+        Random random = new Random(7);
+
+        for (int round = 0; round < 20_000; round++) {
+            byte[] corrupted = round % 2 == 0
+                    ? Arrays.copyOf(body, random.nextInt(body.length))
+                    : body.clone();
+            if (round % 2 == 1) {
+                for (int i = 0; i < 1 + random.nextInt(4); i++) {
+                    corrupted[random.nextInt(corrupted.length)] = (byte) random.nextInt(256);
+                }
+            }
+            List<TaskInfo> delivered = new ArrayList<>();
+            try {
+                TaskInfoBinaryCodec.decode(corrupted, delivered::add);
+            } catch (TaskInfoDecodeException e) {
+                assertThat(delivered).as("round=%d", round).isEmpty();
+            }
+        }
+    }
+
+    private static TaskInfo sms(String messageId, Set<String> receivers, Integer retryCount) {
+        return TaskInfo.builder()
+                .messageId(messageId)
+                .businessId(1_000_000L)
+                .messageTemplateId(1L)
+                .receiver(new LinkedHashSet<>(receivers))
+                .sendChannel(ChannelType.SMS.getCode())
+                .msgType(20)
+                .sendAccount(1)
+                .contentModel(SmsContentModel.builder().content("您的验证码是123456，5分钟内有效").url(null).build())
+                .retryCount(retryCount)
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.mini.austin.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.dto.model.SmsContentModel;
+import com.mini.austin.common.enums.ChannelType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TaskInfo 编解码基准：JSON（Jackson 序列化 + TaskInfoJsonDecoder）vs 紧凑二进制
+ * <p>
+ * 输出每种批大小下的消息体字节数，以及编码 / 解码的最好一轮耗时（每个 TaskInfo 的纳秒数）
+ * <p>
+ * 不在默认测试集中（类名不以 Test 结尾），手动运行：
+ * mvn -pl mini-austin-common test -Dtest=TaskInfoCodecBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ *
+ * @author mini-austin
+ */
+class TaskInfoCodecBenchmark {
+
+    private static final int ROUNDS = 15;
+
+    /**
+     * 每轮处理的 TaskInfo 总数
+     */
+    private static final int TASKS_PER_ROUND = 50_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compareWithJson() throws Exception {
+        // 1 个任务单接收者（/send）、200 个任务单接收者（批量发送分块）、20 个任务各 100 个接收者（合并后的群发）
+        report("1 task x 1 receiver", tasks(1, 1));
+        report("200 tasks x 1 receiver", tasks(200, 1));
+        report("20 tasks x 100 receivers", tasks(20, 100));
+    }
+
+    private void report(String name, List<TaskInfo> batch) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(batch);
+        byte[] binary = TaskInfoBinaryCodec.encode(batch);
+        assertThat(TaskInfoBinaryCodec.decode(binary)).isEqualTo(batch);
+        assertThat(TaskInfoJsonDecoder.decode(json)).isEqualTo(batch);
+
+        int iterations = Math.max(1, TASKS_PER_ROUND / batch.size());
+        long jsonEncode = Long.MAX_VALUE;
+        long binaryEncode = Long.MAX_VALUE;
+        long jsonDecode = Long.MAX_VALUE;
+        long binaryDecode = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += objectMapper.writeValueAsBytes(batch).length;
+            }
+            jsonEncode = Math.min(jsonEncode, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += TaskInfoBinaryCodec.encode(batch).length;
+            }
+            binaryEncode = Math.min(binaryEncode, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += TaskInfoJsonDecoder.decode(json).size();
+            }
+            jsonDecode = Math.min(jsonDecode, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += TaskInfoBinaryCodec.decode(binary).size();
+            }
+            binaryDecode = Math.min(binaryDecode, System.nanoTime() - start);
+        }
+
+        double tasks = (double) iterations * batch.size();
+        System.out.printf("%-26s bytes: json=%d binary=%d (%.1f%%) | encode ns/task: json=%.0f binary=%.0f | "
+                        + "decode ns/task: json=%.0f binary=%.0f | sink=%d%n",
+                name, json.length, binary.length, 100.0 * binary.length / json.length,
+                jsonEncode / tasks, binaryEncode / tasks, jsonDecode / tasks, binaryDecode / tasks, sink);
+    }
+
+    private static List<TaskInfo> tasks(int count, int receiversPerTask) {
+        List<TaskInfo> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Set<String> receivers = new LinkedHashSet<>();
+            for (int r = 0; r < receiversPerTask; r++) {
+                receivers.add(String.valueOf(13800000000L + (long) i * receiversPerTask + r));
+            }
+            tasks.add(TaskInfo.builder()
+                    .messageId(String.valueOf(7300000000000000000L + i))
+                    .businessId(1000000000000L + i)
+                    .messageTemplateId(1L)
+                    .receiver(receivers)
+                    .sendChannel(ChannelType.SMS.getCode())
+                    .msgType(20)
+                    .sendAccount(1)
+                    .contentModel(SmsContentModel.builder()
+                            .content("尊敬的用户" + i + "，您的订单O" + (100000000L + i) + "已发货，预计3天内送达。回复TD退订")
+                            .url("https://m.example.com/o/" + (100000000L + i))
+                            .build())
+                    .build());
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,109 @@
+package com.mini.austin.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.dto.model.EmailContentModel;
+import com.mini.austin.common.dto.model.SmsContentModel;
+import com.mini.austin.common.enums.ChannelType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TaskInfoJsonDecoder：与 Jackson 序列化结果的往返、字段顺序、未知字段与非法输入
+ *
+ * @author mini-austin
+ */
+class TaskInfoJsonDecoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void roundTripsJacksonOutput() throws Exception {
+        TaskInfo merged = TaskInfo.builder()
+                .messageId("group")
+                .businessId(-7L)
+                .messageTemplateId(Long.MAX_VALUE)
+                .receiver(new LinkedHashSet<>(Set.of("a@example.com", "b@example.com")))
+                .receiverMessageIds(Map.of("a@example.com", "m-a", "b@example.com", "m-b"))
+                .sendChannel(ChannelType.EMAIL.getCode())
+                .msgType(20)
+                .sendAccount(0)
+                .retryCount(2)
+                .contentModel(EmailContentModel.builder().title("标题").content(null).url("https://x").build())
+                .build();
+        List<TaskInfo> tasks = List.of(sms("m1"), merged, new TaskInfo());
+
+        assertThat(TaskInfoJsonDecoder.decode(objectMapper.writeValueAsBytes(tasks))).isEqualTo(tasks);
+    }
+
+    @Test
+    void contentModelBeforeSendChannelIsBuffered() throws Exception {
+        String json = "[{\"contentModel\":{\"content\":\"验证码123456\",\"url\":null},"
+                + "\"messageId\":\"m1\",\"sendChannel\":" + ChannelType.SMS.getCode() + "}]";
+
+        TaskInfo decoded = TaskInfoJsonDecoder.decode(bytes(json)).get(0);
+
+        assertThat(decoded.getContentModel()).isEqualTo(SmsContentModel.builder().content("验证码123456").build());
+    }
+
+    @Test
+    void unknownFieldsAndChannelsAreSkipped() throws Exception {
+        String json = "[{\"messageId\":\"m1\",\"newField\":{\"nested\":[1,2,{\"x\":null}]},"
+                + "\"sendChannel\":" + ChannelType.SMS.getCode() + ","
+                + "\"contentModel\":{\"content\":\"hi\",\"extra\":[true]}},"
+                + "{\"messageId\":\"m2\",\"sendChannel\":9999,\"contentModel\":{\"content\":\"hi\"}}]";
+
+        List<TaskInfo> decoded = TaskInfoJsonDecoder.decode(bytes(json));
+
+        assertThat(decoded).extracting(TaskInfo::getMessageId).containsExactly("m1", "m2");
+        assertThat(decoded.get(0).getContentModel()).isEqualTo(SmsContentModel.builder().content("hi").build());
+        assertThat(decoded.get(1).getContentModel()).isNull();
+    }
+
+    @Test
+    void callbackReceivesTasksInOrder() throws Exception {
+        List<TaskInfo> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(sms("m" + i));
+        }
+        List<String> seen = new ArrayList<>();
+
+        TaskInfoJsonDecoder.decode(objectMapper.writeValueAsBytes(tasks), taskInfo -> seen.add(taskInfo.getMessageId()));
+
+        assertThat(seen).containsExactly("m0", "m1", "m2", "m3", "m4");
+    }
+
+    @Test
+    void rejectsNonArrayBody() {
+        assertThatThrownBy(() -> TaskInfoJsonDecoder.decode(bytes("{\"messageId\":\"m1\"}")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaskInfoJsonDecoder.decode(bytes("[1]")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static TaskInfo sms(String messageId) {
+        return TaskInfo.builder()
+                .messageId(messageId)
+                .businessId(1_000_000L)
+                .messageTemplateId(1L)
+                .receiver(new LinkedHashSet<>(Set.of("13800000001")))
+                .sendChannel(ChannelType.SMS.getCode())
+                .msgType(20)
+                .sendAccount(1)
+                .contentModel(SmsContentModel.builder().content("您的验证码是123456").url(null).build())
+                .build();
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,173 @@
+package com.mini.austin.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * SnowflakeIdGenerator 单调性、时钟回拨与租约
+ *
+ * @author mini-austin
+ */
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = SnowflakeIdGenerator.EPOCH + 86_400_000L;
+
+    @Test
+    void idsIncreaseWithinAndAcrossMilliseconds() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = leased(new SnowflakeIdGenerator(2000, clock::get), 7);
+
+        long previous = -1;
+        // 同一毫秒内超过 4096 个，借用后续毫秒
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+        assertThat(SnowflakeIdGenerator.extractTimestamp(previous)).isEqualTo(NOW + 2);
+
+        clock.addAndGet(10);
+        long afterTick = generator.nextId();
+        assertThat(afterTick).isGreaterThan(previous);
+        assertThat(SnowflakeIdGenerator.extractTimestamp(afterTick)).isEqualTo(NOW + 10);
+        assertThat((afterTick >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_WORKER_ID).isEqualTo(7);
+    }
+
+    @Test
+    void smallClockRollbackKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = leased(new SnowflakeIdGenerator(2000, clock::get), 1);
+
+        long beforeRollback = generator.nextId();
+        clock.addAndGet(-500);
+        long afterRollback = generator.nextId();
+
+        assertThat(afterRollback).isGreaterThan(beforeRollback);
+        assertThat(SnowflakeIdGenerator.extractTimestamp(afterRollback)).isEqualTo(NOW);
+    }
+
+    @Test
+    void rollbackBeyondDriftWaitsForClock() {
+        AtomicLong clock = new AtomicLong(NOW);
+        AtomicBoolean ticking = new AtomicBoolean();
+        AtomicInteger reads = new AtomicInteger();
+        // ticking=true 时每次读取时钟前进 1ms，模拟回拨后物理时钟逐渐追上
+        SnowflakeIdGenerator generator = leased(new SnowflakeIdGenerator(10, () -> {
+            reads.incrementAndGet();
+            return ticking.get() ? clock.getAndIncrement() : clock.get();
+        }), 1);
+
+        long beforeRollback = generator.nextId();
+        clock.set(NOW - 50);
+        ticking.set(true);
+        reads.set(0);
+        long afterRollback = generator.nextId();
+
+        assertThat(afterRollback).isGreaterThan(beforeRollback);
+        // 回拨 50ms，允许领先 10ms：至少等物理时钟走过 40ms
+        assertThat(reads.get()).isGreaterThanOrEqualTo(40);
+        assertThat(SnowflakeIdGenerator.extractTimestamp(afterRollback) - (clock.get() - 1)).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeIdGenerator generator = leased(new SnowflakeIdGenerator(2000), 3);
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit((Callable<long[]>) () -> {
+                    long[] ids = new long[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> all = new HashSet<>(threads * perThread * 2);
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 0; i < ids.length; i++) {
+                    assertThat(i == 0 || ids[i] > ids[i - 1]).isTrue();
+                    all.add(ids[i]);
+                }
+            }
+            assertThat(all).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void refusesWithoutValidLease() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2000, clock::get);
+
+        assertThatThrownBy(generator::nextId).isInstanceOf(IdGenerationException.class);
+
+        generator.grant(1, NOW + 1000);
+        assertThat(generator.nextId()).isPositive();
+
+        clock.set(NOW + 1000);
+        assertThatThrownBy(generator::nextIdString).isInstanceOf(IdGenerationException.class);
+
+        generator.grant(1, NOW + 5000);
+        generator.revoke();
+        assertThatThrownBy(generator::nextId).isInstanceOf(IdGenerationException.class);
+        assertThat(generator.getWorkerId()).isEqualTo(-1);
+    }
+
+    @Test
+    void lastTimestampIncludesBorrowedMilliseconds() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = leased(new SnowflakeIdGenerator(2000, clock::get), 1);
+        assertThat(generator.lastTimestampMillis()).isLessThan(NOW);
+
+        // 同一毫秒发 2 * 4096 + 1 个，逻辑时钟领先物理时钟 2ms
+        for (int i = 0; i < 2 * 4096 + 1; i++) {
+            generator.nextId();
+        }
+        assertThat(generator.lastTimestampMillis()).isEqualTo(NOW + 2);
+
+        // 时钟回拨不会让已发出的时间戳倒退
+        clock.addAndGet(-500);
+        generator.nextId();
+        assertThat(generator.lastTimestampMillis()).isEqualTo(NOW + 2);
+    }
+
+    @Test
+    void base62IsFixedWidthAndOrderPreserving() {
+        SnowflakeIdGenerator generator = leased(new SnowflakeIdGenerator(2000), 1023);
+        String previous = "";
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            String value = SnowflakeIdGenerator.toBase62(id);
+            assertThat(value).hasSize(11);
+            assertThat(SnowflakeIdGenerator.fromBase62(value)).isEqualTo(id);
+            assertThat(value.compareTo(previous)).isPositive();
+            previous = value;
+        }
+        assertThat(SnowflakeIdGenerator.toBase62(Long.MAX_VALUE).compareTo(SnowflakeIdGenerator.toBase62(0))).isPositive();
+    }
+
+    private static SnowflakeIdGenerator leased(SnowflakeIdGenerator generator, int workerId) {
+        generator.grant(workerId, Long.MAX_VALUE);
+        return generator;
+    }
+}
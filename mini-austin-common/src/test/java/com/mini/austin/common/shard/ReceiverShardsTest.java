@@ -0,0 +1,95 @@
+package com.mini.austin.common.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ReceiverShards：接收者分片（跳跃一致性哈希）与分片归属（最高随机权重哈希）
+ *
+ * @author mini-austin
+ */
+class ReceiverShardsTest {
+
+    private static final int RECEIVERS = 10_000;
+
+    @Test
+    void receiversSpreadEvenlyOverShards() {
+        int[] counts = new int[16];
+        for (int i = 0; i < RECEIVERS; i++) {
+            int shard = ReceiverShards.shardOf(receiver(i), 16);
+            assertThat(shard).isBetween(0, 15);
+            assertThat(ReceiverShards.shardOf(receiver(i), 16)).isEqualTo(shard);
+            counts[shard]++;
+        }
+        // 期望每片 625 个
+        for (int count : counts) {
+            assertThat(count).isBetween(450, 800);
+        }
+    }
+
+    @Test
+    void addingShardOnlyMovesReceiversToTheNewShard() {
+        int moved = 0;
+        for (int i = 0; i < RECEIVERS; i++) {
+            int before = ReceiverShards.shardOf(receiver(i), 16);
+            int after = ReceiverShards.shardOf(receiver(i), 17);
+            if (before != after) {
+                assertThat(after).isEqualTo(16);
+                moved++;
+            }
+        }
+        // 约 1/17
+        assertThat(moved).isBetween(RECEIVERS / 17 / 2, RECEIVERS / 17 * 2);
+    }
+
+    @Test
+    void membersPartitionAllShards() {
+        List<String> members = List.of("handler-a", "handler-b", "handler-c");
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (String member : members) {
+            Set<Integer> owned = ReceiverShards.assign(member, members, 16);
+            total += owned.size();
+            all.addAll(owned);
+        }
+
+        assertThat(total).isEqualTo(16);
+        assertThat(all).hasSize(16);
+    }
+
+    @Test
+    void leavingMemberOnlyReassignsItsOwnShards() {
+        List<String> before = List.of("handler-a", "handler-b", "handler-c");
+        List<String> after = List.of("handler-a", "handler-c");
+
+        for (int shard = 0; shard < 64; shard++) {
+            String owner = ReceiverShards.ownerOf(shard, before);
+            if (!"handler-b".equals(owner)) {
+                assertThat(ReceiverShards.ownerOf(shard, after)).as("shard=%d", shard).isEqualTo(owner);
+            }
+        }
+        // 成员顺序不影响结果
+        assertThat(ReceiverShards.assign("handler-a", List.of("handler-c", "handler-b", "handler-a"), 64))
+                .isEqualTo(ReceiverShards.assign("handler-a", before, 64));
+    }
+
+    @Test
+    void nonMemberOwnsNothing() {
+        assertThat(ReceiverShards.assign("handler-x", List.of("handler-a"), 16)).isEmpty();
+        assertThat(ReceiverShards.ownerOf(0, List.of())).isNull();
+    }
+
+    @Test
+    void resolveAppendsShardSuffix() {
+        assertThat(ReceiverShards.resolve("austin-send-queue", 3)).isEqualTo("austin-send-queue.shard-3");
+    }
+
+    private static String receiver(int i) {
+        return "138" + String.format("%08d", i);
+    }
+}
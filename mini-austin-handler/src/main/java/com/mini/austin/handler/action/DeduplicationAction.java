@@ -1,20 +1,20 @@
 package com.mini.austin.handler.action;
 
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.crypto.digest.DigestUtil;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mini.austin.common.domain.TaskInfo;
 import com.mini.austin.common.pipeline.BusinessProcess;
 import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.handler.dedup.DedupStore;
+import com.mini.austin.handler.dedup.LocalDedupStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
-import java.util.HashSet;
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 去重 Action
@@ -24,9 +24,22 @@ import java.util.concurrent.TimeUnit;
  * 场景：同一个用户在短时间内不应该收到重复内容的消息
  * <p>
  * 实现原理：
- * 1. 构建去重 Key = SHA-256(模板ID + 接收者 + 内容)
- * 2. 查询 Redis，如果 Key 存在，说明已发送过，过滤掉该接收者
- * 3. 如果 Key 不存在，写入 Redis 并设置过期时间
+ * 1. 构建去重 Key = 模板ID + 接收者 + 内容指纹（ContentFingerprint，每个任务只算一次）
+ * 2. 由 DedupStore 为每个接收者原子地抢占去重记录（一个任务的所有接收者批量发出）
+ * 3. 抢占成功说明窗口内没有发过，保留该接收者；抢占失败说明已发送过，过滤掉
+ * <p>
+ * 存储模式（mini-austin.deduplication.mode）：
+ * key - 每个条目一个 String Key，SET NX EX（KeyDedupStore，默认，约 129 字节/条）；
+ * bucket - 按窗口分桶、按分区拆分的整数 Set，整桶过期（BucketDedupStore，约 9 字节/条）；
+ * bloom - 按窗口分桶的布隆过滤器位图，允许极小概率误判（BloomDedupStore，每个桶约 2.8 字节/条，
+ * 稳态两个桶并存约 5.6 字节/条）
+ * <p>
+ * 以上为实测值：Redis 6.2 + jemalloc，100 万条目，used_memory 增量 / 条目数（见 DedupStoreMemoryBenchmark）
+ * <p>
+ * 单节点或开启接收者分片时，可在前面叠加本地去重（LocalDedupStore），本地命中的重复不再访问 Redis
+ * <p>
+ * 发送失败且没有交给重试时，SendMessageAction 调用 release 释放失败接收者的记录，
+ * 消息 nack 重新投递后这些接收者还能再次通过去重
  *
  * @author mini-austin
  */
@@ -34,23 +47,38 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class DeduplicationAction implements BusinessProcess<TaskInfo> {
 
-    private static final String DEDUP_KEY_PREFIX = "austin:dedup:";
-
     @Autowired
-    private StringRedisTemplate redisTemplate;
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<DedupStore> stores;
 
     /**
-     * 去重时间窗口（秒），默认5分钟
+     * 去重状态的存储模式：key / bucket / bloom
      */
-    @Value("${mini-austin.deduplication.expire-seconds:300}")
-    private long expireSeconds;
+    @Value("${mini-austin.deduplication.mode:key}")
+    private String mode;
+
+    private DedupStore store;
+
+    @Autowired
+    private LocalDedupStore localStore;
+
+    @PostConstruct
+    public void init() {
+        store = stores.stream()
+                .filter(candidate -> candidate.mode().equals(mode))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("未知的去重存储模式: " + mode));
+        log.info("去重存储模式: {}", mode);
+    }
 
     @Override
     public void process(ProcessContext<TaskInfo> context) {
         TaskInfo taskInfo = context.getProcessModel();
 
+        // 重试消息在首次发送时已经计入，不再重复检查
+        if (taskInfo.getRetryCount() != null) {
+            return;
+        }
+
         // 记录去重前的接收者数量
         int beforeCount = taskInfo.getReceiver().size();
 
@@ -75,46 +103,42 @@ public class DeduplicationAction implements BusinessProcess<TaskInfo> {
     }
 
     /**
-     * 执行去重逻辑
+     * 释放 taskInfo 当前接收者（发送失败的接收者）的去重记录
+     * <p>
+     * 重试消息没有抢占过记录，不需要释放；释放失败只记录日志（重新投递时这些接收者会被过滤，与释放前相同）
      */
-    private Set<String> doDeduplication(TaskInfo taskInfo) {
-        Set<String> result = new HashSet<>();
-
-        for (String receiver : taskInfo.getReceiver()) {
-            // 构建去重Key
-            String dedupKey = buildDedupKey(taskInfo, receiver);
-
-            // 检查是否已存在
-            Boolean exists = redisTemplate.hasKey(dedupKey);
-            if (Boolean.TRUE.equals(exists)) {
-                log.debug("去重命中: receiver={}, key={}", receiver, dedupKey);
-                continue;
+    public void release(TaskInfo taskInfo) {
+        if (taskInfo.getRetryCount() != null || CollUtil.isEmpty(taskInfo.getReceiver())) {
+            return;
+        }
+        List<String> receivers = new ArrayList<>(taskInfo.getReceiver());
+        try {
+            if (localStore.isEnabled()) {
+                localStore.release(taskInfo, receivers, store);
+            } else {
+                store.release(taskInfo, receivers);
             }
-
-            // 不存在，写入 Redis 并设置过期时间
-            redisTemplate.opsForValue().set(dedupKey, "1", expireSeconds, TimeUnit.SECONDS);
-            result.add(receiver);
+        } catch (Exception e) {
+            log.error("释放去重记录失败: messageId={}, receivers={}", taskInfo.getMessageId(), receivers.size(), e);
         }
-
-        return result;
     }
 
     /**
-     * 构建去重Key
-     * <p>
-     * Key = 前缀 + 模板ID + 接收者 + 内容SHA-256
+     * 执行去重逻辑（由当前模式的 DedupStore 原子地"查 + 写"）
      */
-    private String buildDedupKey(TaskInfo taskInfo, String receiver) {
-        String contentJson;
-        try {
-            contentJson = taskInfo.getContentModel() == null
-                    ? ""
-                    : objectMapper.writeValueAsString(taskInfo.getContentModel());
-        } catch (Exception e) {
-            contentJson = "";
+    private Set<String> doDeduplication(TaskInfo taskInfo) {
+        List<String> receivers = new ArrayList<>(taskInfo.getReceiver());
+        // 开启本地去重时先查本地，本地未命中的才访问 Redis
+        Set<String> result = localStore.isEnabled()
+                ? localStore.claim(taskInfo, receivers, store)
+                : store.claim(taskInfo, receivers);
+        if (log.isDebugEnabled() && result.size() != receivers.size()) {
+            for (String receiver : receivers) {
+                if (!result.contains(receiver)) {
+                    log.debug("去重命中: receiver={}, templateId={}", receiver, taskInfo.getMessageTemplateId());
+                }
+            }
         }
-        // 使用 SHA-256 替代 MD5（更安全，抗碰撞）
-        String contentHash = DigestUtil.sha256Hex(contentJson);
-        return DEDUP_KEY_PREFIX + taskInfo.getMessageTemplateId() + ":" + receiver + ":" + contentHash;
+        return result;
     }
 }
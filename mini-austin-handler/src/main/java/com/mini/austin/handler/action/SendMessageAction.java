@@ -3,8 +3,10 @@ package com.mini.austin.handler.action;
 import com.mini.austin.common.domain.TaskInfo;
 import com.mini.austin.common.pipeline.BusinessProcess;
 import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.common.vo.BasicResultVO;
 import com.mini.austin.handler.handler.Handler;
 import com.mini.austin.handler.handler.HandlerHolder;
+import com.mini.austin.handler.retry.RetryPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -12,7 +14,13 @@ import org.springframework.stereotype.Component;
 /**
  * 发送消息 Action
  * <p>
- * 责任链最后一个节点，负责路由到具体渠道的 Handler 进行发送
+ * 责任链最后一个节点，负责路由到具体渠道的 Handler 进行发送；
+ * 发送失败时把失败的接收者投递到延迟队列重试（见 RetryPublisher），不占用工作线程等待；
+ * 没有交给重试的失败（无 Handler、未启用重试、重试用尽或重试投递失败）把上下文响应置为失败，
+ * 由 ConsumeServiceImpl 上报给消费者（批量模式下据此 nack 而不是 ack）
+ * <p>
+ * 首次发送失败时同时释放失败接收者的去重记录、退还频率计数：nack 重新投递的消息 retryCount 仍为空，
+ * 会再经过频率限制和去重，不释放的话这些接收者会被自己第一次的记录过滤掉，消息被 ack 却没有发出
  *
  * @author mini-austin
  */
@@ -23,6 +31,15 @@ public class SendMessageAction implements BusinessProcess<TaskInfo> {
     @Autowired
     private HandlerHolder handlerHolder;
 
+    @Autowired
+    private RetryPublisher retryPublisher;
+
+    @Autowired
+    private FrequencyLimitAction frequencyLimitAction;
+
+    @Autowired
+    private DeduplicationAction deduplicationAction;
+
     @Override
     public void process(ProcessContext<TaskInfo> context) {
         TaskInfo taskInfo = context.getProcessModel();
@@ -32,6 +49,9 @@ public class SendMessageAction implements BusinessProcess<TaskInfo> {
 
         if (handler == null) {
             log.error("未找到对应的Handler: channel={}", taskInfo.getSendChannel());
+            releaseClaims(taskInfo);
+            context.setNeedBreak(true);
+            context.setResponse(BasicResultVO.fail("未找到对应的Handler: channel=" + taskInfo.getSendChannel()));
             return;
         }
 
@@ -41,9 +61,21 @@ public class SendMessageAction implements BusinessProcess<TaskInfo> {
         if (success) {
             log.info("消息发送成功: messageId={}, channel={}", 
                     taskInfo.getMessageId(), taskInfo.getSendChannel());
-        } else {
-            log.error("消息发送失败: messageId={}, channel={}", 
-                    taskInfo.getMessageId(), taskInfo.getSendChannel());
+        } else if (!retryPublisher.retry(taskInfo)) {
+            // 未启用重试、重试次数用尽或重试投递失败
+            log.error("消息发送失败: messageId={}, channel={}, receivers={}",
+                    taskInfo.getMessageId(), taskInfo.getSendChannel(), taskInfo.getReceiver());
+            releaseClaims(taskInfo);
+            context.setNeedBreak(true);
+            context.setResponse(BasicResultVO.fail("消息发送失败: messageId=" + taskInfo.getMessageId()));
         }
     }
+
+    /**
+     * 释放失败接收者（taskInfo 当前的接收者）在频率限制、去重中的记录（重试消息没有记录，内部直接返回）
+     */
+    private void releaseClaims(TaskInfo taskInfo) {
+        frequencyLimitAction.release(taskInfo);
+        deduplicationAction.release(taskInfo);
+    }
 }
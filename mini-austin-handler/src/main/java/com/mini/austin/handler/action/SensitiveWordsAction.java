@@ -98,6 +98,9 @@ public class SensitiveWordsAction implements BusinessProcess<TaskInfo> {
             email.setTitle(filteredTitle);
             email.setContent(filteredContent);
         }
+
+        // 不清空内容指纹缓存：指纹代表消息到达时的内容（去重身份），
+        // 发送失败释放去重记录时要算出与抢占时相同的条目；替换后的内容不再参与去重
     }
 
     /**
@@ -0,0 +1,64 @@
+package com.mini.austin.handler.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 渠道舱壁配置
+ * <p>
+ * 示例：
+ * <pre>
+ * mini-austin:
+ *   bulkhead:
+ *     enabled: true
+ *     channels:
+ *       sms:   { core-size: 4, max-size: 8, queue-capacity: 256, rejection: block }
+ *       email: { core-size: 2, max-size: 4, queue-capacity: 64,  rejection: abort }
+ * </pre>
+ * channels 的 key 为 ChannelType 枚举名（不区分大小写），未配置的渠道仍使用共享执行器
+ *
+ * @author mini-austin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mini-austin.bulkhead")
+public class BulkheadProperties {
+
+    /**
+     * 是否启用渠道舱壁
+     */
+    private boolean enabled = false;
+
+    /**
+     * 渠道名 -> 舱壁配置
+     */
+    private Map<String, Spec> channels = new HashMap<>();
+
+    @Data
+    public static class Spec {
+
+        /**
+         * 核心线程数
+         */
+        private int coreSize = 2;
+
+        /**
+         * 最大线程数（该渠道的并发上限）
+         */
+        private int maxSize = 4;
+
+        /**
+         * 队列容量
+         */
+        private int queueCapacity = 64;
+
+        /**
+         * 队列满时的拒绝策略：caller-runs / abort / block
+         */
+        private String rejection = "caller-runs";
+    }
+}
@@ -1,10 +1,18 @@
 package com.mini.austin.handler.config;
 
+import com.mini.austin.common.enums.MessageLane;
+import com.mini.austin.handler.executor.BoundedVirtualThreadExecutor;
+import com.mini.austin.handler.executor.WeightedLaneQueue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +34,20 @@ public class HandlerThreadPoolConfig {
 
     public static final String HANDLER_PIPELINE_CODE = "handler";
 
+    private static final String MODE_VIRTUAL = "virtual";
+
+    /**
+     * 执行模式：platform（固定大小线程池）/ virtual（每个任务一个虚拟线程，JDK 21+）
+     */
+    @Value("${mini-austin.thread-pool.mode:platform}")
+    private String mode;
+
+    /**
+     * virtual 模式下的最大在途任务数
+     */
+    @Value("${mini-austin.thread-pool.max-in-flight:1000}")
+    private int maxInFlight;
+
     @Value("${mini-austin.thread-pool.core-size:4}")
     private int corePoolSize;
 
@@ -38,31 +60,87 @@ public class HandlerThreadPoolConfig {
     @Value("${mini-austin.thread-pool.keep-alive:60}")
     private int keepAliveSeconds;
 
+    /**
+     * 是否开启优先级通道（开启后任务队列按通道加权调度）
+     */
+    @Value("${mini-austin.mq.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    @Value("${mini-austin.mq.lanes.high-weight:9}")
+    private int highWeight;
+
+    @Value("${mini-austin.mq.lanes.low-weight:1}")
+    private int lowWeight;
+
     /**
      * Handler 处理线程池
      * <p>
      * 面试考点：
      * - corePoolSize：核心线程数，始终保持存活
      * - maxPoolSize：最大线程数，队列满时才会创建
-     * - queueCapacity：阻塞队列容量
+     * - queueCapacity：阻塞队列容量（开启优先级通道时为每个通道的容量，按权重调度）
      * - keepAliveSeconds：非核心线程空闲存活时间
      * - 拒绝策略：CallerRunsPolicy - 由调用者线程执行，起到削峰作用
+     *   （触发次数记录在 austin.handler.executor.caller-runs，频繁触发时建议开启信用反压）
      */
     @Bean
-    public ThreadPoolExecutor handlerExecutor() {
+    public ThreadPoolExecutor handlerExecutor(MeterRegistry meterRegistry) {
+        Counter callerRunsCounter = Counter.builder("austin.handler.executor.caller-runs")
+                .description("线程池饱和、由监听线程直接执行任务的次数")
+                .register(meterRegistry);
+        ThreadPoolExecutor.CallerRunsPolicy callerRunsPolicy = new ThreadPoolExecutor.CallerRunsPolicy();
+
+        BlockingQueue<Runnable> workQueue;
+        if (lanesEnabled) {
+            WeightedLaneQueue laneQueue = new WeightedLaneQueue(queueCapacity, highWeight, lowWeight);
+            for (MessageLane lane : MessageLane.values()) {
+                Gauge.builder("austin.handler.lane.queued", laneQueue, q -> q.size(lane))
+                        .description("各优先级通道排队中的任务数")
+                        .tag("lane", lane.getSuffix())
+                        .register(meterRegistry);
+            }
+            workQueue = laneQueue;
+        } else {
+            workQueue = new LinkedBlockingQueue<>(queueCapacity);
+        }
+
         ThreadPoolExecutor executor = new ThreadPoolExecutor(
                 corePoolSize,
                 maxPoolSize,
                 keepAliveSeconds,
                 TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(queueCapacity),
+                workQueue,
                 r -> new Thread(r, "handler-pool-" + r.hashCode()),
-                new ThreadPoolExecutor.CallerRunsPolicy()
+                (r, e) -> {
+                    callerRunsCounter.increment();
+                    callerRunsPolicy.rejectedExecution(r, e);
+                }
         );
 
-        log.info("Handler线程池初始化: core={}, max={}, queue={}", 
-                corePoolSize, maxPoolSize, queueCapacity);
+        log.info("Handler线程池初始化: core={}, max={}, queue={}, lanes={}",
+                corePoolSize, maxPoolSize, queueCapacity, lanesEnabled);
 
         return executor;
     }
+
+    /**
+     * 责任链执行器
+     * <p>
+     * virtual 模式且 JVM 支持时使用虚拟线程（并发由在途任务数限制），否则回退到 handlerExecutor
+     */
+    @Bean
+    public Executor pipelineExecutor(ThreadPoolExecutor handlerExecutor, MeterRegistry meterRegistry) {
+        if (MODE_VIRTUAL.equals(mode)) {
+            BoundedVirtualThreadExecutor executor = BoundedVirtualThreadExecutor.create("handler-vt-", maxInFlight);
+            if (executor != null) {
+                Gauge.builder("austin.handler.executor.in-flight", executor, BoundedVirtualThreadExecutor::getInFlightCount)
+                        .description("虚拟线程模式下正在执行的责任链数")
+                        .register(meterRegistry);
+                log.info("Handler责任链使用虚拟线程执行: maxInFlight={}", maxInFlight);
+                return executor;
+            }
+            log.warn("虚拟线程不可用，回退到平台线程池");
+        }
+        return handlerExecutor;
+    }
 }
@@ -1,19 +1,41 @@
 package com.mini.austin.handler.config;
 
+import com.mini.austin.common.enums.MessageLane;
+import com.mini.austin.common.shard.ReceiverShards;
+import com.mini.austin.handler.flow.PipelineDrainer;
+import com.mini.austin.handler.retry.RetryPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.HeadersExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
  * RabbitMQ 配置类（Handler端）
+ * <p>
+ * 开启优先级通道（mini-austin.mq.lanes.enabled=true）时，额外为每个通道声明一个队列，
+ * 每个通道由独立的监听容器消费，低优先级通道阻塞不会影响高优先级通道取消息
+ * <p>
+ * 开启接收者分片（mini-austin.mq.shards.enabled=true）时，额外声明 count 个分片队列（参数与 Web 端一致），
+ * 由 ReceiverShardOwnership 决定本实例监听哪些分片
+ * <p>
+ * 开启发送失败重试（mini-austin.retry.enabled=true）时，声明重试交换机和每个退避档位的延迟队列，
+ * 延迟队列没有消费者，消息到期后经死信按原路由键回到发送交换机（见 RetryPublisher）
  *
  * @author mini-austin
  */
+@Slf4j
 @Configuration
 public class RabbitMqConfig {
 
@@ -26,6 +48,33 @@ public class RabbitMqConfig {
     @Value("${mini-austin.mq.routing-key:austin.send}")
     private String routingKey;
 
+    @Value("${mini-austin.mq.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    @Value("${mini-austin.mq.shards.enabled:false}")
+    private boolean shardsEnabled;
+
+    @Value("${mini-austin.mq.shards.count:16}")
+    private int shardCount;
+
+    /**
+     * 批量消费：每批消息数（同时作为 prefetch）
+     */
+    @Value("${mini-austin.mq.consume.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * 批量消费：凑不满一批时最多等待的毫秒数
+     */
+    @Value("${mini-austin.mq.consume.receive-timeout-ms:200}")
+    private long receiveTimeoutMs;
+
+    /**
+     * 批量消费：并发消费者数
+     */
+    @Value("${mini-austin.mq.consume.consumers:1}")
+    private int consumers;
+
     @Bean
     public DirectExchange austinExchange() {
         return new DirectExchange(exchange, true, false);
@@ -40,4 +89,106 @@ public class RabbitMqConfig {
     public Binding austinBinding(Queue austinQueue, DirectExchange austinExchange) {
         return BindingBuilder.bind(austinQueue).to(austinExchange).with(routingKey);
     }
+
+    /**
+     * 声明优先级通道队列并绑定
+     */
+    @Bean
+    public Declarables austinLaneDeclarables(DirectExchange austinExchange) {
+        Declarables declarables = new Declarables();
+        if (!lanesEnabled) {
+            return declarables;
+        }
+        for (MessageLane lane : MessageLane.values()) {
+            Queue laneQueue = QueueBuilder.durable(lane.resolve(queue)).build();
+            declarables.getDeclarables().add(laneQueue);
+            declarables.getDeclarables().add(
+                    BindingBuilder.bind(laneQueue).to(austinExchange).with(lane.resolve(routingKey)));
+        }
+        return declarables;
+    }
+
+    /**
+     * 声明接收者分片队列并绑定（single-active-consumer：重新分配期间也只有一个消费者在消费）
+     */
+    @Bean
+    public Declarables austinShardDeclarables(DirectExchange austinExchange) {
+        Declarables declarables = new Declarables();
+        if (!shardsEnabled) {
+            return declarables;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            Queue shardQueue = QueueBuilder.durable(ReceiverShards.resolve(queue, shard)).singleActiveConsumer().build();
+            declarables.getDeclarables().add(shardQueue);
+            declarables.getDeclarables().add(
+                    BindingBuilder.bind(shardQueue).to(austinExchange).with(ReceiverShards.resolve(routingKey, shard)));
+        }
+        return declarables;
+    }
+
+    /**
+     * 声明重试交换机和延迟队列：重试交换机按档位头路由，
+     * 队列级 TTL 到期后死信到发送交换机，不指定死信路由键（沿用消息原本的分片 / 通道路由键）
+     * <p>
+     * 开关、交换机名和档位都取自 RetryPublisher，与投递端保持一致
+     */
+    @Bean
+    public Declarables austinRetryDeclarables(RetryPublisher retryPublisher) {
+        Declarables declarables = new Declarables();
+        if (!retryPublisher.isEnabled()) {
+            return declarables;
+        }
+        HeadersExchange retry = new HeadersExchange(retryPublisher.getRetryExchange(), true, false);
+        declarables.getDeclarables().add(retry);
+        for (long delayMs : retryPublisher.getDelaysMs()) {
+            String tier = RetryPublisher.routingKeyOf(delayMs);
+            Queue delayQueue = QueueBuilder.durable(queue + "." + tier)
+                    .ttl((int) delayMs)
+                    .deadLetterExchange(exchange)
+                    .build();
+            declarables.getDeclarables().add(delayQueue);
+            declarables.getDeclarables().add(BindingBuilder.bind(delayQueue).to(retry)
+                    .where(RetryPublisher.TIER_HEADER).matches(tier));
+        }
+        return declarables;
+    }
+
+    /**
+     * 默认的监听容器工厂（替换 Spring Boot 自动配置的同名工厂，配置项不变）
+     * <p>
+     * 容器阶段低于 PipelineDrainer，停机时由排空组件先停止容器（见 PipelineDrainer）
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPhase(PipelineDrainer.LISTENER_CONTAINER_PHASE);
+        return factory;
+    }
+
+    /**
+     * 批量消费的监听容器工厂（手动 ack）
+     * <p>
+     * prefetch = batchSize：Broker 最多推送一批未确认的消息，
+     * 当前批次 ack 之前不会再推新消息，消费者崩溃时最多一批消息被重新投递
+     */
+    @Bean
+    @ConditionalOnProperty(name = "mini-austin.mq.consume.mode", havingValue = "batch")
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(consumers);
+        factory.setPhase(PipelineDrainer.LISTENER_CONTAINER_PHASE);
+
+        log.info("批量消费模式: batchSize={}, prefetch={}, consumers={}", batchSize, batchSize, consumers);
+        return factory;
+    }
 }
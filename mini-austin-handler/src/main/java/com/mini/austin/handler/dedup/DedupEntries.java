@@ -0,0 +1,54 @@
+package com.mini.austin.handler.dedup;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.mini.austin.common.domain.TaskInfo;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 去重条目的二进制指纹（bucket / bloom 模式共用）
+ * <p>
+ * 指纹 = MurmurHash3_128(模板ID, 接收者, 内容指纹)，与 key 模式的 Key 覆盖相同的维度，
+ * 但只有 16 字节，不再把几十个字符的 Key 原样存进 Redis
+ *
+ * @author mini-austin
+ */
+final class DedupEntries {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private DedupEntries() {
+    }
+
+    /**
+     * 条目指纹（128 位）
+     *
+     * @param contentFingerprint 任务的内容指纹（ContentFingerprint.of，每个任务只算一次）
+     */
+    static HashCode hash(TaskInfo taskInfo, String receiver, String contentFingerprint) {
+        Long templateId = taskInfo.getMessageTemplateId();
+        byte[] receiverBytes = receiver.getBytes(StandardCharsets.UTF_8);
+        return HASH.newHasher()
+                .putLong(templateId == null ? -1L : templateId)
+                .putInt(receiverBytes.length)
+                .putBytes(receiverBytes)
+                .putString(contentFingerprint, StandardCharsets.US_ASCII)
+                .hash();
+    }
+
+    /**
+     * 当前时间所在的桶编号（桶长度 = 去重窗口）
+     */
+    static long bucketOf(long epochSeconds, long windowSeconds) {
+        return epochSeconds / windowSeconds;
+    }
+
+    /**
+     * 桶的过期时刻（秒级时间戳）：桶结束后还要作为"上一个桶"被检查一个窗口
+     */
+    static long expireAtOf(long bucket, long windowSeconds) {
+        return (bucket + 2) * windowSeconds + 1;
+    }
+}
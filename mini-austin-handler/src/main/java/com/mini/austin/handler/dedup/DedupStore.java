@@ -0,0 +1,42 @@
+package com.mini.austin.handler.dedup;
+
+import com.mini.austin.common.domain.TaskInfo;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 去重状态存储
+ * <p>
+ * 由 DeduplicationAction 按 mini-austin.deduplication.mode 选择具体实现：
+ * key（KeyDedupStore）、bucket（BucketDedupStore）、bloom（BloomDedupStore）
+ *
+ * @author mini-austin
+ */
+public interface DedupStore {
+
+    /**
+     * 存储模式名（对应 mini-austin.deduplication.mode）
+     */
+    String mode();
+
+    /**
+     * 为接收者抢占去重记录（原子的"查 + 写"）
+     *
+     * @param taskInfo  任务
+     * @param receivers 待检查的接收者
+     * @return 抢占成功（窗口内没有发过）的接收者
+     */
+    Set<String> claim(TaskInfo taskInfo, List<String> receivers);
+
+    /**
+     * 释放接收者的去重记录（抢占成功但最终没有发出、也没有交给重试的接收者）
+     * <p>
+     * 消息随后会被 nack 重新投递，重新投递时仍是首次发送（retryCount 为空），要再经过去重；
+     * 不释放的话这些接收者会被自己第一次的记录过滤掉，消息被 ack 却一条也没发
+     *
+     * @param taskInfo  任务（内容指纹与抢占时相同，见 ContentFingerprint）
+     * @param receivers 要释放的接收者
+     */
+    void release(TaskInfo taskInfo, List<String> receivers);
+}
@@ -0,0 +1,290 @@
+package com.mini.austin.handler.dedup;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内滑动窗口去重过滤器
+ * <p>
+ * ★★★ 面试重点：去重状态放在本地，内存怎么控制、过期怎么做？ ★★★
+ * <p>
+ * 实现原理：
+ * 1. 按指纹高位分成若干段（Segment），每段一把锁，多个消费线程互不阻塞
+ * 2. 每段两代（当前桶 + 上一个桶），桶长度 = 去重窗口；跨过桶边界时上一代整体清空后变成当前代，
+ *    过期是 O(1) 的整代轮换，不需要逐条 TTL
+ * 3. 每一代 = 寄存器分块布隆过滤器 + 精确集合：
+ *    布隆过滤器的 k 位都落在同一个 64 位字里，一次内存访问就能判断"一定没见过"；
+ *    只有布隆判断"可能见过"时才去精确集合（64 位指纹的开放寻址表）确认，消除布隆误判
+ * 4. 容量按内存预算计算：每个条目约 8 / 0.75 字节（精确集合）+ 1.5 字节（布隆），两代共享预算
+ * 5. 当前代写满时提前轮换（窗口变短，记录次数），不会无限增长
+ * 6. 支持删除条目（发送失败后释放去重记录）：精确集合用线性探测的后移删除，不留墓碑；
+ *    布隆位不清除，之后查到该位置时由精确集合确认"不存在"
+ *
+ * @author mini-austin
+ */
+public class LocalDedupFilter {
+
+    /**
+     * 精确集合的最大装载因子
+     */
+    private static final double LOAD_FACTOR = 0.75;
+
+    /**
+     * 布隆过滤器每个条目的位数（按容量计算）
+     */
+    private static final int BLOOM_BITS_PER_ENTRY = 12;
+
+    /**
+     * 布隆过滤器在一个 64 位字里设置的位数
+     */
+    private static final int BLOOM_HASHES = 4;
+
+    /**
+     * 每个条目的估算字节数：精确集合槽位 + 布隆位
+     */
+    private static final double BYTES_PER_ENTRY = 8 / LOAD_FACTOR + BLOOM_BITS_PER_ENTRY / 8.0;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    private final long windowSeconds;
+
+    private final AtomicLong earlyRotations = new AtomicLong();
+
+    /**
+     * @param memoryBytes   内存预算（两代合计）
+     * @param segmentCount  段数（2 的幂，不超过 256）
+     * @param windowSeconds 去重窗口（秒）
+     */
+    public LocalDedupFilter(long memoryBytes, int segmentCount, long windowSeconds) {
+        if (Integer.bitCount(segmentCount) != 1 || segmentCount > 256) {
+            throw new IllegalArgumentException("段数必须是不超过 256 的 2 的幂: " + segmentCount);
+        }
+        this.windowSeconds = windowSeconds;
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        long entriesPerGeneration = (long) (memoryBytes / 2 / BYTES_PER_ENTRY / segmentCount);
+        int slots = Integer.highestOneBit((int) Math.max(64, Math.min(1 << 30, entriesPerGeneration / LOAD_FACTOR)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(slots);
+        }
+    }
+
+    /**
+     * 记录一个条目
+     *
+     * @param fingerprint 条目指纹（128 位）的低 64 位
+     * @param mix         条目指纹的高 64 位（用于选段和布隆位）
+     * @return true 表示窗口内第一次出现（已记录），false 表示重复
+     */
+    public boolean add(long fingerprint, long mix, long epochSeconds) {
+        Segment segment = segments[segmentShift == 64 ? 0 : (int) (mix >>> segmentShift)];
+        return segment.add(fingerprint, mix, epochSeconds / windowSeconds);
+    }
+
+    /**
+     * 删除一个条目（当前代和上一代都会删除）
+     *
+     * @return 是否删除了条目
+     */
+    public boolean remove(long fingerprint, long mix) {
+        Segment segment = segments[segmentShift == 64 ? 0 : (int) (mix >>> segmentShift)];
+        return segment.remove(fingerprint);
+    }
+
+    /**
+     * 每一代的容量（所有段合计）
+     */
+    public long capacity() {
+        return (long) segments.length * segments[0].current.capacity;
+    }
+
+    /**
+     * 当前代已记录的条目数（所有段合计）
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.current.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 当前代写满导致的提前轮换次数
+     */
+    public long earlyRotations() {
+        return earlyRotations.get();
+    }
+
+    private final class Segment {
+
+        private Generation current;
+
+        private Generation previous;
+
+        private long bucket = Long.MIN_VALUE;
+
+        private Segment(int slots) {
+            this.current = new Generation(slots);
+            this.previous = new Generation(slots);
+        }
+
+        private synchronized boolean add(long fingerprint, long mix, long nowBucket) {
+            if (nowBucket != bucket) {
+                rotate(nowBucket);
+            }
+            if (previous.contains(fingerprint, mix) || current.contains(fingerprint, mix)) {
+                return false;
+            }
+            if (current.size >= current.capacity) {
+                // 当前代写满：提前轮换，上一代被丢弃
+                rotateOnce();
+                earlyRotations.incrementAndGet();
+            }
+            current.insert(fingerprint, mix);
+            return true;
+        }
+
+        private synchronized boolean remove(long fingerprint) {
+            boolean removedFromCurrent = current.remove(fingerprint);
+            boolean removedFromPrevious = previous.remove(fingerprint);
+            return removedFromCurrent || removedFromPrevious;
+        }
+
+        private void rotate(long nowBucket) {
+            if (nowBucket == bucket + 1) {
+                rotateOnce();
+            } else {
+                // 超过一个窗口没有流量（或时间回拨），两代都已失效
+                current.clear();
+                previous.clear();
+            }
+            bucket = nowBucket;
+        }
+
+        private void rotateOnce() {
+            Generation oldest = previous;
+            oldest.clear();
+            previous = current;
+            current = oldest;
+        }
+    }
+
+    /**
+     * 一代：寄存器分块布隆过滤器 + 64 位指纹开放寻址表（0 表示空槽）
+     */
+    private static final class Generation {
+
+        private final long[] bloom;
+
+        private final long[] table;
+
+        private final int mask;
+
+        private final int capacity;
+
+        private int size;
+
+        private Generation(int slots) {
+            this.table = new long[slots];
+            this.mask = slots - 1;
+            this.capacity = (int) (slots * LOAD_FACTOR);
+            this.bloom = new long[Math.max(1, capacity * BLOOM_BITS_PER_ENTRY / 64)];
+        }
+
+        private boolean contains(long fingerprint, long mix) {
+            if (size == 0) {
+                return false;
+            }
+            long bits = bloomBits(mix);
+            if ((bloom[bloomIndex(mix)] & bits) != bits) {
+                return false;
+            }
+            long key = nonZero(fingerprint);
+            for (int i = slotOf(key); ; i = (i + 1) & mask) {
+                long slot = table[i];
+                if (slot == key) {
+                    return true;
+                }
+                if (slot == 0) {
+                    return false;
+                }
+            }
+        }
+
+        private void insert(long fingerprint, long mix) {
+            bloom[bloomIndex(mix)] |= bloomBits(mix);
+            long key = nonZero(fingerprint);
+            int i = slotOf(key);
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            size++;
+        }
+
+        /**
+         * 线性探测的后移删除：删除后把同一探测链上后面的条目前移补位，查找不会在空槽处提前中断
+         */
+        private boolean remove(long fingerprint) {
+            if (size == 0) {
+                return false;
+            }
+            long key = nonZero(fingerprint);
+            int hole = slotOf(key);
+            while (table[hole] != key) {
+                if (table[hole] == 0) {
+                    return false;
+                }
+                hole = (hole + 1) & mask;
+            }
+            table[hole] = 0;
+            size--;
+            for (int i = (hole + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int home = slotOf(table[i]);
+                // 条目的起始槽不在 (hole, i] 区间内时，前移到空位上
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    table[hole] = table[i];
+                    table[i] = 0;
+                    hole = i;
+                }
+            }
+            return true;
+        }
+
+        private void clear() {
+            if (size > 0) {
+                Arrays.fill(table, 0);
+                Arrays.fill(bloom, 0);
+                size = 0;
+            }
+        }
+
+        private int slotOf(long key) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+
+        private int bloomIndex(long mix) {
+            return (int) ((mix & 0xFFFFFFFFL) % bloom.length);
+        }
+
+        /**
+         * 从指纹的 24 位里取 4 个 6 位的位置，落在同一个 64 位字内
+         */
+        private static long bloomBits(long mix) {
+            long bits = 0;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                bits |= 1L << ((mix >>> (32 + 6 * i)) & 63);
+            }
+            return bits;
+        }
+
+        private static long nonZero(long fingerprint) {
+            return fingerprint == 0 ? 1 : fingerprint;
+        }
+    }
+}
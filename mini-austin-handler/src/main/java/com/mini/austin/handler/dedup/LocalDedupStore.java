@@ -0,0 +1,165 @@
+package com.mini.austin.handler.dedup;
+
+import com.google.common.hash.HashCode;
+import com.mini.austin.common.codec.ContentFingerprint;
+import com.mini.austin.common.domain.TaskInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 本地去重（mini-austin.deduplication.local.enabled=true）
+ * <p>
+ * ★★★ 面试重点：去重一定要每条都访问 Redis 吗？ ★★★
+ * <p>
+ * 单节点部署，或开启接收者分片（同一接收者固定由一个节点消费）时，
+ * 某个接收者的去重状态只会被一个节点读写，完全可以放在本地内存里
+ * <p>
+ * 实现原理：
+ * 1. 先查 LocalDedupFilter：本地命中直接判为重复，不访问 Redis
+ * 2. 本地未命中（第一次见到）的接收者：
+ *    write-through=true 时再交给 Redis 存储（mode 指定的 DedupStore）确认，
+ *    覆盖分片重新分配、节点重启后本地状态为空的情况；
+ *    write-through=false 时只看本地（单节点部署），Redis 去重流量降为 0
+ * 3. Redis 确认失败（网络异常等）时退化为只用本地结果，不阻塞发送
+ * <p>
+ * 重复消息（MQ 重投、上游重复提交）通常在几秒内到达同一个节点，本地命中后不会再产生 Redis 调用；
+ * write-through 模式下 Redis 流量只剩每个（接收者, 内容）第一次出现的那一次
+ * <p>
+ * 监控指标：austin.handler.dedup.local（tag result=hit 本地命中 / remote-hit Redis 命中 / pass 通过）、
+ * austin.handler.dedup.local.size（当前代条目数）、austin.handler.dedup.local.early-rotations（写满提前轮换次数）
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class LocalDedupStore {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mini-austin.deduplication.local.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 本地去重占用的内存上限（MB）
+     */
+    @Value("${mini-austin.deduplication.local.memory-mb:64}")
+    private long memoryMb;
+
+    /**
+     * 本地未命中时是否再到 Redis 确认（多节点且未开启分片时必须为 true）
+     */
+    @Value("${mini-austin.deduplication.local.write-through:true}")
+    private boolean writeThrough;
+
+    @Value("${mini-austin.deduplication.local.segments:16}")
+    private int segments;
+
+    @Value("${mini-austin.deduplication.expire-seconds:300}")
+    private long expireSeconds;
+
+    private LocalDedupFilter filter;
+
+    private Counter hitCounter;
+
+    private Counter remoteHitCounter;
+
+    private Counter passCounter;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        filter = new LocalDedupFilter(memoryMb * 1024 * 1024, segments, expireSeconds);
+        hitCounter = resultCounter("hit");
+        remoteHitCounter = resultCounter("remote-hit");
+        passCounter = resultCounter("pass");
+        Gauge.builder("austin.handler.dedup.local.size", filter, LocalDedupFilter::size)
+                .description("本地去重当前代的条目数")
+                .register(meterRegistry);
+        FunctionCounter.builder("austin.handler.dedup.local.early-rotations", filter, LocalDedupFilter::earlyRotations)
+                .description("本地去重写满导致的提前轮换次数")
+                .register(meterRegistry);
+        log.info("本地去重初始化: memoryMb={}, capacityPerWindow={}, writeThrough={}",
+                memoryMb, filter.capacity(), writeThrough);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 先查本地，本地未命中的接收者按配置交给 Redis 存储确认
+     *
+     * @param remote Redis 去重存储
+     * @return 窗口内第一次出现的接收者
+     */
+    public Set<String> claim(TaskInfo taskInfo, List<String> receivers, DedupStore remote) {
+        String contentHash = ContentFingerprint.of(taskInfo);
+        long now = System.currentTimeMillis() / 1000;
+
+        List<String> localMisses = new ArrayList<>(receivers.size());
+        for (String receiver : receivers) {
+            HashCode hash = DedupEntries.hash(taskInfo, receiver, contentHash);
+            ByteBuffer buffer = ByteBuffer.wrap(hash.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            if (filter.add(buffer.getLong(), buffer.getLong(), now)) {
+                localMisses.add(receiver);
+            }
+        }
+        hitCounter.increment(receivers.size() - localMisses.size());
+
+        if (!writeThrough || localMisses.isEmpty()) {
+            passCounter.increment(localMisses.size());
+            return new HashSet<>(localMisses);
+        }
+
+        Set<String> result;
+        try {
+            result = remote.claim(taskInfo, localMisses);
+        } catch (Exception e) {
+            log.warn("Redis 去重确认失败，仅使用本地结果: messageId={}, receivers={}",
+                    taskInfo.getMessageId(), localMisses.size(), e);
+            result = new HashSet<>(localMisses);
+        }
+        remoteHitCounter.increment(localMisses.size() - result.size());
+        passCounter.increment(result.size());
+        return result;
+    }
+
+    /**
+     * 释放接收者的本地记录；write-through 模式下同时释放 Redis 存储中的记录
+     */
+    public void release(TaskInfo taskInfo, List<String> receivers, DedupStore remote) {
+        String contentHash = ContentFingerprint.of(taskInfo);
+        for (String receiver : receivers) {
+            HashCode hash = DedupEntries.hash(taskInfo, receiver, contentHash);
+            ByteBuffer buffer = ByteBuffer.wrap(hash.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            filter.remove(buffer.getLong(), buffer.getLong());
+        }
+        if (writeThrough) {
+            remote.release(taskInfo, receivers);
+        }
+    }
+
+    private Counter resultCounter(String result) {
+        return Counter.builder("austin.handler.dedup.local")
+                .description("本地去重检查结果")
+                .tags("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,199 @@
+package com.mini.austin.handler.executor;
+
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.handler.config.BulkheadProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 渠道舱壁（每个渠道独立的线程池）
+ * <p>
+ * ★★★ 面试重点：舱壁隔离 ★★★
+ * <p>
+ * 所有渠道共用一个线程池时，SMTP 服务器一慢，邮件任务就占满线程和队列，
+ * 对时效性要求很高的短信验证码也只能排队等待
+ * <p>
+ * 实现原理（mini-austin.bulkhead.enabled=true）：
+ * 1. 每个配置了的渠道一个独立线程池：独立的并发上限、队列容量和拒绝策略
+ * 2. ConsumeServiceImpl 按 sendChannel 路由，未配置的渠道仍走共享执行器
+ * 3. 开启优先级通道时，每个舱壁内部再按通道加权调度（WeightedLaneQueue）
+ * 4. 拒绝策略：
+ *    - caller-runs：监听线程直接执行（与原行为一致）
+ *    - abort：直接拒绝，批量消费模式下消息会被 nack 重新投递
+ *    - block：监听线程阻塞等待队列空位
+ * <p>
+ * 监控指标（tag: name=bulkhead-渠道名, channel=渠道名）：
+ * executor.queued（队列深度）、executor.active（活跃线程数）、
+ * austin.handler.bulkhead.wait（排队等待时间）、austin.handler.bulkhead.rejected（拒绝次数）
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class ChannelBulkheads {
+
+    private static final String REJECTION_ABORT = "abort";
+
+    private static final String REJECTION_BLOCK = "block";
+
+    @Autowired
+    private BulkheadProperties bulkheadProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mini-austin.mq.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    @Value("${mini-austin.mq.lanes.high-weight:9}")
+    private int highWeight;
+
+    @Value("${mini-austin.mq.lanes.low-weight:1}")
+    private int lowWeight;
+
+    /**
+     * 渠道编码 -> 舱壁执行器（已包装等待时间监控）
+     */
+    private final Map<Integer, Executor> executors = new HashMap<>(8);
+
+    private final List<ThreadPoolExecutor> pools = new ArrayList<>();
+
+    /**
+     * 渠道编码 -> 舱壁配置（线程数和队列容量，信用反压按它们计算各舱壁的信用）
+     */
+    private final Map<Integer, BulkheadProperties.Spec> specs = new HashMap<>(8);
+
+    @PostConstruct
+    public void init() {
+        if (!bulkheadProperties.isEnabled()) {
+            return;
+        }
+
+        for (Map.Entry<String, BulkheadProperties.Spec> entry : bulkheadProperties.getChannels().entrySet()) {
+            ChannelType channelType = ChannelType.valueOf(entry.getKey().toUpperCase());
+            String channelName = channelType.name().toLowerCase();
+            BulkheadProperties.Spec spec = entry.getValue();
+
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    spec.getCoreSize(),
+                    spec.getMaxSize(),
+                    60,
+                    TimeUnit.SECONDS,
+                    newWorkQueue(spec.getQueueCapacity()),
+                    r -> new Thread(r, "bulkhead-" + channelName + "-" + r.hashCode()),
+                    rejectionHandler(channelName, spec.getRejection())
+            );
+            pools.add(pool);
+            new ExecutorServiceMetrics(pool, "bulkhead-" + channelName, Tags.of("channel", channelName))
+                    .bindTo(meterRegistry);
+            executors.put(channelType.getCode(), timed(pool, channelName));
+            specs.put(channelType.getCode(), spec);
+
+            log.info("渠道舱壁初始化: channel={}, core={}, max={}, queue={}, rejection={}",
+                    channelName, spec.getCoreSize(), spec.getMaxSize(), spec.getQueueCapacity(), spec.getRejection());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pools.forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    /**
+     * 按渠道路由
+     *
+     * @return 渠道未配置舱壁（或未启用）时返回 null
+     */
+    public Executor route(Integer sendChannel) {
+        return sendChannel == null ? null : executors.get(sendChannel);
+    }
+
+    /**
+     * 各舱壁的配置（容量 = 最大线程数 + 队列容量；开启优先级通道时队列容量按通道计，线程由各通道共享）
+     *
+     * @return 渠道编码 -> 舱壁配置，未启用时为空
+     */
+    public Map<Integer, BulkheadProperties.Spec> getSpecs() {
+        return Collections.unmodifiableMap(specs);
+    }
+
+    public boolean isEnabled() {
+        return !executors.isEmpty();
+    }
+
+    private BlockingQueue<Runnable> newWorkQueue(int capacity) {
+        return lanesEnabled ? new WeightedLaneQueue(capacity, highWeight, lowWeight) : new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 包装执行器：记录任务从提交到开始执行的等待时间（保留任务的优先级通道）
+     */
+    private Executor timed(ThreadPoolExecutor pool, String channelName) {
+        Timer waitTimer = Timer.builder("austin.handler.bulkhead.wait")
+                .description("任务在舱壁队列中的等待时间")
+                .tags("channel", channelName)
+                .register(meterRegistry);
+        return task -> {
+            long submittedAt = System.nanoTime();
+            pool.execute(LaneTask.rewrap(task, () -> {
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                task.run();
+            }));
+        };
+    }
+
+    private RejectedExecutionHandler rejectionHandler(String channelName, String rejection) {
+        Counter rejected = Counter.builder("austin.handler.bulkhead.rejected")
+                .description("舱壁队列已满被拒绝（或回退/阻塞）的任务数")
+                .tags("channel", channelName, "policy", rejection)
+                .register(meterRegistry);
+
+        if (REJECTION_ABORT.equals(rejection)) {
+            return (r, executor) -> {
+                rejected.increment();
+                throw new RejectedExecutionException("渠道舱壁已满: channel=" + channelName);
+            };
+        }
+        if (REJECTION_BLOCK.equals(rejection)) {
+            return (r, executor) -> {
+                rejected.increment();
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("渠道舱壁已关闭: channel=" + channelName);
+                }
+                try {
+                    executor.getQueue().put(r);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("等待舱壁队列时被中断: channel=" + channelName, e);
+                }
+            };
+        }
+        ThreadPoolExecutor.CallerRunsPolicy callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+        return (r, executor) -> {
+            rejected.increment();
+            callerRuns.rejectedExecution(r, executor);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.mini.austin.handler.executor;
+
+import com.mini.austin.common.enums.MessageLane;
+
+/**
+ * 带优先级通道的任务，供 WeightedLaneQueue 分通道排队
+ *
+ * @author mini-austin
+ */
+public final class LaneTask implements Runnable {
+
+    private final MessageLane lane;
+
+    private final Runnable delegate;
+
+    public LaneTask(MessageLane lane, Runnable delegate) {
+        this.lane = lane;
+        this.delegate = delegate;
+    }
+
+    /**
+     * 包装任务时保留原任务的通道
+     */
+    public static Runnable rewrap(Runnable original, Runnable wrapped) {
+        return original instanceof LaneTask ? new LaneTask(((LaneTask) original).lane, wrapped) : wrapped;
+    }
+
+    /**
+     * 获取任务所属通道，普通任务视为高优先级
+     */
+    public static MessageLane laneOf(Object task) {
+        return task instanceof LaneTask ? ((LaneTask) task).lane : MessageLane.HIGH;
+    }
+
+    @Override
+    public void run() {
+        delegate.run();
+    }
+}
@@ -0,0 +1,306 @@
+package com.mini.austin.handler.executor;
+
+import com.mini.austin.common.enums.MessageLane;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按优先级通道加权调度的阻塞队列（作为 ThreadPoolExecutor 的任务队列）
+ * <p>
+ * ★★★ 面试重点：优先级调度如何避免低优先级饿死？ ★★★
+ * <p>
+ * 1. 每个通道一个独立的有界 FIFO 队列，营销任务堆满自己的队列也不会占用通知的队列容量
+ * 2. 取任务时使用平滑加权轮询（Smooth Weighted Round Robin，Nginx 同款）：
+ *    只在非空通道之间分配，权重 9:1 时两个通道都积压的情况下每 10 个任务中 1 个来自低优先级通道，
+ *    高优先级总是优先拿到处理能力，低优先级也不会完全饿死；只有一个通道有任务时独占全部线程
+ * 3. 任务通道由 LaneTask 标记，普通 Runnable 视为高优先级
+ *
+ * @author mini-austin
+ */
+public class WeightedLaneQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final ArrayDeque<Runnable>[] lanes;
+
+    private final int[] weights;
+
+    /**
+     * 平滑加权轮询的当前权重
+     */
+    private final int[] currentWeights;
+
+    private final int capacityPerLane;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private int count;
+
+    /**
+     * @param capacityPerLane 每个通道的队列容量
+     * @param weights         各通道权重，下标为 MessageLane.ordinal()
+     */
+    @SuppressWarnings("unchecked")
+    public WeightedLaneQueue(int capacityPerLane, int... weights) {
+        int laneCount = MessageLane.values().length;
+        if (weights.length != laneCount) {
+            throw new IllegalArgumentException("权重数量必须等于通道数量: " + laneCount);
+        }
+        this.capacityPerLane = capacityPerLane;
+        this.weights = weights.clone();
+        this.currentWeights = new int[laneCount];
+        this.lanes = new ArrayDeque[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * 指定通道当前排队的任务数
+     */
+    public int size(MessageLane lane) {
+        lock.lock();
+        try {
+            return lanes[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        ArrayDeque<Runnable> lane = lanes[LaneTask.laneOf(task).ordinal()];
+        lock.lock();
+        try {
+            if (lane.size() >= capacityPerLane) {
+                return false;
+            }
+            enqueue(lane, task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        ArrayDeque<Runnable> lane = lanes[LaneTask.laneOf(task).ordinal()];
+        lock.lockInterruptibly();
+        try {
+            while (lane.size() >= capacityPerLane) {
+                notFull.await();
+            }
+            enqueue(lane, task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        ArrayDeque<Runnable> lane = lanes[LaneTask.laneOf(task).ordinal()];
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (lane.size() >= capacityPerLane) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(lane, task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            for (ArrayDeque<Runnable> lane : lanes) {
+                if (!lane.isEmpty()) {
+                    return lane.peekFirst();
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacityPerLane * lanes.length - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            for (ArrayDeque<Runnable> lane : lanes) {
+                if (lane.remove(o)) {
+                    count--;
+                    notFull.signalAll();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (count > 0 && drained < maxElements) {
+                c.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回快照迭代器，remove 会作用到队列本身
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (ArrayDeque<Runnable> lane : lanes) {
+                snapshot.addAll(lane);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Iterator<Runnable> it = snapshot.iterator();
+        return new Iterator<Runnable>() {
+
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                WeightedLaneQueue.this.remove(last);
+            }
+        };
+    }
+
+    private void enqueue(ArrayDeque<Runnable> lane, Runnable task) {
+        lane.addLast(task);
+        count++;
+        notEmpty.signal();
+    }
+
+    /**
+     * 平滑加权轮询选出通道并取出队首任务（调用方持有锁且 count > 0）
+     */
+    private Runnable dequeue() {
+        int total = 0;
+        int best = -1;
+        for (int i = 0; i < lanes.length; i++) {
+            if (lanes[i].isEmpty()) {
+                continue;
+            }
+            currentWeights[i] += weights[i];
+            total += weights[i];
+            if (best < 0 || currentWeights[i] > currentWeights[best]) {
+                best = i;
+            }
+        }
+        currentWeights[best] -= total;
+        count--;
+        notFull.signalAll();
+        return lanes[best].pollFirst();
+    }
+}
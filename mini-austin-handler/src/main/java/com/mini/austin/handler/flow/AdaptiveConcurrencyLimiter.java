@@ -0,0 +1,165 @@
+package com.mini.austin.handler.flow;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制器（梯度算法，参考 Netflix concurrency-limits 的 Gradient / TCP Vegas）
+ * <p>
+ * ★★★ 面试重点：下游延迟忽高忽低，并发数该设多少？ ★★★
+ * <p>
+ * 固定并发数的问题：设小了下游空闲时吞吐上不去，设大了下游变慢时请求全堆在下游排队，
+ * 延迟越来越高、超时越来越多
+ * <p>
+ * 实现原理（Little 定律：并发数 = 吞吐 × 延迟）：
+ * 1. 基线延迟 minRtt：最近一个窗口内的最小延迟，近似下游没有排队时的处理时间；
+ *    当前延迟 shortRtt：最近若干次发送的指数移动平均
+ * 2. 梯度 = tolerance × minRtt / shortRtt，截断到 [0.5, 1]：
+ *    短期延迟没有明显高于基线时梯度为 1，限制 = 限制 + queueSize，缓慢增长；
+ *    短期延迟升高说明请求开始在下游排队，梯度 < 1，限制按比例收缩
+ * 3. 发送失败视为过载信号，限制直接乘以 0.9（乘性减）
+ * 4. 只有在途请求数达到限制的一半以上时才允许增长，避免流量低谷时限制虚高
+ * 5. 基线每个窗口（30 秒）重新测量一次：下游一天中延迟变化可达 10 倍，
+ *    基线固定不变的话，下游整体变慢后限制会一直被压在最小值
+ * <p>
+ * 获取不到许可时阻塞等待，让压力回到线程池队列，再由消费信用门暂停从 MQ 取消息
+ *
+ * @author mini-austin
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 基线延迟的测量窗口
+     */
+    private static final long BASELINE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * 短期延迟的平滑窗口（样本数）
+     */
+    private static final int SHORT_WINDOW = 10;
+
+    /**
+     * 限制的平滑系数，避免单个样本让限制剧烈抖动
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    /**
+     * 延迟容忍度：短期延迟超过基线的 tolerance 倍才开始收缩
+     */
+    private final double tolerance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+
+    private int inFlight;
+
+    private long minRtt = Long.MAX_VALUE;
+
+    private long windowMinRtt = Long.MAX_VALUE;
+
+    private long windowStart = System.nanoTime();
+
+    private double shortRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * 获取一个许可，超时返回 false
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = available.awaitNanos(nanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还许可并根据本次的延迟和结果调整限制
+     *
+     * @param rttNanos 本次调用耗时
+     * @param success  是否成功
+     */
+    public void release(long rttNanos, boolean success) {
+        lock.lock();
+        try {
+            // 调整前的在途数（包含本次）用于判断限制是否被用满
+            int observedInFlight = inFlight;
+            inFlight--;
+            if (success) {
+                onSuccess(rttNanos, observedInFlight);
+            } else {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long rttNanos, int observedInFlight) {
+        minRtt = Math.min(minRtt, rttNanos);
+        windowMinRtt = Math.min(windowMinRtt, rttNanos);
+        long now = System.nanoTime();
+        if (now - windowStart > BASELINE_WINDOW_NANOS) {
+            // 用上一个窗口的最小值作为新基线
+            minRtt = windowMinRtt;
+            windowMinRtt = Long.MAX_VALUE;
+            windowStart = now;
+        }
+        shortRtt = shortRtt == 0 ? rttNanos : shortRtt + (rttNanos - shortRtt) / SHORT_WINDOW;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * minRtt / shortRtt));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+
+        // 流量不足以用满限制时只收缩不增长
+        if (newLimit > limit && observedInFlight < limit / 2) {
+            return;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,107 @@
+package com.mini.austin.handler.flow;
+
+import com.mini.austin.common.enums.ChannelType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 渠道并发限制器（每个渠道一个 AdaptiveConcurrencyLimiter）
+ * <p>
+ * 由 BaseHandler 在调用具体渠道发送前后使用（mini-austin.concurrency-limit.enabled=true）：
+ * 发送前获取许可，发送后按耗时和结果调整该渠道的并发上限
+ * <p>
+ * 监控指标（tag: channel=渠道名）：
+ * austin.handler.concurrency.limit（当前并发上限）、austin.handler.concurrency.in-flight（在途发送数）、
+ * austin.handler.concurrency.timeout（等待许可超时次数）
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class ChannelConcurrencyLimiters {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mini-austin.concurrency-limit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mini-austin.concurrency-limit.initial-limit:4}")
+    private int initialLimit;
+
+    @Value("${mini-austin.concurrency-limit.min-limit:1}")
+    private int minLimit;
+
+    @Value("${mini-austin.concurrency-limit.max-limit:64}")
+    private int maxLimit;
+
+    /**
+     * 延迟容忍度：短期延迟超过基线的多少倍开始收缩
+     */
+    @Value("${mini-austin.concurrency-limit.tolerance:1.5}")
+    private double tolerance;
+
+    /**
+     * 等待许可的超时时间（毫秒），超时视为发送失败（交给重试）
+     * <p>
+     * 等待期间占用着责任链线程，应远小于一次发送的正常耗时 × 排队深度，避免线程池被等待许可的任务占满
+     */
+    @Value("${mini-austin.concurrency-limit.acquire-timeout-ms:500}")
+    private long acquireTimeoutMs;
+
+    private final Map<Integer, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>(8);
+
+    private final Map<Integer, Counter> timeoutCounters = new ConcurrentHashMap<>(8);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取渠道的并发许可（仅启用时调用）
+     *
+     * @return 已获取许可的限制器（调用方必须 release）；等待超时返回 null
+     */
+    public AdaptiveConcurrencyLimiter tryAcquire(Integer channelCode) throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiters.computeIfAbsent(channelCode, this::create);
+        if (!limiter.acquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            timeoutCounters.get(channelCode).increment();
+            log.warn("等待渠道并发许可超时: channel={}, limit={}, timeoutMs={}",
+                    channelCode, limiter.getLimit(), acquireTimeoutMs);
+            return null;
+        }
+        return limiter;
+    }
+
+    private AdaptiveConcurrencyLimiter create(Integer channelCode) {
+        ChannelType channelType = ChannelType.getByCode(channelCode);
+        String channelName = channelType == null ? String.valueOf(channelCode) : channelType.name().toLowerCase();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance);
+
+        Gauge.builder("austin.handler.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("渠道当前的自适应并发上限")
+                .tags("channel", channelName)
+                .register(meterRegistry);
+        Gauge.builder("austin.handler.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("渠道在途发送数")
+                .tags("channel", channelName)
+                .register(meterRegistry);
+        timeoutCounters.put(channelCode, Counter.builder("austin.handler.concurrency.timeout")
+                .description("等待渠道并发许可超时次数")
+                .tags("channel", channelName)
+                .register(meterRegistry));
+
+        log.info("渠道并发限制器初始化: channel={}, initial={}, min={}, max={}, tolerance={}",
+                channelName, initialLimit, minLimit, maxLimit, tolerance);
+        return limiter;
+    }
+}
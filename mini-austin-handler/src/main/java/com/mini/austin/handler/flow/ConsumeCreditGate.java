@@ -0,0 +1,427 @@
+package com.mini.austin.handler.flow;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.common.enums.MessageLane;
+import com.mini.austin.handler.config.BulkheadProperties;
+import com.mini.austin.handler.executor.BoundedVirtualThreadExecutor;
+import com.mini.austin.handler.executor.ChannelBulkheads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 消费信用门（基于信用的反压）
+ * <p>
+ * ★★★ 面试重点：线程池满了，MQ 消费端怎么办？ ★★★
+ * <p>
+ * CallerRunsPolicy 的问题：线程池饱和时由 AMQP 监听线程自己执行整条责任链（包括 SMTP 发送），
+ * 监听线程被卡住，prefetch 缓冲区里的消息既不处理也不释放，消费速度忽快忽慢
+ * <p>
+ * 实现原理（mini-austin.flow-control.mode=credit）：
+ * 1. 每个执行器一个信用池：共享执行器的信用数 = 线程池最大线程数 + 队列容量（虚拟线程模式下为最大在途任务数），
+ *    启用渠道舱壁时每个舱壁另有一个信用池，信用数 = 该舱壁的最大线程数 + 队列容量；
+ *    每个任务占用所在执行器的一个信用，任务结束归还。
+ *    信用不超过对应执行器的容量，任务永远不会被拒绝，也就不会回退到监听线程执行
+ *    （只算总数不够：总数有余量时，某个舱壁仍可能已满）
+ * 2. 开启优先级通道时，每个执行器再按通道拆成独立的信用池，信用分两部分：
+ *    该通道独享的队列信用（= 该通道的队列容量），和同一执行器各通道共享的线程信用（= 最大线程数，只发放一次）。
+ *    预留时先取空闲的线程信用，不足部分再取本通道的队列信用；归还时先还队列信用，再还线程信用。
+ *    所有通道的信用总和 = 最大线程数 + 通道数 × 队列容量，正好是执行器的真实容量
+ *    （每个通道各给"最大线程数 + 队列容量"的话，线程被重复计算了一次，满载时任务会溢出到拒绝策略）。
+ *    营销洪峰只会耗尽 low 通道的队列信用和共享的线程信用，.high 通道仍有自己完整的队列信用，
+ *    只暂停 .low 队列的容器，.high 队列照常取消息。
+ *    线程分给哪个通道由加权调度决定，与线程信用的归属不一定一致，本通道队列已满、线程又全被另一个通道占用时
+ *    任务仍可能溢出到拒绝策略；加权调度下高优先级通道几乎总能拿到线程，这种情况只会出现在低优先级通道上
+ *    （虚拟线程模式没有队列，不按通道拆分）
+ * 3. 一条 MQ 消息最多包含 200 个 TaskInfo（Web 端 chunk-size），信用在分发前按消息一次性预留：
+ *    逐个任务获取时，监听线程可能在一条消息分发到一半时阻塞，而暂停判断也要等到信用几乎耗尽才触发；
+ *    一次预留整条消息（超过信用池大小时按信用池大小分段预留）后再分发，暂停判断看到的是真实的占用
+ * 4. 某个信用池的可用信用降到 pause-threshold 以下时暂停消费：不再从 Broker 取消息，
+ *    prefetch 中未处理的消息退回 Broker，其他消费者节点可以接手。
+ *    通道专属队列（.high / .low）的容器只在本通道的信用池不足时停止；
+ *    混合了各通道消息的容器（原队列、分片队列）在任一信用池不足时停止
+ * 5. 信用池恢复到 resume-threshold 以上时，重新启动不再需要暂停的容器；
+ *    停机排空（PipelineDrainer.stop）开始后不再启动任何容器，排空期间归还信用不会把容器拉起来
+ * 6. 容器启停在独立线程执行，避免监听线程等待自己停止；启停任务按执行时的最新状态决定启动还是停止，
+ *    暂停 / 恢复交替发生时不会因提交顺序错乱而停在错误的状态
+ * <p>
+ * 监控指标：austin.consume.credit.available（tag pool=shared / bulkhead-渠道名，开启通道时加 .high / .low 后缀）、
+ * austin.consume.paused、austin.consume.pause.count
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class ConsumeCreditGate {
+
+    private static final String MODE_CREDIT = "credit";
+
+    private static final String SHARED_POOL = "shared";
+
+    /**
+     * 优先级通道专属队列的监听容器 ID（见 RabbitMqReceiver / BatchRabbitMqReceiver）
+     */
+    public static final String HIGH_LANE_LISTENER_ID = "austin-lane-high-listener";
+
+    public static final String LOW_LANE_LISTENER_ID = "austin-lane-low-listener";
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerEndpointRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Executor pipelineExecutor;
+
+    @Autowired
+    private ChannelBulkheads channelBulkheads;
+
+    @Autowired
+    private PipelineDrainer pipelineDrainer;
+
+    /**
+     * 流控模式：none（CallerRunsPolicy）/ credit（信用反压）
+     */
+    @Value("${mini-austin.flow-control.mode:none}")
+    private String mode;
+
+    @Value("${mini-austin.thread-pool.max-size:8}")
+    private int maxPoolSize;
+
+    @Value("${mini-austin.thread-pool.queue-capacity:128}")
+    private int queueCapacity;
+
+    @Value("${mini-austin.mq.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    /**
+     * 可用信用低于该比例时暂停消费
+     */
+    @Value("${mini-austin.flow-control.pause-ratio:0.1}")
+    private double pauseRatio;
+
+    /**
+     * 可用信用恢复到该比例时恢复消费
+     */
+    @Value("${mini-austin.flow-control.resume-ratio:0.5}")
+    private double resumeRatio;
+
+    /**
+     * 共享执行器（未配置舱壁的渠道）的信用池，下标为 MessageLane.ordinal()（不按通道拆分时各下标是同一个池）
+     */
+    private CreditPool[] sharedPools;
+
+    /**
+     * 渠道编码 -> 舱壁的信用池
+     */
+    private final Map<Integer, CreditPool[]> bulkheadPools = new HashMap<>(8);
+
+    /**
+     * 池名 -> 信用池
+     */
+    private final Map<String, CreditPool> pools = new LinkedHashMap<>();
+
+    /**
+     * 可用信用低于暂停阈值的信用池数，大于 0 时（至少部分容器）暂停消费
+     */
+    private final AtomicInteger lowPools = new AtomicInteger();
+
+    private ExecutorService controlExecutor;
+
+    private Counter pauseCounter;
+
+    @PostConstruct
+    public void init() {
+        if (pipelineExecutor instanceof BoundedVirtualThreadExecutor) {
+            sharedPools = newPools(SHARED_POOL, ((BoundedVirtualThreadExecutor) pipelineExecutor).getMaxInFlight(), 0, false);
+        } else {
+            sharedPools = newPools(SHARED_POOL, maxPoolSize, queueCapacity, lanesEnabled);
+        }
+        for (Map.Entry<Integer, BulkheadProperties.Spec> entry : channelBulkheads.getSpecs().entrySet()) {
+            String name = "bulkhead-" + ChannelType.getByCode(entry.getKey()).name().toLowerCase();
+            BulkheadProperties.Spec spec = entry.getValue();
+            bulkheadPools.put(entry.getKey(), newPools(name, spec.getMaxSize(), spec.getQueueCapacity(), lanesEnabled));
+        }
+
+        controlExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "consume-credit-gate");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("austin.consume.paused", lowPools, p -> p.get() > 0 ? 1 : 0)
+                .description("监听容器是否因信用耗尽而暂停")
+                .register(meterRegistry);
+        pauseCounter = Counter.builder("austin.consume.pause.count")
+                .description("信用耗尽导致暂停消费的次数")
+                .register(meterRegistry);
+
+        StringBuilder summary = new StringBuilder();
+        pools.values().forEach(pool -> summary.append(pool.name).append('=').append(pool.credits - pool.threads)
+                .append(pool.threadCredits == null ? "" : "+" + pool.threads + "(shared)").append(' '));
+        log.info("消费流控: mode={}, pools=[{}], pauseRatio={}, resumeRatio={}",
+                mode, summary.toString().trim(), pauseRatio, resumeRatio);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        controlExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return MODE_CREDIT.equals(mode);
+    }
+
+    /**
+     * 任务所在的信用池（由渠道决定执行器，开启优先级通道时再由消息类型决定通道）
+     *
+     * @return 池名，用于 getCredits / acquire / release
+     */
+    public String poolOf(TaskInfo taskInfo) {
+        CreditPool[] executorPools = taskInfo.getSendChannel() == null ? null : bulkheadPools.get(taskInfo.getSendChannel());
+        if (executorPools == null) {
+            executorPools = sharedPools;
+        }
+        return executorPools[MessageLane.of(taskInfo.getMsgType()).ordinal()].name;
+    }
+
+    /**
+     * 信用池的信用数（一次预留的上限；按通道拆分时包括与其他通道共享的线程信用）
+     */
+    public int getCredits(String pool) {
+        return pools.get(pool).credits;
+    }
+
+    /**
+     * 分发前为同一信用池的任务预留信用，信用不足时阻塞监听线程（对应的容器此时已在停止中）
+     *
+     * @param permits 任务数，不超过 getCredits(pool)
+     */
+    public void acquire(String pool, int permits) throws InterruptedException {
+        CreditPool creditPool = pools.get(pool);
+        creditPool.acquire(permits);
+        // 共享线程信用被占用时，同一执行器其他通道的可用信用也跟着减少
+        for (CreditPool executorPool : creditPool.executorPools) {
+            if (executorPool.available() <= executorPool.pauseThreshold && executorPool.low.compareAndSet(false, true)) {
+                lowPools.incrementAndGet();
+                pauseCounter.increment();
+                log.warn("处理线程池饱和，暂停消费: pool={}, available={}/{}",
+                        executorPool.name, executorPool.available(), executorPool.credits);
+                controlExecutor.execute(this::applyPauseState);
+            }
+        }
+    }
+
+    /**
+     * 任务结束后归还信用
+     */
+    public void release(String pool) {
+        CreditPool creditPool = pools.get(pool);
+        creditPool.release();
+        for (CreditPool executorPool : creditPool.executorPools) {
+            if (executorPool.available() >= executorPool.resumeThreshold && executorPool.low.compareAndSet(true, false)) {
+                lowPools.decrementAndGet();
+                log.info("处理线程池恢复，继续消费: pool={}, available={}/{}",
+                        executorPool.name, executorPool.available(), executorPool.credits);
+                controlExecutor.execute(this::applyPauseState);
+            }
+        }
+    }
+
+    /**
+     * 创建一个执行器的信用池
+     *
+     * @param threads 最大线程数（虚拟线程模式为最大在途任务数）
+     * @param queue   队列容量（开启优先级通道时为每个通道的容量）
+     * @param perLane 是否按优先级通道拆分：拆分时每个通道独享 queue 个信用，threads 个线程信用由各通道共享
+     */
+    private CreditPool[] newPools(String name, int threads, int queue, boolean perLane) {
+        CreditPool[] executorPools = new CreditPool[MessageLane.values().length];
+        if (!perLane) {
+            CreditPool pool = new CreditPool(name, null, threads + queue, null);
+            pool.executorPools = new CreditPool[]{pool};
+            Arrays.fill(executorPools, pool);
+            return executorPools;
+        }
+        Semaphore threadCredits = new Semaphore(threads);
+        for (MessageLane lane : MessageLane.values()) {
+            executorPools[lane.ordinal()] = new CreditPool(lane.resolve(name), lane, queue, threadCredits);
+        }
+        for (CreditPool pool : executorPools) {
+            pool.executorPools = executorPools;
+        }
+        return executorPools;
+    }
+
+    /**
+     * 按当前状态启停容器：通道专属的容器只看本通道，混合容器看全部
+     */
+    private void applyPauseState() {
+        boolean anyLow = false;
+        Set<MessageLane> lowLanes = EnumSet.noneOf(MessageLane.class);
+        for (CreditPool pool : pools.values()) {
+            if (pool.low.get()) {
+                anyLow = true;
+                if (pool.lane == null) {
+                    lowLanes.addAll(EnumSet.allOf(MessageLane.class));
+                } else {
+                    lowLanes.add(pool.lane);
+                }
+            }
+        }
+
+        for (String listenerId : listenerEndpointRegistry.getListenerContainerIds()) {
+            MessageListenerContainer container = listenerEndpointRegistry.getListenerContainer(listenerId);
+            MessageLane lane = laneOf(listenerId);
+            boolean pause = lane == null ? anyLow : lowLanes.contains(lane);
+            if (pause && container.isRunning()) {
+                container.stop();
+            } else if (!pause && container.isAutoStartup() && !container.isRunning() && !pipelineDrainer.isStopping()) {
+                // 未开启自动启动的容器（如未启用的优先级通道）保持停止；停机排空开始后不再恢复
+                container.start();
+                if (pipelineDrainer.isStopping()) {
+                    // 启动期间排空开始，停机流程可能已经跳过了这个容器
+                    container.stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * 通道专属队列的容器返回该通道，其他容器（原队列、分片队列）返回 null
+     */
+    private static MessageLane laneOf(String listenerId) {
+        if (HIGH_LANE_LISTENER_ID.equals(listenerId)) {
+            return MessageLane.HIGH;
+        }
+        return LOW_LANE_LISTENER_ID.equals(listenerId) ? MessageLane.LOW : null;
+    }
+
+    /**
+     * 单个执行器（或执行器中的单个通道）的信用池
+     */
+    private final class CreditPool {
+
+        private final String name;
+
+        /**
+         * 所属通道，不按通道拆分时为 null
+         */
+        private final MessageLane lane;
+
+        /**
+         * 信用数：独享信用 + 共享的线程信用
+         */
+        private final int credits;
+
+        private final int pauseThreshold;
+
+        private final int resumeThreshold;
+
+        /**
+         * 独享信用（按通道拆分时为该通道的队列容量，否则为执行器的全部容量）
+         */
+        private final Semaphore semaphore;
+
+        /**
+         * 同一执行器各通道共享的线程信用，不按通道拆分时为 null
+         */
+        private final Semaphore threadCredits;
+
+        /**
+         * 共享的线程信用总数，不按通道拆分时为 0
+         */
+        private final int threads;
+
+        /**
+         * 本池当前占用的独享信用数，归还时先还这部分，其余还给共享的线程信用
+         */
+        private final AtomicInteger heldOwn = new AtomicInteger();
+
+        /**
+         * 同一执行器的全部信用池（共享线程信用，一个池的预留和归还会改变其他池的可用信用）
+         */
+        private CreditPool[] executorPools;
+
+        private final AtomicBoolean low = new AtomicBoolean(false);
+
+        private CreditPool(String name, MessageLane lane, int ownCredits, Semaphore threadCredits) {
+            this.name = name;
+            this.lane = lane;
+            this.threadCredits = threadCredits;
+            this.threads = threadCredits == null ? 0 : threadCredits.availablePermits();
+            this.credits = ownCredits + threads;
+            this.pauseThreshold = (int) (credits * pauseRatio);
+            this.resumeThreshold = Math.max((int) (credits * resumeRatio), pauseThreshold + 1);
+            this.semaphore = new Semaphore(ownCredits);
+            pools.put(name, this);
+            Gauge.builder("austin.consume.credit.available", this, CreditPool::available)
+                    .description("消费端剩余信用数")
+                    .tags("pool", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 本池可用的信用：剩余独享信用 + 剩余共享线程信用
+         */
+        private int available() {
+            return semaphore.availablePermits() + (threadCredits == null ? 0 : threadCredits.availablePermits());
+        }
+
+        /**
+         * 先取空闲的线程信用，不足部分阻塞等待独享信用
+         */
+        private void acquire(int permits) throws InterruptedException {
+            int borrowed = 0;
+            if (threadCredits != null) {
+                borrowed = Math.min(permits, threadCredits.availablePermits());
+                while (borrowed > 0 && !threadCredits.tryAcquire(borrowed)) {
+                    borrowed = Math.min(borrowed, threadCredits.availablePermits());
+                }
+            }
+            try {
+                semaphore.acquire(permits - borrowed);
+            } catch (InterruptedException e) {
+                if (borrowed > 0) {
+                    threadCredits.release(borrowed);
+                }
+                throw e;
+            }
+            heldOwn.addAndGet(permits - borrowed);
+        }
+
+        /**
+         * 先还独享信用（唤醒等待本通道信用的监听线程），再还线程信用
+         */
+        private void release() {
+            if (heldOwn.getAndUpdate(held -> held > 0 ? held - 1 : 0) > 0 || threadCredits == null) {
+                semaphore.release();
+                return;
+            }
+            threadCredits.release();
+        }
+    }
+}
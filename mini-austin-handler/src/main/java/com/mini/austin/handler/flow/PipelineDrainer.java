@@ -0,0 +1,321 @@
+package com.mini.austin.handler.flow;
+
+import com.google.common.collect.Lists;
+import com.mini.austin.common.codec.TaskInfoBinaryCodec;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.handler.receiver.TaskRoutingKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 责任链优雅停机（排空在途任务）
+ * <p>
+ * ★★★ 面试重点：滚动发布时，线程池队列里的消息怎么办？ ★★★
+ * <p>
+ * 自动 ack 模式下，监听线程把任务提交到线程池就返回了，消息在 Broker 上已经删除；
+ * 直接停机的话，线程池队列里还没执行的任务全部丢失，只能把队列容量设得很小，吞吐也跟着受限
+ * <p>
+ * 实现原理（SmartLifecycle，阶段高于监听容器：在容器停止之前开始，由本组件停止容器，再在线程池和连接关闭之前排空）：
+ * 1. ConsumeServiceImpl 提交每个任务前先登记一张 Ticket，任务开始执行时认领（CAS），之后正常执行
+ * 2. 停机时先置 stopping 标记（ConsumeCreditGate 不再恢复容器），再停止所有监听容器，不再从 Broker 取新消息
+ * 3. 在 drain-timeout 内等待已提交的任务全部执行完（排空）
+ * 4. 超时后认领所有还没开始执行的任务（认领成功的任务不会再执行），
+ *    按原路由键（分片 / 优先级通道 / 默认，见 TaskRoutingKeys）分组、分批重新投递回发送交换机（二进制格式），
+ *    回到原来的队列，由分片的新属主或重启后的本节点处理；全部投递到默认路由键的话，分片任务会被任意节点消费，
+ *    同一接收者的顺序和本地去重的单属主假设都被打破
+ * 5. 已经开始执行的任务无法安全中断（可能已经发出一部分），只记录数量
+ * 6. 批量消费模式（手动 ack）下消息还没 ack，不需要重新投递：容器还在运行时先取消未执行的任务，
+ *    监听线程随即 nack 重新入队，再停止容器
+ * 7. 本组件停止后，Spring 再停止（已停止的）监听容器、销毁线程池、关闭 RabbitMQ 连接
+ * 8. 分片重新分配（ReceiverShardOwnership）时同样处理被让出分片的未执行任务（releaseShards）：
+ *    自动 ack 模式下它们已不在 Broker 上，留在本地执行的话，新属主与本节点会同时发送同一分片的接收者
+ * <p>
+ * 为什么要调整容器的阶段？RabbitListenerEndpointRegistry 的阶段取自容器，默认 Integer.MAX_VALUE，
+ * 停止顺序按阶段从大到小，本组件无法排在它前面；因此两个容器工厂都把容器阶段设为 LISTENER_CONTAINER_PHASE
+ * <p>
+ * 停机日志报告：排空数（drained）、重新投递数（requeued）、仍在执行被放弃等待的数量（abandoned）
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class PipelineDrainer implements SmartLifecycle {
+
+    /**
+     * 监听容器（RabbitListenerEndpointRegistry）的阶段，由容器工厂设置
+     */
+    public static final int LISTENER_CONTAINER_PHASE = Integer.MAX_VALUE - 1000;
+
+    /**
+     * 阶段越大越先停止：本组件先于监听容器停止，由它按顺序取消任务、停止容器、排空
+     */
+    private static final int PHASE = Integer.MAX_VALUE;
+
+    /**
+     * 重新投递时每个 MQ 消息最多包含的 TaskInfo 数
+     */
+    private static final int REQUEUE_CHUNK_SIZE = 200;
+
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private static final String MODE_BATCH = "batch";
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerEndpointRegistry;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private TaskRoutingKeys taskRoutingKeys;
+
+    @Value("${mini-austin.mq.exchange:austin-exchange}")
+    private String exchange;
+
+    @Value("${mini-austin.mq.consume.mode:single}")
+    private String consumeMode;
+
+    /**
+     * 等待在途任务执行完的最长时间（毫秒），应小于 spring.lifecycle.timeout-per-shutdown-phase
+     */
+    @Value("${mini-austin.shutdown.drain-timeout-ms:20000}")
+    private long drainTimeoutMs;
+
+    /**
+     * 已提交、尚未开始执行的任务
+     */
+    private final Set<Ticket> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 正在执行的任务数
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private volatile boolean started;
+
+    private volatile boolean stopping;
+
+    /**
+     * 登记一个即将提交到执行器的任务
+     */
+    public Ticket register(TaskInfo taskInfo, CompletableFuture<Void> result) {
+        Ticket ticket = new Ticket(taskInfo, result);
+        pending.add(ticket);
+        return ticket;
+    }
+
+    @Override
+    public void start() {
+        started = true;
+    }
+
+    @Override
+    public void stop() {
+        long startAt = System.currentTimeMillis();
+        stopping = true;
+        started = false;
+
+        int completedBefore = completed.get();
+        boolean manualAck = MODE_BATCH.equals(consumeMode);
+
+        // 1. 停止取新消息（批量模式先取消未执行的任务，让监听线程尽快 nack 返回）
+        int requeued = manualAck ? cancelPending() : 0;
+        listenerEndpointRegistry.stop();
+        log.info("开始排空责任链: pending={}, running={}, timeoutMs={}", pending.size(), running.get(), drainTimeoutMs);
+
+        // 2. 等待在途任务执行完
+        long deadline = startAt + drainTimeoutMs;
+        while ((!pending.isEmpty() || running.get() > 0) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // 3. 认领还没开始执行的任务并重新投递
+        requeued += manualAck ? cancelPending() : requeuePending();
+
+        log.info("责任链排空完成: drained={}, requeued={}, abandoned={}, elapsedMs={}",
+                completed.get() - completedBefore, requeued, running.get(), System.currentTimeMillis() - startAt);
+    }
+
+    /**
+     * 分片让给其他节点时调用：认领这些分片还没开始执行的任务，
+     * 自动 ack 模式重新投递回分片队列（由新属主消费），批量模式取消（监听线程 nack 重新入队）
+     * <p>
+     * 已经开始执行的任务无法安全中断，仍在本节点执行完
+     *
+     * @param shards 让出的分片
+     * @return 认领的任务数
+     */
+    public int releaseShards(Set<Integer> shards) {
+        if (shards.isEmpty()) {
+            return 0;
+        }
+        List<Ticket> claimed = claimPending(ticket -> shards.contains(taskRoutingKeys.shardOf(ticket.taskInfo)));
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        if (MODE_BATCH.equals(consumeMode)) {
+            claimed.forEach(ticket -> ticket.result.cancel(false));
+            return claimed.size();
+        }
+        return requeue(claimed);
+    }
+
+    /**
+     * 停机流程是否已开始（开始后不应再启动监听容器）
+     */
+    public boolean isStopping() {
+        return stopping;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return started;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * 批量模式：取消未执行的任务，对应的消息由监听线程 nack 重新入队
+     */
+    private int cancelPending() {
+        List<Ticket> claimed = claimPending(ticket -> true);
+        claimed.forEach(ticket -> ticket.result.cancel(false));
+        return claimed.size();
+    }
+
+    private int requeuePending() {
+        return requeue(claimPending(ticket -> true));
+    }
+
+    /**
+     * 按原路由键分组，重新投递已认领的任务
+     */
+    private int requeue(List<Ticket> claimed) {
+        Map<String, List<Ticket>> byRoutingKey = new LinkedHashMap<>();
+        for (Ticket ticket : claimed) {
+            byRoutingKey.computeIfAbsent(taskRoutingKeys.of(ticket.taskInfo), k -> new ArrayList<>()).add(ticket);
+        }
+        int requeued = 0;
+        for (Map.Entry<String, List<Ticket>> entry : byRoutingKey.entrySet()) {
+            requeued += requeue(entry.getKey(), entry.getValue());
+        }
+        return requeued;
+    }
+
+    /**
+     * 把同一路由键的任务分批投递回发送交换机
+     */
+    private int requeue(String routingKey, List<Ticket> tickets) {
+        int requeued = 0;
+        for (List<Ticket> chunk : Lists.partition(tickets, REQUEUE_CHUNK_SIZE)) {
+            List<TaskInfo> taskInfoList = new ArrayList<>(chunk.size());
+            chunk.forEach(ticket -> taskInfoList.add(ticket.taskInfo));
+            try {
+                MessageProperties properties = new MessageProperties();
+                properties.setContentType(TaskInfoBinaryCodec.CONTENT_TYPE);
+                properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+                Message message = MessageBuilder
+                        .withBody(TaskInfoBinaryCodec.encode(taskInfoList))
+                        .andProperties(properties)
+                        .build();
+                rabbitTemplate.send(exchange, routingKey, message);
+                requeued += chunk.size();
+                // 已安全回到 Broker，视为处理完成
+                chunk.forEach(ticket -> ticket.result.complete(null));
+            } catch (Exception e) {
+                log.error("停机时重新投递任务失败，这些任务将丢失: routingKey={}, count={}", routingKey, chunk.size(), e);
+                chunk.forEach(ticket -> ticket.result.completeExceptionally(e));
+            }
+        }
+        return requeued;
+    }
+
+    private List<Ticket> claimPending(Predicate<Ticket> filter) {
+        List<Ticket> claimed = new ArrayList<>();
+        for (Ticket ticket : pending) {
+            if (filter.test(ticket) && ticket.claimed.compareAndSet(false, true)) {
+                pending.remove(ticket);
+                claimed.add(ticket);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 已提交任务的登记凭证
+     */
+    public final class Ticket {
+
+        private final TaskInfo taskInfo;
+
+        private final CompletableFuture<Void> result;
+
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        private Ticket(TaskInfo taskInfo, CompletableFuture<Void> result) {
+            this.taskInfo = taskInfo;
+            this.result = result;
+        }
+
+        /**
+         * 任务开始执行时调用
+         *
+         * @return false 表示任务已被停机流程认领并重新投递，不应再执行
+         */
+        public boolean begin() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            pending.remove(this);
+            running.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * 任务执行结束时调用（仅 begin 返回 true 时）
+         */
+        public void end() {
+            running.decrementAndGet();
+            completed.incrementAndGet();
+        }
+
+        /**
+         * 任务未能提交到执行器（被拒绝）时调用
+         */
+        public void cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                pending.remove(this);
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.mini.austin.handler.handler;
 
 import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.handler.flow.AdaptiveConcurrencyLimiter;
+import com.mini.austin.handler.flow.ChannelConcurrencyLimiters;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -9,7 +11,7 @@ import javax.annotation.PostConstruct;
 /**
  * Handler 基类
  * <p>
- * 模板方法模式：定义公共处理流程，子类实现具体发送逻辑
+ * 模板方法模式：定义公共处理流程（日志、渠道自适应并发限制），子类实现具体发送逻辑
  *
  * @author mini-austin
  */
@@ -24,6 +26,9 @@ public abstract class BaseHandler implements Handler {
     @Autowired
     private HandlerHolder handlerHolder;
 
+    @Autowired
+    private ChannelConcurrencyLimiters concurrencyLimiters;
+
     /**
      * 初始化：注册到 HandlerHolder
      */
@@ -35,11 +40,33 @@ public abstract class BaseHandler implements Handler {
 
     @Override
     public boolean doHandler(TaskInfo taskInfo) {
-        // 这里可以加通用逻辑，如限流、日志等
         log.info("开始处理消息: messageId={}, channel={}, receivers={}",
                 taskInfo.getMessageId(), channelCode, taskInfo.getReceiver());
 
-        boolean success = handler(taskInfo);
+        // 渠道自适应并发限制：发送前获取许可，发送后按耗时和结果调整上限；
+        // 等待许可超时（或被中断）视为发送失败，由调用方交给重试，而不是抛异常导致消息被直接丢弃
+        AdaptiveConcurrencyLimiter limiter = null;
+        if (concurrencyLimiters.isEnabled()) {
+            try {
+                limiter = concurrencyLimiters.tryAcquire(channelCode);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (limiter == null) {
+                log.error("消息发送失败（未获取到渠道并发许可）: messageId={}, channel={}", taskInfo.getMessageId(), channelCode);
+                return false;
+            }
+        }
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = handler(taskInfo);
+        } finally {
+            if (limiter != null) {
+                limiter.release(System.nanoTime() - start, success);
+            }
+        }
 
         if (success) {
             log.info("消息发送成功: messageId={}", taskInfo.getMessageId());
@@ -13,6 +13,9 @@ public interface Handler {
 
     /**
      * 处理消息
+     * <p>
+     * 返回 false 时，taskInfo 的 receiver 只保留发送失败的接收者（未收窄则视为全部失败），
+     * SendMessageAction 只对这些接收者发起重试
      *
      * @param taskInfo 任务信息
      * @return 是否发送成功
@@ -11,6 +11,9 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * 邮件发送 Handler
  *
@@ -45,7 +48,8 @@ public class EmailHandler extends BaseHandler {
                 return true;
             }
 
-            // 真实发送
+            // 真实发送（逐个发送，单个收件人失败不影响其他收件人）
+            Set<String> failedReceivers = new HashSet<>();
             for (String receiver : taskInfo.getReceiver()) {
                 SimpleMailMessage message = new SimpleMailMessage();
                 message.setFrom(fromEmail);
@@ -53,10 +57,21 @@ public class EmailHandler extends BaseHandler {
                 message.setSubject(contentModel.getTitle());
                 message.setText(contentModel.getContent());
 
-                mailSender.send(message);
-                log.info("邮件发送成功: to={}", receiver);
+                try {
+                    mailSender.send(message);
+                    log.info("邮件发送成功: to={}", receiver);
+                } catch (Exception e) {
+                    log.error("邮件发送失败: to={}, error={}", receiver, e.getMessage(), e);
+                    failedReceivers.add(receiver);
+                }
             }
-            return true;
+
+            if (failedReceivers.isEmpty()) {
+                return true;
+            }
+            // 只保留失败的收件人，供重试使用
+            taskInfo.setReceiver(failedReceivers);
+            return false;
 
         } catch (Exception e) {
             log.error("邮件发送失败: {}", e.getMessage(), e);
@@ -0,0 +1,155 @@
+package com.mini.austin.handler.receiver;
+
+import com.mini.austin.common.codec.TaskInfoDecodeException;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.handler.flow.ConsumeCreditGate;
+import com.mini.austin.handler.shard.ReceiverShardOwnership;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * RabbitMQ 批量消费者（手动 ack）
+ * <p>
+ * ★★★ 面试重点：如何保证消费端不丢消息？ ★★★
+ * <p>
+ * 自动 ack 模式下，消息一投递到消费者就被 Broker 删除，
+ * 此时任务可能还在线程池队列里没执行，进程一崩溃就丢了
+ * <p>
+ * 实现原理（mini-austin.mq.consume.mode=batch）：
+ * 1. 容器一次取 batch-size 条消息（prefetch 与之相同），减少与 Broker 的往返
+ * 2. 每条消息解码出的所有 TaskInfo 并行执行责任链
+ * 3. 监听线程等待整批执行完：全部成功时一次 multiple ack；
+ *    否则逐条 ack / nack，首次失败的消息重新入队，再次失败的丢弃（避免毒消息无限重投）
+ * 4. 无法解码的消息直接拒绝，不重新入队
+ * <p>
+ * 监听的队列与 RabbitMqReceiver 相同（原队列 + 优先级通道队列 + 本实例负责的分片队列）
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "mini-austin.mq.consume.mode", havingValue = "batch")
+public class BatchRabbitMqReceiver {
+
+    @Autowired
+    private ConsumeService consumeService;
+
+    /**
+     * 等待一批消息处理完成的超时时间（毫秒），超时未完成的消息重新入队
+     */
+    @Value("${mini-austin.mq.consume.ack-timeout-ms:60000}")
+    private long ackTimeoutMs;
+
+    @RabbitListener(queues = "${mini-austin.mq.queue:austin-send-queue}",
+            containerFactory = "batchListenerContainerFactory")
+    @RabbitListener(id = ConsumeCreditGate.HIGH_LANE_LISTENER_ID,
+            queues = "${mini-austin.mq.queue:austin-send-queue}.high",
+            containerFactory = "batchListenerContainerFactory",
+            autoStartup = "${mini-austin.mq.lanes.enabled:false}")
+    @RabbitListener(id = ConsumeCreditGate.LOW_LANE_LISTENER_ID,
+            queues = "${mini-austin.mq.queue:austin-send-queue}.low",
+            containerFactory = "batchListenerContainerFactory",
+            autoStartup = "${mini-austin.mq.lanes.enabled:false}")
+    @RabbitListener(id = ReceiverShardOwnership.LISTENER_ID,
+            queues = "#{@receiverShardOwnership.initialQueues()}",
+            containerFactory = "batchListenerContainerFactory",
+            autoStartup = "${mini-austin.mq.shards.enabled:false}")
+    public void receive(List<Message> messages, Channel channel) throws IOException {
+        log.debug("收到一批MQ消息: size={}", messages.size());
+
+        // 1. 解码并提交，每条消息对应一个 Future
+        List<CompletableFuture<Void>> futures = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            futures.add(dispatch(message));
+        }
+
+        // 2. 等待整批完成（成功或失败）
+        long deadline = System.currentTimeMillis() + ackTimeoutMs;
+        boolean allSucceeded = true;
+        Outcome[] outcomes = new Outcome[messages.size()];
+        for (int i = 0; i < futures.size(); i++) {
+            outcomes[i] = await(futures.get(i), deadline);
+            allSucceeded &= outcomes[i] == Outcome.SUCCESS;
+        }
+
+        // 3. ack / nack
+        if (allSucceeded) {
+            long lastTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+            channel.basicAck(lastTag, true);
+            return;
+        }
+
+        int requeued = 0;
+        int rejected = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            long deliveryTag = messages.get(i).getMessageProperties().getDeliveryTag();
+            if (outcomes[i] == Outcome.SUCCESS) {
+                channel.basicAck(deliveryTag, false);
+                continue;
+            }
+            boolean requeue = outcomes[i] == Outcome.TIMEOUT
+                    || (outcomes[i] == Outcome.FAILED && !messages.get(i).getMessageProperties().isRedelivered());
+            channel.basicNack(deliveryTag, false, requeue);
+            if (requeue) {
+                requeued++;
+            } else {
+                rejected++;
+            }
+        }
+        log.warn("批量消费部分失败: size={}, requeued={}, rejected={}", messages.size(), requeued, rejected);
+    }
+
+    /**
+     * 解码一条 MQ 消息并提交其中所有 TaskInfo
+     */
+    private CompletableFuture<Void> dispatch(Message message) {
+        List<TaskInfo> taskInfoList;
+        try {
+            taskInfoList = RabbitMqReceiver.decode(message);
+        } catch (TaskInfoDecodeException e) {
+            log.error("MQ消息解码失败，直接拒绝: bytes={}", message.getBody().length, e);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        try {
+            return consumeService.consume(taskInfoList);
+        } catch (Exception e) {
+            log.error("MQ消息提交失败: tasks={}", taskInfoList.size(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Outcome await(CompletableFuture<Void> future, long deadline) {
+        try {
+            future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            return Outcome.SUCCESS;
+        } catch (TimeoutException | CancellationException e) {
+            // 超时，或停机时未执行的任务被取消：重新入队
+            return Outcome.TIMEOUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.TIMEOUT;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof TaskInfoDecodeException ? Outcome.UNDECODABLE : Outcome.FAILED;
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS, FAILED, TIMEOUT, UNDECODABLE
+    }
+}
@@ -2,6 +2,9 @@ package com.mini.austin.handler.receiver;
 
 import com.mini.austin.common.domain.TaskInfo;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 消费服务接口
  *
@@ -13,6 +16,15 @@ public interface ConsumeService {
      * 消费消息并处理
      *
      * @param taskInfo 任务信息
+     * @return 责任链执行完成时完成；执行异常时异常完成（手动 ack 模式据此决定 ack 还是 nack）
+     */
+    CompletableFuture<Void> consume(TaskInfo taskInfo);
+
+    /**
+     * 消费一条 MQ 消息解码出的所有 TaskInfo
+     *
+     * @param taskInfoList 同一条 MQ 消息中的任务
+     * @return 所有任务的责任链都执行完成时完成；任一任务异常时异常完成
      */
-    void consume(TaskInfo taskInfo);
+    CompletableFuture<Void> consume(List<TaskInfo> taskInfoList);
 }
@@ -1,16 +1,30 @@
 package com.mini.austin.handler.receiver;
 
+import com.google.common.collect.Lists;
 import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.MessageLane;
+import com.mini.austin.common.enums.RespStatusEnum;
 import com.mini.austin.common.pipeline.ProcessContext;
 import com.mini.austin.common.pipeline.ProcessController;
 import com.mini.austin.common.vo.BasicResultVO;
 import com.mini.austin.handler.config.HandlerThreadPoolConfig;
+import com.mini.austin.handler.executor.ChannelBulkheads;
+import com.mini.austin.handler.executor.LaneTask;
+import com.mini.austin.handler.flow.ConsumeCreditGate;
+import com.mini.austin.handler.flow.PipelineDrainer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 消费服务实现
@@ -18,8 +32,10 @@ import java.util.concurrent.ThreadPoolExecutor;
  * ★★★ Handler 层核心入口 ★★★
  * <p>
  * 1. 接收 TaskInfo
- * 2. 提交到线程池异步处理
- * 3. 执行 Handler 层责任链
+ * 2. 信用反压模式下按消息、按信用池一次性预留信用（见 ConsumeCreditGate），再按渠道提交到舱壁线程池（或共享执行器）异步处理
+ * 3. 执行 Handler 层责任链，完成后通知调用方（用于手动 ack）；
+ *    责任链返回失败响应（发送失败且没有交给重试）时异常完成，调用方据此 nack 而不是 ack
+ * 4. 提交前在 PipelineDrainer 登记，停机时未执行的任务重新投递而不是丢失
  *
  * @author mini-austin
  */
@@ -31,31 +47,122 @@ public class ConsumeServiceImpl implements ConsumeService {
     @Qualifier("handlerProcessController")
     private ProcessController processController;
 
+    /**
+     * 责任链执行器（平台线程池或虚拟线程，见 HandlerThreadPoolConfig#pipelineExecutor）
+     */
     @Autowired
-    private ThreadPoolExecutor handlerExecutor;
+    private Executor pipelineExecutor;
+
+    @Autowired
+    private ChannelBulkheads channelBulkheads;
+
+    @Autowired
+    private ConsumeCreditGate consumeCreditGate;
+
+    @Autowired
+    private PipelineDrainer pipelineDrainer;
 
     @Override
-    public void consume(TaskInfo taskInfo) {
+    public CompletableFuture<Void> consume(TaskInfo taskInfo) {
+        return consume(Collections.singletonList(taskInfo));
+    }
+
+    @Override
+    public CompletableFuture<Void> consume(List<TaskInfo> taskInfoList) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(taskInfoList.size());
+        if (!consumeCreditGate.isEnabled()) {
+            taskInfoList.forEach(taskInfo -> futures.add(submit(taskInfo, null)));
+            return allOf(futures);
+        }
+
+        // 信用反压模式：按信用池（渠道所在的执行器，开启优先级通道时再分通道）分组，整组一次预留信用，
+        // 保证执行器有空位，任务不会回退到监听线程执行
+        Map<String, List<TaskInfo>> byPool = new LinkedHashMap<>();
+        for (TaskInfo taskInfo : taskInfoList) {
+            byPool.computeIfAbsent(consumeCreditGate.poolOf(taskInfo), k -> new ArrayList<>()).add(taskInfo);
+        }
+        for (Map.Entry<String, List<TaskInfo>> entry : byPool.entrySet()) {
+            String pool = entry.getKey();
+            for (List<TaskInfo> slice : Lists.partition(entry.getValue(), Math.max(consumeCreditGate.getCredits(pool), 1))) {
+                try {
+                    consumeCreditGate.acquire(pool, slice.size());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.add(CompletableFuture.failedFuture(e));
+                    return allOf(futures);
+                }
+                slice.forEach(taskInfo -> futures.add(submit(taskInfo, pool)));
+            }
+        }
+        return allOf(futures);
+    }
+
+    /**
+     * 提交单个任务
+     *
+     * @param creditPool 已为该任务预留信用的信用池（任务结束时归还），未启用信用反压时为 null
+     */
+    private CompletableFuture<Void> submit(TaskInfo taskInfo, String creditPool) {
         log.info("开始处理消息: messageId={}, channel={}, receivers={}",
                 taskInfo.getMessageId(), taskInfo.getSendChannel(), taskInfo.getReceiver());
 
-        // 提交到线程池异步处理
-        handlerExecutor.execute(() -> {
-            try {
-                // 构建责任链上下文
-                ProcessContext<TaskInfo> context = ProcessContext.<TaskInfo>builder()
-                        .code(HandlerThreadPoolConfig.HANDLER_PIPELINE_CODE)
-                        .processModel(taskInfo)
-                        .needBreak(false)
-                        .response(BasicResultVO.success())
-                        .build();
-
-                // 执行责任链
-                processController.process(context);
-
-            } catch (Exception e) {
-                log.error("处理消息异常: messageId={}", taskInfo.getMessageId(), e);
-            }
-        });
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        // 信用在任务结束时归还（包括被拒绝、停机时被重新投递）
+        if (creditPool != null) {
+            result.whenComplete((v, e) -> consumeCreditGate.release(creditPool));
+        }
+
+        // 按渠道路由到舱壁，未配置舱壁的渠道走共享执行器
+        Executor executor = channelBulkheads.route(taskInfo.getSendChannel());
+        if (executor == null) {
+            executor = pipelineExecutor;
+        }
+
+        // 登记任务，停机时未开始执行的任务会被重新投递
+        PipelineDrainer.Ticket ticket = pipelineDrainer.register(taskInfo, result);
+
+        // 提交到线程池异步处理（标记优先级通道，开启通道时按权重调度）
+        try {
+            executor.execute(new LaneTask(MessageLane.of(taskInfo.getMsgType()), () -> {
+                if (!ticket.begin()) {
+                    return;
+                }
+                try {
+                    // 构建责任链上下文
+                    ProcessContext<TaskInfo> context = ProcessContext.<TaskInfo>builder()
+                            .code(HandlerThreadPoolConfig.HANDLER_PIPELINE_CODE)
+                            .processModel(taskInfo)
+                            .needBreak(false)
+                            .response(BasicResultVO.success())
+                            .build();
+
+                    // 执行责任链
+                    processController.process(context);
+                    BasicResultVO<?> response = context.getResponse();
+                    if (response == null || RespStatusEnum.SUCCESS.getCode().equals(response.getStatus())) {
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(new IllegalStateException(response.getMsg()));
+                    }
+
+                } catch (Exception e) {
+                    log.error("处理消息异常: messageId={}", taskInfo.getMessageId(), e);
+                    result.completeExceptionally(e);
+                } finally {
+                    ticket.end();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            // 舱壁拒绝（abort 策略）或关闭
+            log.warn("任务被拒绝: messageId={}, channel={}", taskInfo.getMessageId(), taskInfo.getSendChannel());
+            ticket.cancel();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private static CompletableFuture<Void> allOf(List<CompletableFuture<Void>> futures) {
+        return futures.size() == 1 ? futures.get(0) : CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
     }
 }
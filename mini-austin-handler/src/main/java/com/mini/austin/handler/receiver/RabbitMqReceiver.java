@@ -1,112 +1,104 @@
 package com.mini.austin.handler.receiver;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mini.austin.common.domain.ContentModel;
+import com.mini.austin.common.codec.TaskInfoBinaryCodec;
+import com.mini.austin.common.codec.TaskInfoDecodeException;
+import com.mini.austin.common.codec.TaskInfoJsonDecoder;
 import com.mini.austin.common.domain.TaskInfo;
-import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.handler.flow.ConsumeCreditGate;
+import com.mini.austin.handler.shard.ReceiverShardOwnership;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
  * RabbitMQ 消息消费者
  * <p>
  * 监听发送队列，消费消息并执行处理流程
+ * <p>
+ * 逐条消费、自动 ack（mini-austin.mq.consume.mode=single，默认）；
+ * 批量消费、手动 ack 见 BatchRabbitMqReceiver
  *
  * @author mini-austin
  */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "mini-austin.mq.consume.mode", havingValue = "single", matchIfMissing = true)
 public class RabbitMqReceiver {
 
     @Autowired
     private ConsumeService consumeService;
 
-    private final ObjectMapper objectMapper;
-
-    public RabbitMqReceiver() {
-        this.objectMapper = new ObjectMapper();
-        // 忽略未知属性，避免反序列化失败
-        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-    }
-
     /**
      * 监听发送队列
      * <p>
      * 收到消息后：
-     * 1. 反序列化为 TaskInfo 列表
-     * 2. 交给 ConsumeService 处理
+     * 1. 根据 Content-Type 选择二进制或 JSON 解码，无法解码的消息直接拒绝（不重新入队）
+     * 2. 解出的 TaskInfo 整体交给 ConsumeService 处理（信用反压模式下按消息预留信用）
+     * <p>
+     * 原队列始终监听（消费升级前已投递的消息）；开启优先级通道时，
+     * .high / .low 队列（后缀与 MessageLane 一致）各由一个独立容器监听；
+     * 开启接收者分片时，本实例负责的分片队列由一个容器监听，队列列表随分片重新分配而变化
      */
     @RabbitListener(queues = "${mini-austin.mq.queue:austin-send-queue}")
-    public void receive(String message) {
-        log.info("收到MQ消息: {}", message);
-
+    @RabbitListener(id = ConsumeCreditGate.HIGH_LANE_LISTENER_ID,
+            queues = "${mini-austin.mq.queue:austin-send-queue}.high",
+            autoStartup = "${mini-austin.mq.lanes.enabled:false}")
+    @RabbitListener(id = ConsumeCreditGate.LOW_LANE_LISTENER_ID,
+            queues = "${mini-austin.mq.queue:austin-send-queue}.low",
+            autoStartup = "${mini-austin.mq.lanes.enabled:false}")
+    @RabbitListener(id = ReceiverShardOwnership.LISTENER_ID,
+            queues = "#{@receiverShardOwnership.initialQueues()}",
+            autoStartup = "${mini-austin.mq.shards.enabled:false}")
+    public void receive(Message amqpMessage) {
+        byte[] body = amqpMessage.getBody();
+        String contentType = amqpMessage.getMessageProperties().getContentType();
+        log.debug("收到MQ消息: contentType={}, bytes={}", contentType, body.length);
+
+        List<TaskInfo> taskInfoList;
         try {
-            // 先读取为 JsonNode 数组
-            List<JsonNode> jsonNodes = objectMapper.readValue(message, new TypeReference<List<JsonNode>>() {});
-
-            for (JsonNode taskJson : jsonNodes) {
-                // 获取渠道类型
-                JsonNode channelNode = taskJson.get("sendChannel");
-                Integer sendChannel = (channelNode != null && !channelNode.isNull()) ? channelNode.asInt() : null;
-
-                // 先解析 contentModel（根据渠道类型）
-                ContentModel contentModel = null;
-                if (sendChannel != null) {
-                    Class<? extends ContentModel> contentClass = ChannelType.getContentModelClassByCode(sendChannel);
-                    JsonNode contentJson = taskJson.get("contentModel");
-                    if (contentClass != null && contentJson != null && !contentJson.isNull()) {
-                        contentModel = objectMapper.treeToValue(contentJson, contentClass);
-                    }
-                }
-
-                // 构建 TaskInfo（手动填充避免接口反序列化问题）
-                TaskInfo taskInfo = TaskInfo.builder()
-                        .messageId(getTextValue(taskJson, "messageId"))
-                        .businessId(getLongValue(taskJson, "businessId"))
-                        .messageTemplateId(getLongValue(taskJson, "messageTemplateId"))
-                        .sendChannel(sendChannel)
-                        .msgType(getIntValue(taskJson, "msgType"))
-                        .sendAccount(getIntValue(taskJson, "sendAccount"))
-                        .contentModel(contentModel)
-                        .build();
-
-                // 解析 receiver 集合
-                JsonNode receiverNode = taskJson.get("receiver");
-                if (receiverNode != null && receiverNode.isArray()) {
-                    java.util.Set<String> receivers = new java.util.HashSet<>();
-                    for (JsonNode r : receiverNode) {
-                        receivers.add(r.asText());
-                    }
-                    taskInfo.setReceiver(receivers);
-                }
-
-                consumeService.consume(taskInfo);
+            taskInfoList = decode(amqpMessage);
+        } catch (TaskInfoDecodeException e) {
+            log.error("MQ消息解码失败，直接拒绝: contentType={}, bytes={}", contentType, body.length, e);
+            if (log.isDebugEnabled() && !TaskInfoBinaryCodec.CONTENT_TYPE.equals(contentType)) {
+                log.debug("解码失败的MQ消息原文: {}", new String(body, StandardCharsets.UTF_8));
             }
+            // 重投也无法解码：拒绝且不重新入队（配置了死信交换机时进入死信队列）
+            throw new AmqpRejectAndDontRequeueException("MQ消息无法解码", e);
+        }
 
+        try {
+            consumeService.consume(taskInfoList);
         } catch (Exception e) {
-            log.error("消费MQ消息失败: {}", e.getMessage(), e);
+            log.error("消费MQ消息失败: contentType={}, bytes={}", contentType, body.length, e);
         }
     }
 
-    private String getTextValue(JsonNode node, String field) {
-        JsonNode n = node.get(field);
-        return (n != null && !n.isNull()) ? n.asText() : null;
-    }
-
-    private Long getLongValue(JsonNode node, String field) {
-        JsonNode n = node.get(field);
-        return (n != null && !n.isNull()) ? n.asLong() : null;
-    }
-
-    private Integer getIntValue(JsonNode node, String field) {
-        JsonNode n = node.get(field);
-        return (n != null && !n.isNull()) ? n.asInt() : null;
+    /**
+     * 根据 Content-Type 选择解码器，完整解码后再返回
+     * <p>
+     * 消息损坏时一个 TaskInfo 都不会下发，避免"前半部分已发送、整条消息又被拒绝"
+     *
+     * @throws TaskInfoDecodeException 消息体无法解码
+     */
+    static List<TaskInfo> decode(Message amqpMessage) {
+        if (TaskInfoBinaryCodec.CONTENT_TYPE.equals(amqpMessage.getMessageProperties().getContentType())) {
+            return TaskInfoBinaryCodec.decode(amqpMessage.getBody());
+        }
+        // JSON 格式（旧消息）
+        try {
+            return TaskInfoJsonDecoder.decode(amqpMessage.getBody());
+        } catch (TaskInfoDecodeException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new TaskInfoDecodeException("JSON 消息解码失败", e);
+        }
     }
 }
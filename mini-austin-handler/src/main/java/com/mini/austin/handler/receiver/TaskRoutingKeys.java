@@ -0,0 +1,53 @@
+package com.mini.austin.handler.receiver;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.MessageLane;
+import com.mini.austin.common.shard.ReceiverShards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 任务原本的路由键（Handler 端把任务重新投递回发送交换机时使用）
+ * <p>
+ * 规则与 Web 端 SendMqAction 一致：接收者分片 > 优先级通道 > 默认路由键。
+ * 重试（RetryPublisher）和停机重新投递（PipelineDrainer）都必须回到原来的分片 / 通道队列：
+ * 默认队列被所有节点消费，分片任务落进去就失去了唯一的属主，同一接收者的顺序和本地去重的单属主假设都不再成立
+ * <p>
+ * 分片按第一个接收者计算：Web 端按分片拆分 TaskInfo，同一任务的接收者都在同一个分片内，
+ * 重试只会收窄接收者，不会跨分片
+ *
+ * @author mini-austin
+ */
+@Component
+public class TaskRoutingKeys {
+
+    @Value("${mini-austin.mq.routing-key:austin.send}")
+    private String routingKey;
+
+    @Value("${mini-austin.mq.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    @Value("${mini-austin.mq.shards.enabled:false}")
+    private boolean shardsEnabled;
+
+    @Value("${mini-austin.mq.shards.count:16}")
+    private int shardCount;
+
+    public String of(TaskInfo taskInfo) {
+        int shard = shardOf(taskInfo);
+        if (shard >= 0) {
+            return ReceiverShards.resolve(routingKey, shard);
+        }
+        return lanesEnabled ? MessageLane.of(taskInfo.getMsgType()).resolve(routingKey) : routingKey;
+    }
+
+    /**
+     * 任务所属的分片，未开启分片或没有接收者时返回 -1
+     */
+    public int shardOf(TaskInfo taskInfo) {
+        if (!shardsEnabled || taskInfo.getReceiver() == null || taskInfo.getReceiver().isEmpty()) {
+            return -1;
+        }
+        return ReceiverShards.shardOf(taskInfo.getReceiver().iterator().next(), shardCount);
+    }
+}
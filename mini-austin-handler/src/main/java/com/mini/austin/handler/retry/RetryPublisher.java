@@ -0,0 +1,178 @@
+package com.mini.austin.handler.retry;
+
+import com.mini.austin.common.codec.TaskInfoBinaryCodec;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.handler.receiver.TaskRoutingKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * 发送失败重试（基于 TTL + 死信的延迟队列）
+ * <p>
+ * ★★★ 面试重点：消息发送失败了怎么重试？ ★★★
+ * <p>
+ * 在工作线程里 sleep 后重试：线程池本来就只有几个线程，下游一抖动所有线程都在 sleep，正常消息也被拖住
+ * <p>
+ * 实现原理（mini-austin.retry.enabled=true）：
+ * 1. 每个退避档位一个延迟队列（如 1s / 10s / 60s / 300s），队列级 x-message-ttl，
+ *    过期后经死信交换机回到发送交换机，重新进入 Handler 责任链
+ * 2. 重试消息以任务原本的路由键（分片 / 优先级通道 / 默认，见 TaskRoutingKeys）投递到 headers 类型的重试交换机，
+ *    按 TIER_HEADER 头路由到档位队列；延迟队列不设置 x-dead-letter-routing-key，
+ *    死信时沿用消息自身的路由键，回到原来的分片 / 通道队列，而不是全部挤进默认队列
+ * 3. 第 n 次重试进入第 n 个档位（超出档位数时停在最后一档），指数退避
+ * 4. 只重试失败的接收者（Handler 返回 false 时收窄了 receiver），retryCount + 1
+ * 5. 达到 max-attempts 后不再重试，记录最终失败
+ * 6. 工作线程只做一次 basicPublish 就返回，不会阻塞等待
+ * <p>
+ * 重试相关配置（开关、交换机、档位）只在这里读取，RabbitMqConfig 声明延迟队列时从本类获取
+ * <p>
+ * 为什么每个档位一个队列，而不是消息级 TTL？
+ * RabbitMQ 只在队头检查消息是否过期，一个队列里混着不同 TTL 的消息，
+ * 队头的长 TTL 消息会挡住后面已经到期的短 TTL 消息
+ * <p>
+ * 监控指标（tag: channel=渠道名）：
+ * austin.handler.retry.scheduled（已安排的重试，tag attempt=第几次重试）、
+ * austin.handler.retry.exhausted（重试次数用尽的最终失败）、austin.handler.retry.publish-failed（重试投递失败）
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class RetryPublisher {
+
+    /**
+     * 重试交换机按此消息头把消息路由到档位队列
+     */
+    public static final String TIER_HEADER = "x-austin-retry-tier";
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TaskRoutingKeys taskRoutingKeys;
+
+    @Value("${mini-austin.retry.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 首次发送之外最多重试的次数
+     */
+    @Value("${mini-austin.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    /**
+     * 各退避档位的延迟（毫秒）
+     */
+    @Value("${mini-austin.retry.delays-ms:1000,10000,60000,300000}")
+    private long[] delaysMs;
+
+    @Value("${mini-austin.retry.exchange:austin-retry-exchange}")
+    private String retryExchange;
+
+    /**
+     * 安排一次重试（只包含 taskInfo 当前的接收者）
+     *
+     * @return 是否已安排重试；未启用、次数用尽或投递失败时返回 false
+     */
+    public boolean retry(TaskInfo taskInfo) {
+        if (!enabled) {
+            return false;
+        }
+
+        String channel = channelName(taskInfo.getSendChannel());
+        int attempt = (taskInfo.getRetryCount() == null ? 0 : taskInfo.getRetryCount()) + 1;
+        if (attempt > maxAttempts) {
+            Counter.builder("austin.handler.retry.exhausted")
+                    .description("重试次数用尽的最终失败数")
+                    .tags("channel", channel)
+                    .register(meterRegistry)
+                    .increment();
+            log.error("消息重试次数用尽，最终失败: messageId={}, channel={}, receivers={}, retries={}",
+                    taskInfo.getMessageId(), channel, taskInfo.getReceiver(), attempt - 1);
+            return false;
+        }
+
+        TaskInfo retryTask = taskInfo.toBuilder()
+                .receiver(new HashSet<>(taskInfo.getReceiver()))
+                .retryCount(attempt)
+                .build();
+        long delayMs = delayOf(attempt);
+
+        try {
+            MessageProperties properties = new MessageProperties();
+            properties.setContentType(TaskInfoBinaryCodec.CONTENT_TYPE);
+            properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+            properties.setHeader(TIER_HEADER, routingKeyOf(delayMs));
+            Message message = MessageBuilder
+                    .withBody(TaskInfoBinaryCodec.encode(Collections.singletonList(retryTask)))
+                    .andProperties(properties)
+                    .build();
+            // 重试只收窄接收者，剩下的接收者仍在原来的分片内
+            rabbitTemplate.send(retryExchange, taskRoutingKeys.of(retryTask), message);
+        } catch (Exception e) {
+            Counter.builder("austin.handler.retry.publish-failed")
+                    .description("重试消息投递失败数")
+                    .tags("channel", channel)
+                    .register(meterRegistry)
+                    .increment();
+            log.error("重试消息投递失败: messageId={}, channel={}", taskInfo.getMessageId(), channel, e);
+            return false;
+        }
+
+        Counter.builder("austin.handler.retry.scheduled")
+                .description("已安排的重试数")
+                .tags("channel", channel, "attempt", String.valueOf(attempt))
+                .register(meterRegistry)
+                .increment();
+        log.warn("消息发送失败，{}ms 后第{}次重试: messageId={}, receivers={}",
+                delayMs, attempt, taskInfo.getMessageId(), retryTask.getReceiver());
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getRetryExchange() {
+        return retryExchange;
+    }
+
+    /**
+     * 各档位的延迟（毫秒），供声明延迟队列使用
+     */
+    public long[] getDelaysMs() {
+        return delaysMs;
+    }
+
+    /**
+     * 档位名（TIER_HEADER 的值 / 队列后缀）
+     */
+    public static String routingKeyOf(long delayMs) {
+        return "retry." + delayMs + "ms";
+    }
+
+    private long delayOf(int attempt) {
+        return delaysMs[Math.min(attempt, delaysMs.length) - 1];
+    }
+
+    private static String channelName(Integer sendChannel) {
+        ChannelType channelType = ChannelType.getByCode(sendChannel);
+        return channelType == null ? String.valueOf(sendChannel) : channelType.name().toLowerCase();
+    }
+}
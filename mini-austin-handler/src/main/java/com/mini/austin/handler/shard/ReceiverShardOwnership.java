@@ -0,0 +1,257 @@
+package com.mini.austin.handler.shard;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.IdUtil;
+import com.mini.austin.common.shard.ReceiverShards;
+import com.mini.austin.handler.flow.PipelineDrainer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 接收者分片归属（每个 Handler 实例负责哪些分片队列）
+ * <p>
+ * ★★★ 面试重点：消费者上下线时如何重新分配分片？ ★★★
+ * <p>
+ * 只有一个共享队列时，任何节点都可能处理任何接收者，频率、去重等状态只能每次都访问 Redis；
+ * 按接收者分片后，同一接收者的消息只会落到一个节点上，节点可以在本地缓存热点状态
+ * <p>
+ * 实现原理（mini-austin.mq.shards.enabled=true）：
+ * 1. 成员表：Redis ZSET，member = 实例 ID，score = 最近一次心跳时间；
+ *    心跳时一个 Lua 脚本完成 写入自己 + 清理超时成员 + 读取全部成员
+ * 2. 分配：所有实例对同一份成员列表做 HRW 哈希（ReceiverShards.assign），各自算出相同的结果
+ * 3. 重新分配：每次心跳比较新旧分片，有变化时修改分片监听容器的队列列表
+ *    （容器运行中会重启消费者，暂停中则在恢复时生效）
+ * 4. 交接：分片队列开启了 single-active-consumer，新旧节点短暂同时订阅时仍只有一个在消费；
+ *    Redis 不可用时保持当前分片继续消费，同样不会出现两个节点并发消费同一分片。
+ *    让出的分片在本地线程池里还没执行的任务交还给 Broker（PipelineDrainer.releaseShards）：
+ *    切换队列前认领一次，切换后再认领一次，覆盖切换期间消费者仍在投递的消息
+ * 5. 正常停机时主动退出成员表，其他节点在下一次心跳就能接手
+ * 6. 启动时 Redis 不可用：重试几次后以空分片启动（不阻止应用启动），第一次成功的心跳再分配分片
+ * <p>
+ * 监控指标：austin.handler.shards.owned、austin.handler.shards.members、austin.handler.shards.rebalance
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class ReceiverShardOwnership {
+
+    /**
+     * 分片监听容器 ID（见 RabbitMqReceiver / BatchRabbitMqReceiver）
+     */
+    public static final String LISTENER_ID = "austin-shard-listener";
+
+    /**
+     * 启动时加入成员表的尝试次数
+     */
+    private static final int INIT_ATTEMPTS = 3;
+
+    private static final long INIT_RETRY_MAX_BACKOFF_MS = 1000;
+
+    /**
+     * 心跳脚本：ZADD 自己 -> 清理超时成员 -> 返回所有成员
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> HEARTBEAT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('zadd', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "redis.call('zremrangebyscore', KEYS[1], '-inf', ARGV[3]) "
+                    + "redis.call('pexpire', KEYS[1], ARGV[4]) "
+                    + "return redis.call('zrange', KEYS[1], 0, -1)", List.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerEndpointRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PipelineDrainer pipelineDrainer;
+
+    @Value("${mini-austin.mq.shards.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 分片数，必须与 Web 端一致
+     */
+    @Value("${mini-austin.mq.shards.count:16}")
+    private int shardCount;
+
+    @Value("${mini-austin.mq.queue:austin-send-queue}")
+    private String queue;
+
+    @Value("${mini-austin.mq.shards.member-key:austin:handler:shard:members}")
+    private String memberKey;
+
+    /**
+     * 心跳间隔（毫秒），同时也是检查重新分配的间隔
+     */
+    @Value("${mini-austin.mq.shards.heartbeat-ms:5000}")
+    private long heartbeatMs;
+
+    /**
+     * 超过该时间没有心跳的实例视为已下线（毫秒）
+     */
+    @Value("${mini-austin.mq.shards.member-ttl-ms:15000}")
+    private long memberTtlMs;
+
+    private final String instanceId = NetUtil.getLocalhostStr() + "-" + IdUtil.fastSimpleUUID().substring(0, 8);
+
+    private volatile Set<Integer> owned = Collections.emptySet();
+
+    private final AtomicInteger memberCount = new AtomicInteger();
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    private Counter rebalanceCounter;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+
+        // 启动时同步加入成员表，监听容器创建时即可拿到初始分片（见 initialQueues）；
+        // Redis 不可用时不阻止启动：分片容器先不监听任何分片，由后续心跳分配
+        List<String> members = initialMembers();
+        owned = members.isEmpty() ? Collections.emptySet() : ReceiverShards.assign(instanceId, members, shardCount);
+
+        Gauge.builder("austin.handler.shards.owned", this, o -> o.owned.size())
+                .description("本实例负责的分片数")
+                .register(meterRegistry);
+        Gauge.builder("austin.handler.shards.members", memberCount, AtomicInteger::get)
+                .description("存活的 Handler 实例数")
+                .register(meterRegistry);
+        rebalanceCounter = Counter.builder("austin.handler.shards.rebalance")
+                .description("分片重新分配次数")
+                .register(meterRegistry);
+
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shard-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+
+        log.info("接收者分片初始化: instance={}, members={}, shards={}", instanceId, members.size(), owned);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (heartbeatExecutor == null) {
+            return;
+        }
+        heartbeatExecutor.shutdownNow();
+        try {
+            redisTemplate.opsForZSet().remove(memberKey, instanceId);
+            log.info("退出分片成员表: instance={}", instanceId);
+        } catch (Exception e) {
+            log.warn("退出分片成员表失败，等待心跳超时: instance={}", instanceId, e);
+        }
+    }
+
+    /**
+     * 分片监听容器的初始队列（未开启分片时为空）
+     */
+    public String[] initialQueues() {
+        return queueNames(owned);
+    }
+
+    /**
+     * 心跳；分片有变化时修改监听容器的队列
+     */
+    private void heartbeat() {
+        try {
+            List<String> members = heartbeatOnce();
+            Set<Integer> assigned = ReceiverShards.assign(instanceId, members, shardCount);
+            if (assigned.equals(owned)) {
+                return;
+            }
+
+            MessageListenerContainer container = listenerEndpointRegistry.getListenerContainer(LISTENER_ID);
+            if (!(container instanceof AbstractMessageListenerContainer)) {
+                // 容器尚未注册，下一次心跳再试
+                return;
+            }
+
+            // 让出的分片：本地还没执行的任务交还给 Broker，由新属主消费
+            Set<Integer> released = new HashSet<>(owned);
+            released.removeAll(assigned);
+            int handedOver = pipelineDrainer.releaseShards(released);
+            ((AbstractMessageListenerContainer) container).setQueueNames(queueNames(assigned));
+            handedOver += pipelineDrainer.releaseShards(released);
+
+            log.info("分片重新分配: instance={}, members={}, before={}, after={}, handedOver={}",
+                    instanceId, members.size(), owned, assigned, handedOver);
+            owned = assigned;
+            rebalanceCounter.increment();
+        } catch (Exception e) {
+            // Redis 暂时不可用：保持当前分片
+            log.warn("分片成员心跳失败，保持当前分片: instance={}, shards={}", instanceId, owned, e);
+        }
+    }
+
+    /**
+     * 启动时加入成员表，失败时重试 INIT_ATTEMPTS 次
+     *
+     * @return 存活成员；全部失败时返回空列表
+     */
+    private List<String> initialMembers() {
+        for (int attempt = 1; attempt <= INIT_ATTEMPTS; attempt++) {
+            try {
+                return heartbeatOnce();
+            } catch (Exception e) {
+                log.warn("加入分片成员表失败: instance={}, attempt={}/{}", instanceId, attempt, INIT_ATTEMPTS, e);
+            }
+            if (attempt < INIT_ATTEMPTS) {
+                try {
+                    Thread.sleep(Math.min(heartbeatMs, INIT_RETRY_MAX_BACKOFF_MS) * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        log.error("启动时无法加入分片成员表，暂不监听任何分片，等待下一次心跳: instance={}", instanceId);
+        return Collections.emptyList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> heartbeatOnce() {
+        long now = System.currentTimeMillis();
+        List<String> members = redisTemplate.execute(HEARTBEAT_SCRIPT, Collections.singletonList(memberKey),
+                String.valueOf(now), instanceId, String.valueOf(now - memberTtlMs), String.valueOf(memberTtlMs * 2));
+        if (members == null) {
+            throw new IllegalStateException("读取分片成员表失败: key=" + memberKey);
+        }
+        memberCount.set(members.size());
+        return members;
+    }
+
+    private String[] queueNames(Set<Integer> shards) {
+        return shards.stream().map(shard -> ReceiverShards.resolve(queue, shard)).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,212 @@
+package com.mini.austin.handler.action;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.mini.austin.common.codec.ContentFingerprint;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.handler.dedup.DedupStore;
+import com.mini.austin.handler.dedup.KeyDedupStore;
+import com.mini.austin.handler.dedup.LocalDedupStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 去重延迟 vs 接收者数：逐个 hasKey + set（改造前）vs KeyDedupStore（SET NX EX + Pipeline）
+ * <p>
+ * 每轮构造一个全新接收者的任务（全部写入，最坏情况），经 DeduplicationAction.process 完整走一遍，
+ * 统计每个任务的去重耗时 p50 / p99；再用同一批接收者重放一次，确认第二次全部被过滤
+ * <p>
+ * 需要一个可写的 Redis（只写 austin:dedup: 前缀、60 秒过期的 Key，不清库），例如本地起一个临时实例：
+ * redis-server --port 6399 --save '' --appendonly no
+ * <p>
+ * 不在默认测试集中（类名不以 Test 结尾），连不上 Redis 时跳过，手动运行：
+ * mvn -pl mini-austin-handler test -Dtest=DeduplicationActionBenchmark -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark.redis.port=6399
+ *
+ * @author mini-austin
+ */
+class DeduplicationActionBenchmark {
+
+    private static final int[] RECEIVER_COUNTS = {1, 10, 100, 1000, 5000};
+
+    /**
+     * 每种规模预热 / 统计的接收者总数（轮数 = 总数 / 接收者数，至少 MIN_ROUNDS 轮）
+     */
+    private static final int WARMUP_RECEIVERS = 20_000;
+
+    private static final int MEASURE_RECEIVERS = 50_000;
+
+    private static final int MIN_ROUNDS = 10;
+
+    private static final long EXPIRE_SECONDS = 60;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    /**
+     * 没有 Spring Boot 的日志配置时 logback 默认 DEBUG，Lettuce 每条命令都打日志，测到的就是日志耗时
+     */
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("benchmark.redis.host", "localhost"),
+                Integer.getInteger("benchmark.redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        try {
+            redisTemplate.execute(connection -> connection.ping(), true);
+        } catch (Exception e) {
+            Assumptions.assumeTrue(false, "Redis 不可用，跳过: " + e.getMessage());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void latencyByReceiverCount() {
+        KeyDedupStore pipelined = new KeyDedupStore();
+        ReflectionTestUtils.setField(pipelined, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(pipelined, "expireSeconds", EXPIRE_SECONDS);
+
+        DeduplicationAction legacyAction = action(new LegacyDedupStore(redisTemplate), "legacy");
+        DeduplicationAction pipelinedAction = action(pipelined, "key");
+
+        System.out.printf("redis=%s:%d%n", connectionFactory.getHostName(), connectionFactory.getPort());
+        for (int receivers : RECEIVER_COUNTS) {
+            report("hasKey+set", receivers, run(legacyAction, receivers));
+            report("SET NX + pipeline", receivers, run(pipelinedAction, receivers));
+        }
+    }
+
+    /**
+     * @return 每轮首次去重的耗时（纳秒）
+     */
+    private static long[] run(DeduplicationAction action, int receivers) {
+        int warmupRounds = Math.max(MIN_ROUNDS, WARMUP_RECEIVERS / receivers);
+        long[] latencies = new long[Math.max(MIN_ROUNDS, MEASURE_RECEIVERS / receivers)];
+        for (int round = -warmupRounds; round < latencies.length; round++) {
+            Set<String> receiverSet = receivers(receivers);
+
+            long start = System.nanoTime();
+            ProcessContext<TaskInfo> first = process(action, receiverSet);
+            long elapsed = System.nanoTime() - start;
+            assertThat(first.getProcessModel().getReceiver()).hasSize(receivers);
+
+            ProcessContext<TaskInfo> replay = process(action, receiverSet);
+            assertThat(replay.getNeedBreak()).isTrue();
+
+            if (round >= 0) {
+                latencies[round] = elapsed;
+            }
+        }
+        return latencies;
+    }
+
+    private static ProcessContext<TaskInfo> process(DeduplicationAction action, Set<String> receivers) {
+        TaskInfo taskInfo = TaskInfo.builder()
+                .messageId("bench")
+                .messageTemplateId(1L)
+                .receiver(new HashSet<>(receivers))
+                .build();
+        ProcessContext<TaskInfo> context = ProcessContext.<TaskInfo>builder()
+                .processModel(taskInfo)
+                .needBreak(false)
+                .build();
+        action.process(context);
+        return context;
+    }
+
+    private static void report(String name, int receivers, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%-18s receivers=%5d  rounds=%5d  p50=%9.2fms  p99=%9.2fms  per-receiver=%7.1fus%n",
+                name, receivers, latencies.length, latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                latencies[latencies.length / 2] / 1e3 / receivers);
+    }
+
+    /**
+     * 一批从未出现过的接收者
+     */
+    private static Set<String> receivers(int count) {
+        long base = System.nanoTime();
+        Set<String> receivers = new LinkedHashSet<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            receivers.add("bench-" + base + "-" + i);
+        }
+        return receivers;
+    }
+
+    private static DeduplicationAction action(DedupStore store, String mode) {
+        DeduplicationAction action = new DeduplicationAction();
+        ReflectionTestUtils.setField(action, "stores", List.of(store));
+        ReflectionTestUtils.setField(action, "mode", mode);
+        // 本地去重关闭（mock 的 isEnabled 返回 false），每次都访问 Redis
+        ReflectionTestUtils.setField(action, "localStore", mock(LocalDedupStore.class));
+        action.init();
+        return action;
+    }
+
+    /**
+     * 改造前的做法：每个接收者 hasKey + set 两次往返（非原子）
+     */
+    private static final class LegacyDedupStore implements DedupStore {
+
+        private final StringRedisTemplate redisTemplate;
+
+        private LegacyDedupStore(StringRedisTemplate redisTemplate) {
+            this.redisTemplate = redisTemplate;
+        }
+
+        @Override
+        public String mode() {
+            return "legacy";
+        }
+
+        @Override
+        public Set<String> claim(TaskInfo taskInfo, List<String> receivers) {
+            String contentHash = ContentFingerprint.of(taskInfo);
+            Set<String> result = new HashSet<>(receivers.size() * 4 / 3 + 1);
+            for (String receiver : receivers) {
+                String key = "austin:dedup:" + taskInfo.getMessageTemplateId() + ":" + receiver + ":" + contentHash;
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                    continue;
+                }
+                redisTemplate.opsForValue().set(key, "1", EXPIRE_SECONDS, TimeUnit.SECONDS);
+                result.add(receiver);
+            }
+            return result;
+        }
+
+        @Override
+        public void release(TaskInfo taskInfo, List<String> receivers) {
+            // 基准只测抢占，不会发送失败
+        }
+    }
+}
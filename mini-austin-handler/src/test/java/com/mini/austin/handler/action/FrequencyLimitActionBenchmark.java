@@ -0,0 +1,269 @@
+package com.mini.austin.handler.action;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.google.common.collect.Lists;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.pipeline.ProcessContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 频率限制 fixed（天/小时两个计数 Key）vs gcra（每个接收者一个 Hash）的实测吞吐与内存
+ * <p>
+ * 吞吐：每轮一个全新接收者的任务（全部通过，写入最多的情况），再用同一批接收者重放一次
+ * （hourMax = 1，全部被拒绝），统计每个任务的 p50 / p99 和每秒处理的接收者数
+ * <p>
+ * 内存：写入 ENTRIES 个接收者，统计 used_memory 增量 / 接收者，以及抽样 Key 的 MEMORY USAGE（SAMPLES 0）× 每个接收者的 Key 数
+ * <p>
+ * 会对 benchmark.redis.database（默认 15）执行 FLUSHDB，请使用临时实例，例如：
+ * redis-server --port 6399 --save '' --appendonly no
+ * <p>
+ * 不在默认测试集中（类名不以 Test 结尾），连不上 Redis 时跳过，手动运行：
+ * mvn -pl mini-austin-handler test -Dtest=FrequencyLimitActionBenchmark -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark.redis.port=6399
+ *
+ * @author mini-austin
+ */
+class FrequencyLimitActionBenchmark {
+
+    private static final String[] MODES = {"fixed", "gcra"};
+
+    private static final int[] RECEIVER_COUNTS = {1, 100, 1000, 5000};
+
+    /**
+     * 每种规模预热 / 统计的接收者总数（轮数 = 总数 / 接收者数，至少 MIN_ROUNDS 轮）
+     */
+    private static final int WARMUP_RECEIVERS = 20_000;
+
+    private static final int MEASURE_RECEIVERS = 100_000;
+
+    private static final int MIN_ROUNDS = 10;
+
+    private static final int ENTRIES = 1_000_000;
+
+    private static final int MEMORY_BATCH = 1000;
+
+    private static final int SAMPLE_KEYS = 1000;
+
+    /**
+     * 一批 Key 的 MEMORY USAGE 之和
+     */
+    private static final DefaultRedisScript<Long> MEMORY_USAGE_SCRIPT = new DefaultRedisScript<>(
+            "local total = 0 "
+                    + "for i = 1, #KEYS do "
+                    + "  total = total + (redis.call('memory', 'usage', KEYS[i], 'samples', 0) or 0) "
+                    + "end "
+                    + "return total", Long.class);
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    /**
+     * 没有 Spring Boot 的日志配置时 logback 默认 DEBUG，测到的就是日志耗时
+     */
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("benchmark.redis.host", "localhost"),
+                Integer.getInteger("benchmark.redis.port", 6379));
+        configuration.setDatabase(Integer.getInteger("benchmark.redis.database", 15));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        try {
+            redisTemplate.execute(RedisConnection::ping, true);
+        } catch (Exception e) {
+            Assumptions.assumeTrue(false, "Redis 不可用，跳过: " + e.getMessage());
+        }
+        flushDb();
+    }
+
+    @AfterEach
+    void tearDown() {
+        flushDb();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void throughputByReceiverCount() {
+        printServer();
+        for (int receivers : RECEIVER_COUNTS) {
+            for (String mode : MODES) {
+                FrequencyLimitAction action = action(mode);
+                int warmupRounds = Math.max(MIN_ROUNDS, WARMUP_RECEIVERS / receivers);
+                long[] first = new long[Math.max(MIN_ROUNDS, MEASURE_RECEIVERS / receivers)];
+                long[] replay = new long[first.length];
+                for (int round = -warmupRounds; round < first.length; round++) {
+                    Set<String> receiverSet = receivers(receivers);
+
+                    long start = System.nanoTime();
+                    TaskInfo passed = process(action, receiverSet);
+                    long firstElapsed = System.nanoTime() - start;
+                    assertThat(passed.getReceiver()).hasSize(receivers);
+
+                    start = System.nanoTime();
+                    TaskInfo rejected = process(action, receiverSet);
+                    long replayElapsed = System.nanoTime() - start;
+                    assertThat(rejected.getReceiver()).isEmpty();
+
+                    if (round >= 0) {
+                        first[round] = firstElapsed;
+                        replay[round] = replayElapsed;
+                    }
+                }
+                report(mode, "pass", receivers, first);
+                report(mode, "reject", receivers, replay);
+            }
+            flushDb();
+        }
+    }
+
+    @Test
+    void bytesPerReceiver() {
+        printServer();
+        measure("fixed", new String[]{"austin:freq:day:*", "austin:freq:hour:*"});
+        measure("gcra", new String[]{"austin:freq:gcra:*"});
+    }
+
+    private void measure(String mode, String[] patterns) {
+        flushDb();
+        FrequencyLimitAction action = action(mode);
+        long before = usedMemory();
+
+        long start = System.nanoTime();
+        for (int offset = 0; offset < ENTRIES; offset += MEMORY_BATCH) {
+            Set<String> receivers = new LinkedHashSet<>(MEMORY_BATCH * 4 / 3 + 1);
+            for (int i = offset; i < offset + MEMORY_BATCH; i++) {
+                receivers.add("1380" + String.format("%07d", i));
+            }
+            assertThat(process(action, receivers).getReceiver()).hasSize(MEMORY_BATCH);
+        }
+        long elapsed = System.nanoTime() - start;
+        long used = usedMemory() - before;
+
+        // 每种 Key 抽样求平均，再乘以每个接收者的 Key 数（每种各一个）
+        double keyBytesPerReceiver = 0;
+        for (String pattern : patterns) {
+            List<String> keys = scan(pattern);
+            long total = 0;
+            for (List<String> batch : Lists.partition(keys, MEMORY_BATCH)) {
+                total += redisTemplate.execute(MEMORY_USAGE_SCRIPT, batch);
+            }
+            keyBytesPerReceiver += (double) total / keys.size();
+        }
+
+        System.out.printf("%-6s receivers=%d  keys=%d  write=%6.0f receivers/s  used_memory=%6.1fMB  "
+                        + "used_memory/receiver=%7.2fB  MEMORY USAGE/receiver=%7.2fB%n",
+                mode, ENTRIES, dbSize(), ENTRIES / (elapsed / 1e9), used / 1024.0 / 1024.0,
+                (double) used / ENTRIES, keyBytesPerReceiver);
+    }
+
+    private FrequencyLimitAction action(String mode) {
+        FrequencyLimitAction action = new FrequencyLimitAction();
+        ReflectionTestUtils.setField(action, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(action, "enabled", true);
+        ReflectionTestUtils.setField(action, "mode", mode);
+        ReflectionTestUtils.setField(action, "dayMax", 5);
+        ReflectionTestUtils.setField(action, "hourMax", 1);
+        ReflectionTestUtils.setField(action, "gcraDayBurst", 5);
+        ReflectionTestUtils.setField(action, "gcraHourBurst", 1);
+        action.init();
+        return action;
+    }
+
+    private static TaskInfo process(FrequencyLimitAction action, Set<String> receivers) {
+        TaskInfo taskInfo = TaskInfo.builder()
+                .messageId("bench")
+                .messageTemplateId(1L)
+                .receiver(new LinkedHashSet<>(receivers))
+                .build();
+        action.process(ProcessContext.<TaskInfo>builder()
+                .processModel(taskInfo)
+                .needBreak(false)
+                .build());
+        return taskInfo;
+    }
+
+    private static void report(String mode, String path, int receivers, long[] latencies) {
+        Arrays.sort(latencies);
+        long p50 = latencies[latencies.length / 2];
+        System.out.printf("%-6s %-6s receivers=%5d  rounds=%6d  p50=%8.2fms  p99=%8.2fms  throughput=%9.0f receivers/s%n",
+                mode, path, receivers, latencies.length, p50 / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                receivers / (p50 / 1e9));
+    }
+
+    /**
+     * 一批从未出现过的接收者
+     */
+    private static Set<String> receivers(int count) {
+        long base = System.nanoTime();
+        Set<String> receivers = new LinkedHashSet<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            receivers.add("bench-" + base + "-" + i);
+        }
+        return receivers;
+    }
+
+    private void printServer() {
+        Properties server = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("server"));
+        Properties memory = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        System.out.printf("redis=%s, allocator=%s%n", server.getProperty("redis_version"), memory.getProperty("mem_allocator"));
+    }
+
+    private long usedMemory() {
+        Properties memory = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        return Long.parseLong(memory.getProperty("used_memory"));
+    }
+
+    private long dbSize() {
+        return redisTemplate.execute(RedisConnection::dbSize, true);
+    }
+
+    private List<String> scan(String pattern) {
+        return redisTemplate.execute((RedisCallback<List<String>>) connection -> {
+            List<String> keys = new ArrayList<>(SAMPLE_KEYS);
+            try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(1000).build())) {
+                while (cursor.hasNext() && keys.size() < SAMPLE_KEYS) {
+                    keys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+                }
+            }
+            return keys;
+        });
+    }
+
+    private void flushDb() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+    }
+}
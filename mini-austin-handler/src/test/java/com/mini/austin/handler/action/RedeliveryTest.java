@@ -0,0 +1,262 @@
+package com.mini.austin.handler.action;
+
+import com.mini.austin.common.codec.TaskInfoBinaryCodec;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.dto.model.SmsContentModel;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.common.enums.MessageType;
+import com.mini.austin.common.enums.RespStatusEnum;
+import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.common.pipeline.ProcessController;
+import com.mini.austin.common.pipeline.ProcessTemplate;
+import com.mini.austin.common.vo.BasicResultVO;
+import com.mini.austin.handler.dedup.BloomDedupStore;
+import com.mini.austin.handler.dedup.BucketDedupStore;
+import com.mini.austin.handler.dedup.DedupStore;
+import com.mini.austin.handler.dedup.KeyDedupStore;
+import com.mini.austin.handler.dedup.LocalDedupStore;
+import com.mini.austin.handler.handler.Handler;
+import com.mini.austin.handler.handler.HandlerHolder;
+import com.mini.austin.handler.retry.RetryPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 首次发送失败、nack 重新投递：真实的频率限制、去重、敏感词、发送 Action 串成责任链，同一条 MQ 消息投递两次
+ * <p>
+ * 第一次投递 B 发送失败（未启用重试），A 成功；重新投递时 A 被去重过滤，B 必须再发一次，
+ * 而且频率计数只算一次（hourMax = 1，退还失败的话第二次会被限流）
+ * <p>
+ * Redis 存储的用例需要一个可写的 Redis（只写唯一的模板 ID / 接收者，不清库），连不上时跳过：
+ * mvn -pl mini-austin-handler test -Dtest=RedeliveryTest -Dtest.redis.port=6399
+ *
+ * @author mini-austin
+ */
+class RedeliveryTest {
+
+    private static final String A = "13800000001";
+
+    private static final String B = "13800000002";
+
+    private final List<Set<String>> handled = new ArrayList<>();
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    private FrequencyLimitAction frequencyLimitAction;
+
+    private DeduplicationAction deduplicationAction;
+
+    private LocalDedupStore localStore;
+
+    private DedupStore redisStore;
+
+    /**
+     * 每个用例独立的模板 ID，Redis 里的去重 / 频率记录互不影响
+     */
+    private final long templateId = System.nanoTime();
+
+    @BeforeEach
+    void setUp() {
+        frequencyLimitAction = new FrequencyLimitAction();
+        ReflectionTestUtils.setField(frequencyLimitAction, "enabled", false);
+
+        localStore = new LocalDedupStore();
+        ReflectionTestUtils.setField(localStore, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(localStore, "enabled", false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void localDedupReleasesFailedReceivers() {
+        ReflectionTestUtils.setField(localStore, "enabled", true);
+        ReflectionTestUtils.setField(localStore, "memoryMb", 1L);
+        ReflectionTestUtils.setField(localStore, "writeThrough", false);
+        ReflectionTestUtils.setField(localStore, "segments", 4);
+        ReflectionTestUtils.setField(localStore, "expireSeconds", 300L);
+        localStore.init();
+        // write-through=false 时不访问 Redis 存储
+        initDeduplication(new KeyDedupStore(), "key");
+
+        assertRedeliverySendsOnlyFailedReceiver();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"key, fixed", "bucket, fixed", "bloom, fixed", "key, gcra", "bloom, gcra"})
+    void redisStoresReleaseFailedReceivers(String dedupMode, String frequencyMode) {
+        connectRedis();
+
+        ReflectionTestUtils.setField(frequencyLimitAction, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(frequencyLimitAction, "enabled", true);
+        ReflectionTestUtils.setField(frequencyLimitAction, "mode", frequencyMode);
+        ReflectionTestUtils.setField(frequencyLimitAction, "dayMax", 5);
+        ReflectionTestUtils.setField(frequencyLimitAction, "hourMax", 1);
+        ReflectionTestUtils.setField(frequencyLimitAction, "gcraDayBurst", 1);
+        ReflectionTestUtils.setField(frequencyLimitAction, "gcraHourBurst", 1);
+        frequencyLimitAction.init();
+
+        initDeduplication(redisStore(dedupMode), dedupMode);
+
+        assertRedeliverySendsOnlyFailedReceiver();
+    }
+
+    private void assertRedeliverySendsOnlyFailedReceiver() {
+        ProcessController controller = controller();
+        byte[] message = TaskInfoBinaryCodec.encode(Collections.singletonList(TaskInfo.builder()
+                .messageId("m1")
+                .messageTemplateId(templateId)
+                .sendChannel(ChannelType.SMS.getCode())
+                .msgType(MessageType.NOTICE.getCode())
+                .receiver(new HashSet<>(Arrays.asList(A, B)))
+                // 敏感词替换发生在去重之后，释放时的条目必须与抢占时一致
+                .contentModel(SmsContentModel.builder().content("拒绝赌博 " + templateId).build())
+                .build()));
+
+        // 第一次投递：B 失败、没有重试 -> 失败响应（批量模式 nack 重新入队）
+        ProcessContext<TaskInfo> first = deliver(controller, message);
+        assertThat(first.getResponse().getStatus()).isEqualTo(RespStatusEnum.FAIL.getCode());
+
+        // 重新投递：A 已发送被去重过滤，B 再发一次
+        ProcessContext<TaskInfo> redelivered = deliver(controller, message);
+        assertThat(redelivered.getResponse().getStatus()).isEqualTo(RespStatusEnum.SUCCESS.getCode());
+        assertThat(handled).containsExactly(Set.of(A, B), Set.of(B));
+
+        // 再投递一次：两个接收者都已发送，全部被过滤，不再调用 Handler
+        ProcessContext<TaskInfo> duplicate = deliver(controller, message);
+        assertThat(duplicate.getNeedBreak()).isTrue();
+        assertThat(handled).hasSize(2);
+    }
+
+    private ProcessContext<TaskInfo> deliver(ProcessController controller, byte[] message) {
+        ProcessContext<TaskInfo> context = ProcessContext.<TaskInfo>builder()
+                .code("send")
+                .processModel(TaskInfoBinaryCodec.decode(message).get(0))
+                .needBreak(false)
+                .response(BasicResultVO.success())
+                .build();
+        controller.process(context);
+        return context;
+    }
+
+    private ProcessController controller() {
+        SensitiveWordsAction sensitiveWordsAction = new SensitiveWordsAction();
+        ReflectionTestUtils.setField(sensitiveWordsAction, "enabled", true);
+        ReflectionTestUtils.setField(sensitiveWordsAction, "replacement", "*");
+        sensitiveWordsAction.init();
+
+        RetryPublisher retryPublisher = new RetryPublisher();
+        ReflectionTestUtils.setField(retryPublisher, "enabled", false);
+
+        HandlerHolder handlerHolder = new HandlerHolder();
+        handlerHolder.putHandler(ChannelType.SMS.getCode(), new FailFirstB());
+
+        SendMessageAction sendMessageAction = new SendMessageAction();
+        ReflectionTestUtils.setField(sendMessageAction, "handlerHolder", handlerHolder);
+        ReflectionTestUtils.setField(sendMessageAction, "retryPublisher", retryPublisher);
+        ReflectionTestUtils.setField(sendMessageAction, "frequencyLimitAction", frequencyLimitAction);
+        ReflectionTestUtils.setField(sendMessageAction, "deduplicationAction", deduplicationAction);
+
+        ProcessTemplate template = new ProcessTemplate();
+        template.setProcessList(Arrays.asList(frequencyLimitAction, deduplicationAction, sensitiveWordsAction, sendMessageAction));
+        ProcessController controller = new ProcessController();
+        controller.setTemplateConfig(Map.of("send", template));
+        return controller;
+    }
+
+    private void initDeduplication(DedupStore store, String mode) {
+        deduplicationAction = new DeduplicationAction();
+        ReflectionTestUtils.setField(deduplicationAction, "stores", List.of(store));
+        ReflectionTestUtils.setField(deduplicationAction, "mode", mode);
+        ReflectionTestUtils.setField(deduplicationAction, "localStore", localStore);
+        deduplicationAction.init();
+    }
+
+    private DedupStore redisStore(String mode) {
+        switch (mode) {
+            case "bucket":
+                BucketDedupStore bucket = new BucketDedupStore();
+                ReflectionTestUtils.setField(bucket, "expectedEntries", 10_000L);
+                ReflectionTestUtils.setField(bucket, "intsetMaxEntries", 512);
+                redisStore = bucket;
+                break;
+            case "bloom":
+                BloomDedupStore bloom = new BloomDedupStore();
+                ReflectionTestUtils.setField(bloom, "expectedEntries", 10_000L);
+                ReflectionTestUtils.setField(bloom, "falsePositiveRate", 0.001);
+                redisStore = bloom;
+                break;
+            default:
+                redisStore = new KeyDedupStore();
+        }
+        ReflectionTestUtils.setField(redisStore, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(redisStore, "expireSeconds", 300L);
+        if (redisStore instanceof BucketDedupStore) {
+            ((BucketDedupStore) redisStore).init();
+        } else if (redisStore instanceof BloomDedupStore) {
+            ((BloomDedupStore) redisStore).init();
+        }
+        return redisStore;
+    }
+
+    private void connectRedis() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("test.redis.host", "localhost"),
+                Integer.getInteger("test.redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        try {
+            redisTemplate.execute(RedisConnection::ping, true);
+        } catch (Exception e) {
+            Assumptions.assumeTrue(false, "Redis 不可用，跳过: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 第一次调用时 B 发送失败（receiver 收窄为 B），之后都成功
+     */
+    private final class FailFirstB implements Handler {
+
+        @Override
+        public boolean doHandler(TaskInfo taskInfo) {
+            handled.add(new HashSet<>(taskInfo.getReceiver()));
+            if (handled.size() == 1) {
+                taskInfo.setReceiver(new HashSet<>(Collections.singletonList(B)));
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Integer getChannelCode() {
+            return ChannelType.SMS.getCode();
+        }
+    }
+}
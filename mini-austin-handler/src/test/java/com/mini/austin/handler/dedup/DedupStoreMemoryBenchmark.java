@@ -0,0 +1,190 @@
+package com.mini.austin.handler.dedup;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.google.common.collect.Lists;
+import com.mini.austin.common.domain.TaskInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 各去重存储模式的实测内存（字节 / 条）
+ * <p>
+ * 每种模式写入 ENTRIES 个不同接收者（expected-entries 同为 ENTRIES），统计两个口径：
+ * <ul>
+ *     <li>used_memory 增量 / 条目数：包含主字典、过期字典、rehash 中的哈希表等全部开销</li>
+ *     <li>MEMORY USAGE（SAMPLES 0）/ 条目数：只算 Key 本身（key 模式抽样 SAMPLE_KEYS 个取平均）</li>
+ * </ul>
+ * <p>
+ * 会对 benchmark.redis.database（默认 15）执行 FLUSHDB，请使用临时实例，例如：
+ * redis-server --port 6399 --save '' --appendonly no
+ * <p>
+ * 不在默认测试集中（类名不以 Test 结尾），连不上 Redis 时跳过，手动运行：
+ * mvn -pl mini-austin-handler test -Dtest=DedupStoreMemoryBenchmark -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark.redis.port=6399
+ *
+ * @author mini-austin
+ */
+class DedupStoreMemoryBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+
+    private static final int BATCH = 1000;
+
+    private static final int SAMPLE_KEYS = 1000;
+
+    /**
+     * 窗口取长一些，避免写入过程中跨过桶边界
+     */
+    private static final long EXPIRE_SECONDS = 3600;
+
+    /**
+     * 一批 Key 的 MEMORY USAGE 之和（SAMPLES 0：聚合类型逐个元素精确统计）
+     */
+    private static final DefaultRedisScript<Long> MEMORY_USAGE_SCRIPT = new DefaultRedisScript<>(
+            "local total = 0 "
+                    + "for i = 1, #KEYS do "
+                    + "  total = total + (redis.call('memory', 'usage', KEYS[i], 'samples', 0) or 0) "
+                    + "end "
+                    + "return total", Long.class);
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("benchmark.redis.host", "localhost"),
+                Integer.getInteger("benchmark.redis.port", 6379));
+        configuration.setDatabase(Integer.getInteger("benchmark.redis.database", 15));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        try {
+            redisTemplate.execute(RedisConnection::ping, true);
+        } catch (Exception e) {
+            Assumptions.assumeTrue(false, "Redis 不可用，跳过: " + e.getMessage());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        flushDb();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void bytesPerEntry() {
+        Properties server = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("server"));
+        Properties memory = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        System.out.printf("redis=%s, allocator=%s, entries=%d%n",
+                server.getProperty("redis_version"), memory.getProperty("mem_allocator"), ENTRIES);
+
+        KeyDedupStore key = new KeyDedupStore();
+        ReflectionTestUtils.setField(key, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(key, "expireSeconds", EXPIRE_SECONDS);
+        measure(key, "austin:dedup:[0-9]*", true);
+
+        BucketDedupStore bucket = new BucketDedupStore();
+        ReflectionTestUtils.setField(bucket, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(bucket, "expireSeconds", EXPIRE_SECONDS);
+        ReflectionTestUtils.setField(bucket, "expectedEntries", (long) ENTRIES);
+        ReflectionTestUtils.setField(bucket, "intsetMaxEntries", 512);
+        bucket.init();
+        measure(bucket, "austin:dedup:s:*", false);
+
+        BloomDedupStore bloom = new BloomDedupStore();
+        ReflectionTestUtils.setField(bloom, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(bloom, "expireSeconds", EXPIRE_SECONDS);
+        ReflectionTestUtils.setField(bloom, "expectedEntries", (long) ENTRIES);
+        ReflectionTestUtils.setField(bloom, "falsePositiveRate", 0.001);
+        bloom.init();
+        measure(bloom, "austin:dedup:bf:*", false);
+    }
+
+    /**
+     * @param sample 是否只抽样 SAMPLE_KEYS 个 Key 统计 MEMORY USAGE（Key 数与条目数相同时）
+     */
+    private void measure(DedupStore store, String pattern, boolean sample) {
+        flushDb();
+        long before = usedMemory();
+
+        int claimed = 0;
+        for (int offset = 0; offset < ENTRIES; offset += BATCH) {
+            List<String> receivers = new ArrayList<>(BATCH);
+            for (int i = offset; i < offset + BATCH; i++) {
+                receivers.add("1380" + String.format("%07d", i));
+            }
+            TaskInfo taskInfo = TaskInfo.builder()
+                    .messageTemplateId(1L)
+                    .receiver(new HashSet<>(receivers))
+                    .build();
+            claimed += store.claim(taskInfo, receivers).size();
+        }
+        long used = usedMemory() - before;
+
+        List<String> keys = scan(pattern, sample ? SAMPLE_KEYS : Integer.MAX_VALUE);
+        long keyBytes = 0;
+        for (List<String> batch : Lists.partition(keys, BATCH)) {
+            keyBytes += redisTemplate.execute(MEMORY_USAGE_SCRIPT, batch);
+        }
+        double perEntryByKey = sample
+                ? (double) keyBytes / keys.size()
+                : (double) keyBytes / ENTRIES;
+
+        System.out.printf("%-6s claimed=%7d  keys=%7s  used_memory=%6.1fMB  used_memory/entry=%7.2fB  MEMORY USAGE/entry=%7.2fB%n",
+                store.mode(), claimed, sample ? "~" + ENTRIES : String.valueOf(keys.size()),
+                used / 1024.0 / 1024.0, (double) used / ENTRIES, perEntryByKey);
+        assertThat(claimed).isGreaterThan(ENTRIES * 99 / 100);
+    }
+
+    private long usedMemory() {
+        Properties memory = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        return Long.parseLong(memory.getProperty("used_memory"));
+    }
+
+    private List<String> scan(String pattern, int limit) {
+        return redisTemplate.execute((RedisCallback<List<String>>) connection -> {
+            List<String> keys = new ArrayList<>();
+            try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(1000).build())) {
+                while (cursor.hasNext() && keys.size() < limit) {
+                    keys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+                }
+            }
+            return keys;
+        });
+    }
+
+    private void flushDb() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package com.mini.austin.handler.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * LocalDedupFilter：窗口内去重、两代轮换过期、写满提前轮换
+ *
+ * @author mini-austin
+ */
+class LocalDedupFilterTest {
+
+    private static final long WINDOW = 300;
+
+    @Test
+    void duplicateWithinWindowIsRejected() {
+        LocalDedupFilter filter = new LocalDedupFilter(1 << 20, 4, WINDOW);
+        Random random = new Random(1);
+        long[] fingerprints = new long[1000];
+        long[] mixes = new long[1000];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = random.nextLong();
+            mixes[i] = random.nextLong();
+            assertThat(filter.add(fingerprints[i], mixes[i], 0)).isTrue();
+        }
+
+        for (int i = 0; i < fingerprints.length; i++) {
+            assertThat(filter.add(fingerprints[i], mixes[i], WINDOW - 1)).isFalse();
+        }
+        assertThat(filter.size()).isEqualTo(1000);
+    }
+
+    @Test
+    void removedEntriesCanBeClaimedAgainWithoutLosingTheirNeighbours() {
+        // 最小的表（64 槽）装 40 个条目，探测链很长，删除时要把后面的条目前移
+        LocalDedupFilter filter = new LocalDedupFilter(1, 1, WINDOW);
+        Random random = new Random(2);
+        long[] fingerprints = new long[40];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = random.nextLong() & 0x3FL | (long) i << 6;
+            assertThat(filter.add(fingerprints[i], 0L, 0)).isTrue();
+        }
+
+        for (int i = 0; i < fingerprints.length; i += 3) {
+            assertThat(filter.remove(fingerprints[i], 0L)).isTrue();
+        }
+        assertThat(filter.remove(fingerprints[0], 0L)).isFalse();
+        assertThat(filter.size()).isEqualTo(26);
+
+        for (int i = 0; i < fingerprints.length; i++) {
+            assertThat(filter.add(fingerprints[i], 0L, 1)).as("entry %d", i).isEqualTo(i % 3 == 0);
+        }
+    }
+
+    @Test
+    void bloomHitWithDifferentFingerprintIsNotDuplicate() {
+        LocalDedupFilter filter = new LocalDedupFilter(1 << 20, 1, WINDOW);
+
+        // 布隆位和选段只看 mix，精确集合按指纹确认
+        assertThat(filter.add(1L, 42L, 0)).isTrue();
+        assertThat(filter.add(2L, 42L, 0)).isTrue();
+        assertThat(filter.add(1L, 42L, 0)).isFalse();
+    }
+
+    @Test
+    void previousWindowStillCountsThenExpires() {
+        LocalDedupFilter filter = new LocalDedupFilter(1 << 20, 1, WINDOW);
+        assertThat(filter.add(7L, 7L, 10)).isTrue();
+
+        // 下一个桶：上一代仍在
+        assertThat(filter.add(7L, 7L, WINDOW + 10)).isFalse();
+        // 再下一个桶：记录所在的代被清空
+        assertThat(filter.add(7L, 7L, 2 * WINDOW + 10)).isTrue();
+    }
+
+    @Test
+    void gapLongerThanWindowClearsBothGenerations() {
+        LocalDedupFilter filter = new LocalDedupFilter(1 << 20, 1, WINDOW);
+        assertThat(filter.add(7L, 7L, 0)).isTrue();
+        assertThat(filter.add(8L, 8L, WINDOW)).isTrue();
+
+        assertThat(filter.add(8L, 8L, 3 * WINDOW)).isTrue();
+        assertThat(filter.add(7L, 7L, 3 * WINDOW)).isTrue();
+    }
+
+    @Test
+    void fullGenerationRotatesEarly() {
+        LocalDedupFilter filter = new LocalDedupFilter(1024, 1, WINDOW);
+        long capacity = filter.capacity();
+        Random random = new Random(2);
+
+        for (long i = 0; i <= capacity; i++) {
+            assertThat(filter.add(random.nextLong(), random.nextLong(), 0)).isTrue();
+        }
+
+        assertThat(filter.earlyRotations()).isEqualTo(1);
+        assertThat(filter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsInvalidSegmentCount() {
+        assertThatThrownBy(() -> new LocalDedupFilter(1 << 20, 3, WINDOW)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LocalDedupFilter(1 << 20, 512, WINDOW)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,114 @@
+package com.mini.austin.handler.executor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 负载测试：慢 SMTP 下平台线程池 vs 在途限流执行器
+ * <p>
+ * 邮件发送用一个每封耗时 mail-latency 的 JavaMailSender 替身模拟（SMTP 往返），
+ * 单个"监听线程"连续提交 TASKS 个任务，输出吞吐、提交到完成的 p50/p99 延迟、峰值在途数和峰值线程数：
+ * <ul>
+ *     <li>platform：与 handlerExecutor 默认配置一致（8 线程 + 128 队列 + CallerRunsPolicy）</li>
+ *     <li>bounded/virtual：BoundedVirtualThreadExecutor.create（JDK 21+，否则跳过）</li>
+ *     <li>bounded/platform：同样的在途限流，底层换成平台线程池（JDK 17 上观察限流模型，线程数即在途数）</li>
+ * </ul>
+ * <p>
+ * 不在默认测试集中（类名不以 Test 结尾），手动运行：
+ * mvn -pl mini-austin-handler test -Dtest=BoundedVirtualThreadExecutorBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ *
+ * @author mini-austin
+ */
+class BoundedVirtualThreadExecutorBenchmark {
+
+    private static final int TASKS = 2000;
+
+    private static final long MAIL_LATENCY_MS = 50;
+
+    private static final int MAX_IN_FLIGHT = 1000;
+
+    @Test
+    void slowMailLoad() throws Exception {
+        JavaMailSender mailSender = slowMailSender();
+        System.out.printf("java=%s, processors=%d, tasks=%d, mailLatency=%dms%n",
+                Runtime.version(), Runtime.getRuntime().availableProcessors(), TASKS, MAIL_LATENCY_MS);
+
+        ThreadPoolExecutor platform = new ThreadPoolExecutor(8, 8, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(128), new ThreadPoolExecutor.CallerRunsPolicy());
+        run("platform(8+128)", platform, mailSender);
+        platform.shutdown();
+
+        BoundedVirtualThreadExecutor virtual = BoundedVirtualThreadExecutor.create("bench-vt-", MAX_IN_FLIGHT);
+        if (virtual != null) {
+            run("bounded/virtual(" + MAX_IN_FLIGHT + ")", virtual, mailSender);
+            virtual.shutdown();
+        } else {
+            System.out.println("bounded/virtual: 当前 JVM 不支持虚拟线程，跳过");
+        }
+
+        ExecutorService cached = Executors.newCachedThreadPool();
+        run("bounded/platform(" + MAX_IN_FLIGHT + ")", new BoundedVirtualThreadExecutor(cached, MAX_IN_FLIGHT), mailSender);
+        cached.shutdown();
+    }
+
+    private static void run(String name, Executor executor, JavaMailSender mailSender) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long[] latencies = new long[TASKS];
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peakRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(TASKS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TASKS; i++) {
+            int index = i;
+            long submittedAt = System.nanoTime();
+            executor.execute(() -> {
+                peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                SimpleMailMessage message = new SimpleMailMessage();
+                message.setTo("user" + index + "@example.com");
+                mailSender.send(message);
+                running.decrementAndGet();
+                latencies[index] = System.nanoTime() - submittedAt;
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-26s elapsed=%6dms  throughput=%7.0f/s  p50=%6.0fms  p99=%6.0fms  peakInFlight=%4d  peakThreads=%4d%n",
+                name, TimeUnit.NANOSECONDS.toMillis(elapsed), TASKS / (elapsed / 1e9),
+                latencies[TASKS / 2] / 1e6, latencies[TASKS * 99 / 100] / 1e6,
+                peakRunning.get(), threads.getPeakThreadCount());
+    }
+
+    /**
+     * 慢邮件服务替身：每封邮件阻塞 MAIL_LATENCY_MS
+     */
+    private static JavaMailSender slowMailSender() {
+        JavaMailSender mailSender = mock(JavaMailSender.class);
+        doAnswer(invocation -> {
+            Thread.sleep(MAIL_LATENCY_MS);
+            return null;
+        }).when(mailSender).send(any(SimpleMailMessage.class));
+        return mailSender;
+    }
+}
@@ -0,0 +1,113 @@
+package com.mini.austin.handler.executor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BoundedVirtualThreadExecutor 在途限流（底层用平台线程池，JDK 17 上也能运行）
+ *
+ * @author mini-austin
+ */
+class BoundedVirtualThreadExecutorTest {
+
+    private final ExecutorService delegate = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        delegate.shutdownNow();
+    }
+
+    @Test
+    void createMatchesRuntimeSupport() {
+        BoundedVirtualThreadExecutor executor = BoundedVirtualThreadExecutor.create("test-vt-", 4);
+
+        assertThat(executor != null).isEqualTo(Runtime.version().feature() >= 21);
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void inFlightNeverExceedsLimit() throws Exception {
+        BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor(delegate, 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(2);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isLessThanOrEqualTo(3);
+        // 许可在任务返回后才归还，稍晚于 countDown
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            sleep(1);
+        }
+        assertThat(executor.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void executeBlocksCallerWhenPermitsRunOut() throws Exception {
+        BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor(delegate, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+
+        AtomicBoolean submitted = new AtomicBoolean();
+        Thread caller = new Thread(() -> {
+            executor.execute(() -> { });
+            submitted.set(true);
+        });
+        caller.start();
+        caller.join(200);
+
+        assertThat(submitted).isFalse();
+        assertThat(executor.getInFlightCount()).isEqualTo(1);
+
+        release.countDown();
+        caller.join(5000);
+        assertThat(submitted).isTrue();
+    }
+
+    @Test
+    void rejectedTaskReturnsPermit() {
+        BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor(delegate, 2);
+        delegate.shutdown();
+
+        assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.getInFlightCount()).isZero();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
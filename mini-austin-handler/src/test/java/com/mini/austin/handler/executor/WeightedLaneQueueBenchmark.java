@@ -0,0 +1,88 @@
+package com.mini.austin.handler.executor;
+
+import com.mini.austin.common.enums.MessageLane;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 营销洪峰下通知的排队延迟：单个 FIFO 队列 vs WeightedLaneQueue（9:1）
+ * <p>
+ * 8 个线程，每个任务耗时 2ms（模拟一次发送）；先积压 MARKETING 个营销任务，
+ * 再每 NOTICE_INTERVAL_MS 提交一个通知，统计通知从提交到开始执行的等待时间 p50 / p99 / max
+ * <p>
+ * 不在默认测试集中（类名不以 Test 结尾），手动运行：
+ * mvn -pl mini-austin-handler test -Dtest=WeightedLaneQueueBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ *
+ * @author mini-austin
+ */
+class WeightedLaneQueueBenchmark {
+
+    private static final int THREADS = 8;
+
+    private static final int MARKETING = 20_000;
+
+    private static final int NOTICES = 200;
+
+    private static final long NOTICE_INTERVAL_MS = 10;
+
+    private static final long TASK_MS = 2;
+
+    @Test
+    void noticeWaitUnderMarketingFlood() throws Exception {
+        System.out.printf("threads=%d, marketing=%d, notices=%d (every %dms), task=%dms%n",
+                THREADS, MARKETING, NOTICES, NOTICE_INTERVAL_MS, TASK_MS);
+        report("fifo", run(new LinkedBlockingQueue<>(MARKETING + NOTICES)));
+        report("weighted(9:1)", run(new WeightedLaneQueue(MARKETING + NOTICES, 9, 1)));
+    }
+
+    /**
+     * @return 每个通知的排队等待时间（纳秒）
+     */
+    private static long[] run(BlockingQueue<Runnable> queue) throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, queue);
+        executor.prestartAllCoreThreads();
+
+        for (int i = 0; i < MARKETING; i++) {
+            executor.execute(new LaneTask(MessageLane.LOW, WeightedLaneQueueBenchmark::send));
+        }
+
+        long[] waits = new long[NOTICES];
+        CountDownLatch noticesDone = new CountDownLatch(NOTICES);
+        for (int i = 0; i < NOTICES; i++) {
+            int index = i;
+            long submittedAt = System.nanoTime();
+            executor.execute(new LaneTask(MessageLane.HIGH, () -> {
+                waits[index] = System.nanoTime() - submittedAt;
+                send();
+                noticesDone.countDown();
+            }));
+            Thread.sleep(NOTICE_INTERVAL_MS);
+        }
+        noticesDone.await();
+
+        // 剩余营销任务不再关心，直接丢弃
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return waits;
+    }
+
+    private static void report(String name, long[] waits) {
+        Arrays.sort(waits);
+        System.out.printf("%-14s notice wait p50=%8.1fms  p99=%8.1fms  max=%8.1fms%n", name,
+                waits[waits.length / 2] / 1e6, waits[waits.length * 99 / 100] / 1e6, waits[waits.length - 1] / 1e6);
+    }
+
+    private static void send() {
+        try {
+            Thread.sleep(TASK_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mini.austin.handler.executor;
+
+import com.mini.austin.common.enums.MessageLane;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * WeightedLaneQueue：每通道独立容量、平滑加权轮询、阻塞语义
+ *
+ * @author mini-austin
+ */
+class WeightedLaneQueueTest {
+
+    @Test
+    void lanesHaveIndependentCapacity() {
+        WeightedLaneQueue queue = new WeightedLaneQueue(2, 9, 1);
+
+        assertThat(queue.offer(task(MessageLane.LOW))).isTrue();
+        assertThat(queue.offer(task(MessageLane.LOW))).isTrue();
+        assertThat(queue.offer(task(MessageLane.LOW))).isFalse();
+
+        // 营销通道满了不影响通知通道；普通 Runnable 视为高优先级
+        assertThat(queue.offer(task(MessageLane.HIGH))).isTrue();
+        assertThat(queue.offer(() -> { })).isTrue();
+        assertThat(queue.offer(task(MessageLane.HIGH))).isFalse();
+
+        assertThat(queue.size()).isEqualTo(4);
+        assertThat(queue.size(MessageLane.LOW)).isEqualTo(2);
+        assertThat(queue.remainingCapacity()).isZero();
+    }
+
+    @Test
+    void bothLanesBackloggedFollowWeights() {
+        WeightedLaneQueue queue = new WeightedLaneQueue(100, 9, 1);
+        for (int i = 0; i < 50; i++) {
+            queue.offer(task(MessageLane.LOW));
+            queue.offer(task(MessageLane.HIGH));
+        }
+
+        int low = 0;
+        for (int i = 0; i < 50; i++) {
+            if (LaneTask.laneOf(queue.poll()) == MessageLane.LOW) {
+                low++;
+            }
+        }
+
+        assertThat(low).isEqualTo(5);
+    }
+
+    @Test
+    void singleBackloggedLaneGetsEveryTake() {
+        WeightedLaneQueue queue = new WeightedLaneQueue(100, 9, 1);
+        for (int i = 0; i < 20; i++) {
+            queue.offer(task(MessageLane.LOW));
+        }
+
+        List<Runnable> drained = new ArrayList<>();
+        assertThat(queue.drainTo(drained, 10)).isEqualTo(10);
+        assertThat(drained).allMatch(task -> LaneTask.laneOf(task) == MessageLane.LOW);
+        assertThat(queue.size()).isEqualTo(10);
+    }
+
+    @Test
+    void removeAndIteratorWorkAcrossLanes() {
+        WeightedLaneQueue queue = new WeightedLaneQueue(10, 9, 1);
+        Runnable high = task(MessageLane.HIGH);
+        Runnable low = task(MessageLane.LOW);
+        queue.offer(high);
+        queue.offer(low);
+
+        assertThat(queue).containsExactlyInAnyOrder(high, low);
+        assertThat(queue.remove(low)).isTrue();
+        assertThat(queue.remove(low)).isFalse();
+        assertThat(queue.poll()).isSameAs(high);
+        assertThat(queue.poll()).isNull();
+    }
+
+    @Test
+    void takeBlocksUntilOffer() throws Exception {
+        WeightedLaneQueue queue = new WeightedLaneQueue(10, 9, 1);
+        CompletableFuture<Runnable> taken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        });
+        Thread.sleep(50);
+        assertThat(taken).isNotDone();
+
+        Runnable task = task(MessageLane.LOW);
+        queue.offer(task);
+        assertThat(taken.get(5, TimeUnit.SECONDS)).isSameAs(task);
+    }
+
+    @Test
+    void timedOfferAndPollTimeOut() throws Exception {
+        WeightedLaneQueue queue = new WeightedLaneQueue(1, 9, 1);
+        queue.offer(task(MessageLane.HIGH));
+
+        assertThat(queue.offer(task(MessageLane.HIGH), 10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNotNull();
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void rejectsWrongWeightCount() {
+        assertThatThrownBy(() -> new WeightedLaneQueue(10, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Runnable task(MessageLane lane) {
+        return new LaneTask(lane, () -> { });
+    }
+}
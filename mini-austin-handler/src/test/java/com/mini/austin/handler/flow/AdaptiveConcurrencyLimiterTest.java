@@ -0,0 +1,113 @@
+package com.mini.austin.handler.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AdaptiveConcurrencyLimiter：许可获取、乘性减、按延迟梯度增长 / 收缩
+ *
+ * @author mini-austin
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void acquireTimesOutAtLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 2.0);
+
+        assertThat(limiter.acquire(0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(limiter.acquire(0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(limiter.acquire(10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void releaseWakesWaiter() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 2.0);
+        assertThat(limiter.acquire(0, TimeUnit.MILLISECONDS)).isTrue();
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        Thread.sleep(50);
+        assertThat(waiter).isNotDone();
+
+        limiter.release(RTT, true);
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void failureBacksOffMultiplicativelyDownToMin() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 5, 100, 2.0);
+
+        limiter.acquire(0, TimeUnit.MILLISECONDS);
+        limiter.release(RTT, false);
+        assertThat(limiter.getLimit()).isEqualTo(9);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(0, TimeUnit.MILLISECONDS);
+            limiter.release(RTT, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void growsWhenSaturatedAtStableLatency() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 2.0);
+
+        for (int round = 0; round < 20; round++) {
+            saturateAndRelease(limiter, RTT);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(10).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void doesNotGrowWhenUnderused() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 2.0);
+
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire(0, TimeUnit.MILLISECONDS);
+            limiter.release(RTT, true);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAboveBaseline() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 5, 100, 2.0);
+        saturateAndRelease(limiter, RTT);
+        int baseline = limiter.getLimit();
+
+        // 延迟升到基线的 10 倍：梯度截断到 0.5，限制逐步收缩到下限
+        for (int round = 0; round < 30; round++) {
+            saturateAndRelease(limiter, 10 * RTT);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(baseline).isGreaterThanOrEqualTo(5);
+    }
+
+    /**
+     * 占满当前限制的全部许可，再以给定延迟全部归还
+     */
+    private static void saturateAndRelease(AdaptiveConcurrencyLimiter limiter, long rttNanos) throws InterruptedException {
+        int acquired = 0;
+        while (limiter.acquire(0, TimeUnit.MILLISECONDS)) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rttNanos, true);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.mini.austin.handler.flow;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.common.enums.MessageType;
+import com.mini.austin.handler.config.BulkheadProperties;
+import com.mini.austin.handler.executor.ChannelBulkheads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ConsumeCreditGate：每个执行器（及每个优先级通道）独立的信用池与暂停 / 恢复
+ *
+ * @author mini-austin
+ */
+class ConsumeCreditGateTest {
+
+    private static final Integer SMS = ChannelType.SMS.getCode();
+
+    private static final Integer EMAIL = ChannelType.EMAIL.getCode();
+
+    private final Map<String, MessageListenerContainer> containers = new LinkedHashMap<>();
+
+    private final PipelineDrainer drainer = mock(PipelineDrainer.class);
+
+    private ConsumeCreditGate gate;
+
+    @AfterEach
+    void tearDown() {
+        gate.destroy();
+    }
+
+    @Test
+    void creditsFollowTheExecutorOfTheChannel() {
+        gate = newGate(false);
+
+        assertThat(gate.poolOf(task(SMS, MessageType.NOTICE))).isEqualTo("bulkhead-sms");
+        assertThat(gate.poolOf(task(EMAIL, MessageType.MARKETING))).isEqualTo("shared");
+        assertThat(gate.poolOf(task(null, MessageType.NOTICE))).isEqualTo("shared");
+        assertThat(gate.getCredits("bulkhead-sms")).isEqualTo(4);
+        assertThat(gate.getCredits("shared")).isEqualTo(10);
+    }
+
+    @Test
+    void fullBulkheadBlocksOnlyItsOwnChannel() throws Exception {
+        gate = newGate(false);
+        gate.acquire("bulkhead-sms", 4);
+
+        // 共享执行器的信用不受影响
+        gate.acquire("shared", 10);
+
+        // 短信舱壁已满：即使总信用还有空余，也要等短信任务归还
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                gate.acquire("bulkhead-sms", 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        gate.release("shared");
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        gate.release("bulkhead-sms");
+        waiting.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void pausesWhenAnyPoolRunsLowAndResumesWhenAllRecover() throws Exception {
+        gate = newGate(false);
+        AtomicBoolean running = container("default");
+
+        gate.acquire("bulkhead-sms", 3);
+        waitUntil(() -> !running.get());
+
+        // 共享执行器也降到阈值以下，短信恢复后仍保持暂停
+        gate.acquire("shared", 8);
+        gate.release("bulkhead-sms");
+        Thread.sleep(100);
+        assertThat(running).isFalse();
+
+        for (int i = 0; i < 3; i++) {
+            gate.release("shared");
+        }
+        waitUntil(running::get);
+    }
+
+    @Test
+    void lowLaneExhaustionNeverPausesHighLaneContainer() throws Exception {
+        gate = newGate(true);
+        AtomicBoolean high = container(ConsumeCreditGate.HIGH_LANE_LISTENER_ID);
+        AtomicBoolean low = container(ConsumeCreditGate.LOW_LANE_LISTENER_ID);
+        AtomicBoolean mixed = container("default");
+
+        String marketingPool = gate.poolOf(task(EMAIL, MessageType.MARKETING));
+        String noticePool = gate.poolOf(task(EMAIL, MessageType.NOTICE));
+        assertThat(marketingPool).isEqualTo("shared.low");
+        assertThat(noticePool).isEqualTo("shared.high");
+
+        // 营销洪峰耗尽 low 通道的信用：只暂停 .low 和混合队列的容器
+        gate.acquire(marketingPool, 10);
+        waitUntil(() -> !low.get() && !mixed.get());
+        assertThat(high).isTrue();
+
+        // 通知仍有完整的队列信用，不会因营销而阻塞
+        gate.acquire(noticePool, 5);
+        gate.release(noticePool);
+        assertThat(high).isTrue();
+
+        for (int i = 0; i < 5; i++) {
+            gate.release(marketingPool);
+        }
+        waitUntil(() -> low.get() && mixed.get());
+    }
+
+    @Test
+    void laneCreditsCountThreadsOnlyOnce() throws Exception {
+        gate = newGate(true);
+        assertThat(gate.getCredits("shared.high")).isEqualTo(10);
+        assertThat(gate.getCredits("shared.low")).isEqualTo(10);
+
+        // 执行器真实容量 = 2 线程 + 2 × 8 队列：low 占满线程和自己的队列后，high 只剩自己的 8 个队列信用
+        gate.acquire("shared.low", 10);
+        gate.acquire("shared.high", 8);
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                gate.acquire("shared.high", 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        // low 先归还自己的队列信用，线程信用仍被占用，high 继续等待
+        gate.release("shared.low");
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        gate.release("shared.high");
+        waiting.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void neverResumesContainersOnceDrainStarted() throws Exception {
+        gate = newGate(false);
+        AtomicBoolean running = container("default");
+
+        gate.acquire("bulkhead-sms", 3);
+        waitUntil(() -> !running.get());
+
+        // 停机排空开始：在途任务归还信用，容器保持停止
+        when(drainer.isStopping()).thenReturn(true);
+        gate.release("bulkhead-sms");
+        Thread.sleep(100);
+        assertThat(running).isFalse();
+    }
+
+    private ConsumeCreditGate newGate(boolean lanesEnabled) {
+        RabbitListenerEndpointRegistry registry = mock(RabbitListenerEndpointRegistry.class);
+        when(registry.getListenerContainerIds()).thenAnswer(invocation -> containers.keySet());
+        when(registry.getListenerContainer(anyString())).thenAnswer(invocation -> containers.get(invocation.<String>getArgument(0)));
+
+        // 短信舱壁 2 线程 + 2 队列，其余渠道走共享执行器（2 线程 + 8 队列）
+        BulkheadProperties.Spec sms = new BulkheadProperties.Spec();
+        sms.setMaxSize(2);
+        sms.setQueueCapacity(2);
+        ChannelBulkheads bulkheads = mock(ChannelBulkheads.class);
+        when(bulkheads.getSpecs()).thenReturn(Map.of(SMS, sms));
+
+        ConsumeCreditGate creditGate = new ConsumeCreditGate();
+        ReflectionTestUtils.setField(creditGate, "listenerEndpointRegistry", registry);
+        ReflectionTestUtils.setField(creditGate, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(creditGate, "pipelineExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(creditGate, "channelBulkheads", bulkheads);
+        ReflectionTestUtils.setField(creditGate, "pipelineDrainer", drainer);
+        ReflectionTestUtils.setField(creditGate, "mode", "credit");
+        ReflectionTestUtils.setField(creditGate, "maxPoolSize", 2);
+        ReflectionTestUtils.setField(creditGate, "queueCapacity", 8);
+        ReflectionTestUtils.setField(creditGate, "lanesEnabled", lanesEnabled);
+        ReflectionTestUtils.setField(creditGate, "pauseRatio", 0.25);
+        ReflectionTestUtils.setField(creditGate, "resumeRatio", 0.5);
+        creditGate.init();
+        return creditGate;
+    }
+
+    /**
+     * 注册一个正在运行的容器
+     *
+     * @return 容器是否在运行
+     */
+    private AtomicBoolean container(String listenerId) {
+        AtomicBoolean running = new AtomicBoolean(true);
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.isAutoStartup()).thenReturn(true);
+        when(container.isRunning()).thenAnswer(invocation -> running.get());
+        doAnswer(invocation -> {
+            running.set(false);
+            return null;
+        }).when(container).stop();
+        doAnswer(invocation -> {
+            running.set(true);
+            return null;
+        }).when(container).start();
+        containers.put(listenerId, container);
+        return running;
+    }
+
+    private static TaskInfo task(Integer sendChannel, MessageType messageType) {
+        return TaskInfo.builder().sendChannel(sendChannel).msgType(messageType.getCode()).build();
+    }
+
+    /**
+     * 容器启停在控制线程异步执行
+     */
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("等待容器状态变化超时").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
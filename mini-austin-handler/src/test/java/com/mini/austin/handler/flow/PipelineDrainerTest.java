@@ -0,0 +1,144 @@
+package com.mini.austin.handler.flow;
+
+import com.mini.austin.common.codec.TaskInfoBinaryCodec;
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.MessageType;
+import com.mini.austin.common.shard.ReceiverShards;
+import com.mini.austin.handler.receiver.TaskRoutingKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * PipelineDrainer：停机、让出分片时未执行的任务按原路由键重新投递
+ *
+ * @author mini-austin
+ */
+class PipelineDrainerTest {
+
+    private static final int SHARD_COUNT = 16;
+
+    private final Map<String, List<TaskInfo>> requeued = new HashMap<>();
+
+    private TaskRoutingKeys taskRoutingKeys;
+
+    private PipelineDrainer drainer;
+
+    @BeforeEach
+    void setUp() {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(invocation -> {
+            requeued.computeIfAbsent(invocation.getArgument(1), k -> new ArrayList<>())
+                    .addAll(TaskInfoBinaryCodec.decode(invocation.<Message>getArgument(2).getBody()));
+            return null;
+        }).when(rabbitTemplate).send(eq("austin-exchange"), anyString(), any(Message.class));
+
+        taskRoutingKeys = new TaskRoutingKeys();
+        ReflectionTestUtils.setField(taskRoutingKeys, "routingKey", "austin.send");
+        ReflectionTestUtils.setField(taskRoutingKeys, "lanesEnabled", true);
+        ReflectionTestUtils.setField(taskRoutingKeys, "shardCount", SHARD_COUNT);
+
+        drainer = new PipelineDrainer();
+        ReflectionTestUtils.setField(drainer, "listenerEndpointRegistry", mock(RabbitListenerEndpointRegistry.class));
+        ReflectionTestUtils.setField(drainer, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(drainer, "taskRoutingKeys", taskRoutingKeys);
+        ReflectionTestUtils.setField(drainer, "exchange", "austin-exchange");
+        ReflectionTestUtils.setField(drainer, "consumeMode", "single");
+        ReflectionTestUtils.setField(drainer, "drainTimeoutMs", 0L);
+    }
+
+    @Test
+    void laneTasksReturnToTheirLane() {
+        CompletableFuture<Void> marketing = register("m1", MessageType.MARKETING, "13800000001");
+        CompletableFuture<Void> notice = register("m2", MessageType.NOTICE, "13800000002");
+
+        drainer.stop();
+
+        assertThat(requeued).containsOnlyKeys("austin.send.low", "austin.send.high");
+        assertThat(messageIds("austin.send.low")).containsExactly("m1");
+        assertThat(messageIds("austin.send.high")).containsExactly("m2");
+        assertThat(marketing).isCompleted();
+        assertThat(notice).isCompleted();
+    }
+
+    @Test
+    void shardTasksReturnToTheirShard() {
+        ReflectionTestUtils.setField(taskRoutingKeys, "shardsEnabled", true);
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            String receiver = "138" + String.format("%08d", i);
+            String messageId = "m" + i;
+            register(messageId, i % 2 == 0 ? MessageType.MARKETING : MessageType.NOTICE, receiver);
+            expected.computeIfAbsent(ReceiverShards.resolve("austin.send", ReceiverShards.shardOf(receiver, SHARD_COUNT)),
+                    k -> new HashSet<>()).add(messageId);
+        }
+
+        drainer.stop();
+
+        // 分片优先于通道：每个任务都回到自己的分片队列，同一分片的任务合并投递
+        assertThat(requeued.keySet()).isEqualTo(expected.keySet());
+        expected.forEach((routingKey, messageIds) -> assertThat(messageIds(routingKey)).containsExactlyInAnyOrderElementsOf(messageIds));
+    }
+
+    @Test
+    void releasedShardTasksAreHandedOverAndOthersStay() {
+        ReflectionTestUtils.setField(taskRoutingKeys, "shardsEnabled", true);
+        Map<String, CompletableFuture<Void>> results = new HashMap<>();
+        Set<String> released = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            String receiver = "138" + String.format("%08d", i);
+            String messageId = "m" + i;
+            results.put(messageId, register(messageId, MessageType.NOTICE, receiver));
+            if (ReceiverShards.shardOf(receiver, SHARD_COUNT) < SHARD_COUNT / 2) {
+                released.add(messageId);
+            }
+        }
+        Set<Integer> releasedShards = new HashSet<>();
+        for (int shard = 0; shard < SHARD_COUNT / 2; shard++) {
+            releasedShards.add(shard);
+        }
+
+        assertThat(drainer.releaseShards(releasedShards)).isEqualTo(released.size());
+
+        // 让出分片的任务回到各自的分片队列，其余任务仍留在本地等待执行
+        assertThat(requeued.values().stream().flatMap(List::stream).map(TaskInfo::getMessageId))
+                .containsExactlyInAnyOrderElementsOf(released);
+        results.forEach((messageId, result) -> assertThat(result.isDone()).as(messageId).isEqualTo(released.contains(messageId)));
+        assertThat(drainer.releaseShards(releasedShards)).isZero();
+    }
+
+    private CompletableFuture<Void> register(String messageId, MessageType messageType, String receiver) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        drainer.register(TaskInfo.builder()
+                .messageId(messageId)
+                .messageTemplateId(1L)
+                .sendChannel(30)
+                .msgType(messageType.getCode())
+                .receiver(Set.of(receiver))
+                .build(), result);
+        return result;
+    }
+
+    private List<String> messageIds(String routingKey) {
+        return requeued.get(routingKey).stream().map(TaskInfo::getMessageId).collect(Collectors.toList());
+    }
+}
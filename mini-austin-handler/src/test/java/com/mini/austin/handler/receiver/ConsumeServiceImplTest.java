@@ -0,0 +1,117 @@
+package com.mini.austin.handler.receiver;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.common.pipeline.ProcessController;
+import com.mini.austin.common.vo.BasicResultVO;
+import com.mini.austin.handler.executor.ChannelBulkheads;
+import com.mini.austin.handler.flow.ConsumeCreditGate;
+import com.mini.austin.handler.flow.PipelineDrainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ConsumeServiceImpl：责任链结果决定 Future 的完成方式（批量模式据此 ack / nack）
+ *
+ * @author mini-austin
+ */
+class ConsumeServiceImplTest {
+
+    private ProcessController processController;
+
+    private ConsumeCreditGate consumeCreditGate;
+
+    private ConsumeServiceImpl consumeService;
+
+    @BeforeEach
+    void setUp() {
+        processController = mock(ProcessController.class);
+        consumeService = new ConsumeServiceImpl();
+        ReflectionTestUtils.setField(consumeService, "processController", processController);
+        ReflectionTestUtils.setField(consumeService, "pipelineExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(consumeService, "channelBulkheads", mock(ChannelBulkheads.class));
+        consumeCreditGate = mock(ConsumeCreditGate.class);
+        ReflectionTestUtils.setField(consumeService, "consumeCreditGate", consumeCreditGate);
+        ReflectionTestUtils.setField(consumeService, "pipelineDrainer", new PipelineDrainer());
+    }
+
+    @Test
+    void completesNormallyWhenPipelineSucceeds() {
+        CompletableFuture<Void> result = consumeService.consume(taskInfo());
+
+        assertThat(result).isCompleted();
+        assertThat(result).isNotCompletedExceptionally();
+    }
+
+    @Test
+    void completesExceptionallyWhenSendFailsWithoutRetry() {
+        doAnswer(invocation -> {
+            ProcessContext<TaskInfo> context = invocation.getArgument(0);
+            context.setNeedBreak(true);
+            context.setResponse(BasicResultVO.fail("消息发送失败: messageId=1"));
+            return context;
+        }).when(processController).process(any());
+
+        CompletableFuture<Void> result = consumeService.consume(taskInfo());
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class)
+                .withMessageContaining("消息发送失败");
+    }
+
+    @Test
+    void reservesCreditsPerMessageBeforeDispatching() throws Exception {
+        when(consumeCreditGate.isEnabled()).thenReturn(true);
+        when(consumeCreditGate.poolOf(any())).thenReturn("shared");
+        when(consumeCreditGate.getCredits("shared")).thenReturn(2);
+        List<String> events = new ArrayList<>();
+        doAnswer(invocation -> events.add("acquire " + invocation.getArgument(1)))
+                .when(consumeCreditGate).acquire(eq("shared"), anyInt());
+        doAnswer(invocation -> {
+            events.add("process");
+            return invocation.getArgument(0);
+        }).when(processController).process(any());
+
+        CompletableFuture<Void> result = consumeService.consume(
+                Arrays.asList(taskInfo(), taskInfo(), taskInfo(), taskInfo(), taskInfo()));
+
+        assertThat(result).isCompleted();
+        // 超过信用总数的消息按信用总数分段预留，每段预留完成后才分发
+        assertThat(events).containsExactly(
+                "acquire 2", "process", "process",
+                "acquire 2", "process", "process",
+                "acquire 1", "process");
+        verify(consumeCreditGate, times(5)).release("shared");
+    }
+
+    private static TaskInfo taskInfo() {
+        return TaskInfo.builder()
+                .messageId("1")
+                .receiver(Collections.singleton("13800000000"))
+                .sendChannel(ChannelType.SMS.getCode())
+                .build();
+    }
+}
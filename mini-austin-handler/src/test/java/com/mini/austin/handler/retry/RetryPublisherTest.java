@@ -0,0 +1,105 @@
+package com.mini.austin.handler.retry;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.common.enums.MessageType;
+import com.mini.austin.common.shard.ReceiverShards;
+import com.mini.austin.handler.receiver.TaskRoutingKeys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * RetryPublisher：按原路由键投递、档位头与重试次数
+ *
+ * @author mini-austin
+ */
+class RetryPublisherTest {
+
+    private RetryPublisher publisher;
+
+    private RabbitTemplate rabbitTemplate;
+
+    private TaskRoutingKeys taskRoutingKeys;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new RetryPublisher();
+        rabbitTemplate = mock(RabbitTemplate.class);
+        ReflectionTestUtils.setField(publisher, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(publisher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(publisher, "enabled", true);
+        ReflectionTestUtils.setField(publisher, "maxAttempts", 2);
+        ReflectionTestUtils.setField(publisher, "delaysMs", new long[]{1000, 10000});
+        ReflectionTestUtils.setField(publisher, "retryExchange", "austin-retry-exchange");
+        taskRoutingKeys = new TaskRoutingKeys();
+        ReflectionTestUtils.setField(taskRoutingKeys, "routingKey", "austin.send");
+        ReflectionTestUtils.setField(taskRoutingKeys, "shardCount", 16);
+        ReflectionTestUtils.setField(publisher, "taskRoutingKeys", taskRoutingKeys);
+    }
+
+    @Test
+    void defaultRoutingKeyWithTierHeader() {
+        assertThat(publisher.retry(task(MessageType.NOTICE, 0))).isTrue();
+
+        Message message = sent("austin.send");
+        assertThat((String) message.getMessageProperties().getHeader(RetryPublisher.TIER_HEADER)).isEqualTo("retry.1000ms");
+    }
+
+    @Test
+    void laneTaskReturnsToItsLane() {
+        ReflectionTestUtils.setField(taskRoutingKeys, "lanesEnabled", true);
+
+        assertThat(publisher.retry(task(MessageType.MARKETING, 1))).isTrue();
+
+        Message message = sent("austin.send.low");
+        assertThat((String) message.getMessageProperties().getHeader(RetryPublisher.TIER_HEADER)).isEqualTo("retry.10000ms");
+    }
+
+    @Test
+    void shardTaskReturnsToItsShard() {
+        ReflectionTestUtils.setField(taskRoutingKeys, "lanesEnabled", true);
+        ReflectionTestUtils.setField(taskRoutingKeys, "shardsEnabled", true);
+
+        assertThat(publisher.retry(task(MessageType.NOTICE, 0))).isTrue();
+
+        sent(ReceiverShards.resolve("austin.send", ReceiverShards.shardOf("13800000000", 16)));
+    }
+
+    @Test
+    void exhaustedRetriesAreNotPublished() {
+        assertThat(publisher.retry(task(MessageType.NOTICE, 2))).isFalse();
+
+        verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class));
+    }
+
+    private Message sent(String routingKey) {
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq("austin-retry-exchange"), eq(routingKey), captor.capture());
+        return captor.getValue();
+    }
+
+    private static TaskInfo task(MessageType messageType, int retryCount) {
+        return TaskInfo.builder()
+                .messageId("m1")
+                .sendChannel(ChannelType.SMS.getCode())
+                .msgType(messageType.getCode())
+                .receiver(Set.of("13800000000"))
+                .retryCount(retryCount)
+                .build();
+    }
+}
@@ -1,38 +1,41 @@
 package com.mini.austin.web.action;
 
 import cn.hutool.core.text.StrPool;
-import cn.hutool.core.util.IdUtil;
-import cn.hutool.core.util.ReflectUtil;
-import cn.hutool.core.util.StrUtil;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mini.austin.common.domain.ContentModel;
 import com.mini.austin.common.domain.TaskInfo;
 import com.mini.austin.common.dto.MessageParam;
-import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.common.id.IdGenerationException;
+import com.mini.austin.common.id.SnowflakeIdGenerator;
 import com.mini.austin.common.enums.RespStatusEnum;
 import com.mini.austin.common.pipeline.BusinessProcess;
 import com.mini.austin.common.pipeline.ProcessContext;
 import com.mini.austin.common.vo.BasicResultVO;
-import com.mini.austin.web.dao.MessageTemplateDao;
+import com.mini.austin.web.cache.MessageTemplateCache;
 import com.mini.austin.web.domain.MessageTemplate;
 import com.mini.austin.web.domain.SendTaskModel;
+import com.mini.austin.web.template.CompiledTemplate;
+import com.mini.austin.web.template.TemplateCompiler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Field;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * 参数拼装 Action
  * <p>
  * 责任链第二个节点，负责：
- * 1. 根据 templateId 查询模板
+ * 1. 根据 templateId 查询模板（走本地缓存）
  * 2. 将模板内容中的占位符 ${xxx} 替换为实际参数
- * 3. 组装 TaskInfo 列表
+ * 3. 组装 TaskInfo 列表，渲染结果完全相同的参数合并为一个多接收者的 TaskInfo
  *
  * ★★★ 这是面试重点：如何实现模板变量替换 ★★★
+ * <p>
+ * 为什么要合并？营销群发时成千上万个参数的变量完全一样，
+ * 逐条生成 TaskInfo 会投递成千上万份几乎相同的消息，Handler 也要逐条走一遍去重/限流/发送。
+ * 合并后一个 TaskInfo 最多携带 max-fan-out 个接收者
  *
  * @author mini-austin
  */
@@ -41,17 +44,27 @@ import java.util.*;
 public class AssembleAction implements BusinessProcess<SendTaskModel> {
 
     @Autowired
-    private MessageTemplateDao messageTemplateDao;
+    private MessageTemplateCache messageTemplateCache;
+
+    @Autowired
+    private TemplateCompiler templateCompiler;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    /**
+     * 合并后单个 TaskInfo 最多携带的接收者数，小于等于 1 时不合并
+     */
+    @Value("${mini-austin.assemble.max-fan-out:100}")
+    private int maxFanOut;
 
     @Override
     public void process(ProcessContext<SendTaskModel> context) {
         SendTaskModel sendTaskModel = context.getProcessModel();
         Long templateId = sendTaskModel.getMessageTemplateId();
 
-        // 1. 查询消息模板
-        Optional<MessageTemplate> templateOpt = messageTemplateDao.findById(templateId);
+        // 1. 查询消息模板（优先读本地缓存）
+        Optional<MessageTemplate> templateOpt = messageTemplateCache.get(templateId);
         if (templateOpt.isEmpty()) {
             context.setNeedBreak(true);
             context.setResponse(BasicResultVO.fail(RespStatusEnum.TEMPLATE_NOT_FOUND));
@@ -72,45 +85,84 @@ public class AssembleAction implements BusinessProcess<SendTaskModel> {
         sendTaskModel.setMessageTemplate(template);
 
         // 2. 组装 TaskInfo 列表
-        List<TaskInfo> taskInfoList = assembleTaskInfoList(sendTaskModel, template);
+        List<TaskInfo> taskInfoList;
+        try {
+            taskInfoList = assembleTaskInfoList(sendTaskModel, template);
+        } catch (IdGenerationException e) {
+            // workerId 租约失效，宁可拒绝请求也不能生成可能重复的 ID
+            context.setNeedBreak(true);
+            context.setResponse(BasicResultVO.fail(RespStatusEnum.SERVICE_ERROR.getMsg() + "：消息ID生成失败"));
+            log.error("消息ID生成失败：templateId={}", templateId, e);
+            return;
+        }
         sendTaskModel.setTaskInfoList(taskInfoList);
 
-        log.info("参数拼装完成：templateId={}, taskCount={}", templateId, taskInfoList.size());
+        log.info("参数拼装完成：templateId={}, paramCount={}, taskCount={}",
+                templateId, sendTaskModel.getMessageParamList().size(), taskInfoList.size());
     }
 
     /**
      * 组装 TaskInfo 列表
+     * <p>
+     * 以渲染后的字段值作为合并键（精确比较，不会因哈希碰撞误合并）
+     * <p>
+     * 每个参数都有自己的消息ID：TaskInfo 第一次合并其他参数时，messageId 转为组ID，
+     * 包括第一个参数在内的每个参数各生成一个消息ID，按接收者记录在 receiverMessageIds 中
      */
     private List<TaskInfo> assembleTaskInfoList(SendTaskModel sendTaskModel, MessageTemplate template) {
+        List<MessageParam> messageParamList = sendTaskModel.getMessageParamList();
         List<TaskInfo> taskInfoList = new ArrayList<>();
+        List<String> messageIdList = new ArrayList<>(messageParamList.size());
+        Map<RenderedContent, OpenTask> openTasks = new HashMap<>();
+
+        // 模板只编译一次，所有 MessageParam 共用
+        CompiledTemplate compiledTemplate = templateCompiler.compile(template);
+        Long businessId = generateBusinessId(template.getId());
+
+        for (MessageParam messageParam : messageParamList) {
+            // ★ 核心：替换占位符
+            RenderedContent content = render(compiledTemplate, messageParam);
+            // 解析接收者（支持逗号分隔多个）
+            Set<String> receivers = parseReceiver(messageParam.getReceiver());
+
+            // 同内容且未满的 TaskInfo 直接追加接收者，该参数使用自己的消息ID
+            OpenTask openTask = maxFanOut > 1 ? openTasks.get(content) : null;
+            if (openTask != null && openTask.taskInfo.getReceiver().size() + receivers.size() <= maxFanOut) {
+                String messageId = generateMessageId();
+                openTask.merge(receivers, messageId, messageIdList, this::generateMessageId);
+                messageIdList.add(messageId);
+                continue;
+            }
 
-        for (MessageParam messageParam : sendTaskModel.getMessageParamList()) {
             TaskInfo taskInfo = TaskInfo.builder()
                     // 生成唯一消息ID（用于链路追踪）
                     .messageId(generateMessageId())
-                    // 生成业务ID（模板ID + 日期，用于数据聚合）
-                    .businessId(generateBusinessId(template.getId()))
+                    // 业务ID（模板ID + 日期，用于数据聚合）
+                    .businessId(businessId)
                     .messageTemplateId(template.getId())
-                    // 解析接收者（支持逗号分隔多个）
-                    .receiver(parseReceiver(messageParam.getReceiver()))
+                    .receiver(receivers)
                     .sendChannel(template.getSendChannel())
                     .msgType(template.getMsgType())
                     .sendAccount(template.getSendAccount())
-                    // ★ 核心：替换占位符，生成内容模型
-                    .contentModel(buildContentModel(template, messageParam))
+                    .contentModel(buildContentModel(compiledTemplate, content))
                     .build();
 
             taskInfoList.add(taskInfo);
+            if (maxFanOut > 1) {
+                openTasks.put(content, new OpenTask(taskInfo, messageIdList.size(), receivers));
+            }
+            messageIdList.add(taskInfo.getMessageId());
         }
 
+        sendTaskModel.setMessageIdList(messageIdList);
         return taskInfoList;
     }
 
     /**
-     * 生成消息唯一ID
+     * 生成消息唯一ID（雪花ID的 11 位 Base62 形式，按时间有序）
      */
     private String generateMessageId() {
-        return IdUtil.nanoId();
+        return snowflakeIdGenerator.nextIdString();
     }
 
     /**
@@ -130,76 +182,115 @@ public class AssembleAction implements BusinessProcess<SendTaskModel> {
     }
 
     /**
-     * ★★★ 核心方法：构建内容模型，替换占位符 ★★★
+     * ★★★ 核心方法：替换占位符 ★★★
      * <p>
      * 模板内容示例：{"title":"验证码","content":"您的验证码是${code}"}
      * 变量参数示例：{"code": "123456"}
      * 替换后结果：{"title":"验证码","content":"您的验证码是123456"}
+     * <p>
+     * 模板 JSON 已由 TemplateCompiler 预编译，这里只做单次遍历渲染
      */
-    private ContentModel buildContentModel(MessageTemplate template, MessageParam messageParam) {
-        // 1. 获取渠道对应的 ContentModel 类型
-        Integer sendChannel = template.getSendChannel();
-        Class<? extends ContentModel> contentModelClass = ChannelType.getContentModelClassByCode(sendChannel);
-        if (contentModelClass == null) {
-            log.error("未找到渠道对应的ContentModel：channel={}", sendChannel);
-            return null;
+    private RenderedContent render(CompiledTemplate compiledTemplate, MessageParam messageParam) {
+        if (compiledTemplate == null) {
+            return RenderedContent.EMPTY;
         }
 
-        // 2. 解析模板内容JSON（使用 Jackson）
-        String msgContent = template.getMsgContent();
-        Map<String, String> contentMap;
-        try {
-            contentMap = objectMapper.readValue(msgContent, new TypeReference<Map<String, String>>() {});
-        } catch (Exception e) {
-            log.error("解析模板内容JSON失败: {}", e.getMessage());
+        // 1. 获取用户传入的变量
+        Map<String, String> variables = messageParam.getVariables();
+        if (variables == null) {
+            variables = Collections.emptyMap();
+        }
+
+        // 2. ★ 关键：按预编译片段渲染占位符 ${xxx}
+        List<CompiledTemplate.CompiledField> fields = compiledTemplate.getFields();
+        String[] values = new String[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fields.get(i).getTemplate().render(variables);
+        }
+        return new RenderedContent(values);
+    }
+
+    /**
+     * 构建内容模型：通过绑定器创建 ContentModel 实例，并填充渲染后的字段（无反射）
+     */
+    private ContentModel buildContentModel(CompiledTemplate compiledTemplate, RenderedContent content) {
+        if (compiledTemplate == null) {
             return null;
         }
 
-        // 3. 获取用户传入的变量
-        Map<String, String> variables = messageParam.getVariables();
-        if (variables == null) {
-            variables = new HashMap<>();
+        ContentModel contentModel = compiledTemplate.getBinder().newInstance();
+        List<CompiledTemplate.CompiledField> fields = compiledTemplate.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            fields.get(i).getField().set(contentModel, content.values[i]);
         }
+        return contentModel;
+    }
 
-        // 4. 通过反射创建 ContentModel 实例，并填充字段
-        ContentModel contentModel = ReflectUtil.newInstance(contentModelClass);
-        Field[] fields = ReflectUtil.getFields(contentModelClass);
+    /**
+     * 还能继续合并参数的 TaskInfo，以及创建它的第一个参数（在 messageIdList 中的位置和接收者）
+     */
+    private static final class OpenTask {
 
-        for (Field field : fields) {
-            String fieldName = field.getName();
-            String originalValue = contentMap.get(fieldName);
+        private final TaskInfo taskInfo;
 
-            if (StrUtil.isNotBlank(originalValue)) {
-                // ★ 关键：替换占位符 ${xxx} 为实际值
-                String replacedValue = replacePlaceholder(originalValue, variables);
-                ReflectUtil.setFieldValue(contentModel, field, replacedValue);
-            }
+        private final int firstParamIndex;
+
+        private Set<String> firstReceivers;
+
+        private OpenTask(TaskInfo taskInfo, int firstParamIndex, Set<String> firstReceivers) {
+            this.taskInfo = taskInfo;
+            this.firstParamIndex = firstParamIndex;
+            this.firstReceivers = new HashSet<>(firstReceivers);
         }
 
-        return contentModel;
+        /**
+         * 追加一个参数的接收者；第一次合并时给第一个参数换一个自己的消息ID，messageId 只保留为组ID
+         */
+        private void merge(Set<String> receivers, String messageId, List<String> messageIdList,
+                           Supplier<String> idGenerator) {
+            Map<String, String> receiverMessageIds = taskInfo.getReceiverMessageIds();
+            if (receiverMessageIds == null) {
+                receiverMessageIds = new HashMap<>();
+                String firstMessageId = idGenerator.get();
+                for (String receiver : firstReceivers) {
+                    receiverMessageIds.put(receiver, firstMessageId);
+                }
+                messageIdList.set(firstParamIndex, firstMessageId);
+                taskInfo.setReceiverMessageIds(receiverMessageIds);
+                firstReceivers = null;
+            }
+            taskInfo.getReceiver().addAll(receivers);
+            // 同一接收者出现在多个参数中时只会收到一条，归属第一个参数
+            for (String receiver : receivers) {
+                receiverMessageIds.putIfAbsent(receiver, messageId);
+            }
+        }
     }
 
     /**
-     * ★★★ 占位符替换 ★★★
-     * <p>
-     * 将 "您的验证码是${code}" 中的 ${code} 替换为变量值
-     *
-     * @param content   原始内容
-     * @param variables 变量映射
-     * @return 替换后的内容
+     * 渲染结果：按字段顺序排列的字段值，作为合并键使用（哈希值只计算一次）
      */
-    private String replacePlaceholder(String content, Map<String, String> variables) {
-        if (StrUtil.isBlank(content) || variables.isEmpty()) {
-            return content;
+    private static final class RenderedContent {
+
+        private static final RenderedContent EMPTY = new RenderedContent(new String[0]);
+
+        private final String[] values;
+
+        private final int hash;
+
+        private RenderedContent(String[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
         }
 
-        // 遍历所有变量，进行替换
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            String placeholder = "${" + entry.getKey() + "}";
-            String value = entry.getValue() != null ? entry.getValue() : "";
-            content = content.replace(placeholder, value);
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof RenderedContent && Arrays.equals(values, ((RenderedContent) o).values));
         }
 
-        return content;
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
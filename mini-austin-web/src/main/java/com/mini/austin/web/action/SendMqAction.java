@@ -1,27 +1,59 @@
 package com.mini.austin.web.action;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.mini.austin.common.codec.TaskInfoBinaryCodec;
 import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.MessageLane;
 import com.mini.austin.common.enums.RespStatusEnum;
 import com.mini.austin.common.pipeline.BusinessProcess;
 import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.common.shard.ReceiverShards;
 import com.mini.austin.common.vo.BasicResultVO;
 import com.mini.austin.web.domain.SendTaskModel;
 import com.mini.austin.web.mq.RabbitMqService;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
  * 发送MQ Action
  * <p>
  * 责任链最后一个节点，负责：
- * 1. 将 TaskInfo 序列化为 JSON
- * 2. 投递到 RabbitMQ
- * 3. 返回 messageId 列表给调用方
+ * 1. 将 TaskInfo 按接收者分片或优先级通道分组，再按条数/字节数拆分成多个分块
+ * 2. 各分块并行序列化（JSON 或紧凑二进制）并投递到 RabbitMQ
+ * 3. 所有分块都被 Broker 接收后（confirm 模式下以 ack 为准），返回 messageId 列表给调用方；
+ *    超时或部分失败时取消剩余投递，返回 PARTIAL_SUCCESS 和成功 / 失败的 messageId
+ * <p>
+ * 为什么要分块？一个超大消息只能在请求线程上串行序列化，
+ * 并且只会落到一个消费者上，下游完全失去并行度
  *
  * @author mini-austin
  */
@@ -29,36 +61,304 @@ import java.util.stream.Collectors;
 @Component
 public class SendMqAction implements BusinessProcess<SendTaskModel> {
 
+    private static final String CODEC_BINARY = "binary";
+
     @Autowired
     private RabbitMqService rabbitMqService;
 
+    @Autowired
+    private ThreadPoolExecutor mqPublishExecutor;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * 每个 MQ 消息最多包含的 TaskInfo 数
+     */
+    @Value("${mini-austin.mq.publish.chunk-size:200}")
+    private int chunkSize;
+
+    /**
+     * 每个 MQ 消息的最大字节数（单个 TaskInfo 超出时独占一个消息）
+     */
+    @Value("${mini-austin.mq.publish.chunk-bytes:524288}")
+    private int chunkBytes;
+
+    /**
+     * 等待所有分块投递完成的超时时间（毫秒）
+     */
+    @Value("${mini-austin.mq.publish.timeout-ms:10000}")
+    private long publishTimeoutMs;
+
+    /**
+     * 消息格式：json / binary
+     * 切换为 binary 前需确保所有 Handler 节点都已支持二进制格式
+     */
+    @Value("${mini-austin.mq.publish.codec:json}")
+    private String codec;
+
+    @Value("${mini-austin.mq.routing-key:austin.send}")
+    private String routingKey;
+
+    /**
+     * 是否按 msgType 投递到不同优先级通道
+     */
+    @Value("${mini-austin.mq.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    /**
+     * 是否按接收者投递到分片队列（优先于优先级通道）
+     */
+    @Value("${mini-austin.mq.shards.enabled:false}")
+    private boolean shardsEnabled;
+
+    /**
+     * 分片数，必须与 Handler 端一致
+     */
+    @Value("${mini-austin.mq.shards.count:16}")
+    private int shardCount;
+
     @Override
     public void process(ProcessContext<SendTaskModel> context) {
         SendTaskModel sendTaskModel = context.getProcessModel();
         List<TaskInfo> taskInfoList = sendTaskModel.getTaskInfoList();
 
-        try {
-            // 1. 序列化 TaskInfo 列表（使用 Jackson）
-            String message = objectMapper.writeValueAsString(taskInfoList);
-
-            // 2. 投递到 RabbitMQ
-            rabbitMqService.send(message);
+        // 按请求参数顺序返回 messageId（每个参数一个）
+        List<String> messageIds = sendTaskModel.getMessageIdList() != null
+                ? sendTaskModel.getMessageIdList()
+                : taskInfoList.stream().map(TaskInfo::getMessageId).collect(Collectors.toList());
 
-            // 3. 提取所有 messageId 作为响应
-            List<String> messageIds = taskInfoList.stream()
-                    .map(TaskInfo::getMessageId)
-                    .collect(Collectors.toList());
+        // 1. 按条数拆分，分块并行序列化 + 投递；超时或部分失败时取消剩余投递
+        PublishResult result = publish(taskInfoList);
 
+        if (result.failedMessageIds.isEmpty()) {
             context.setResponse(BasicResultVO.success(messageIds));
+            log.info("消息投递MQ成功：paramCount={}, taskCount={}, mqMessageCount={}",
+                    messageIds.size(), taskInfoList.size(), result.acceptedMessages);
+            log.debug("消息投递MQ成功：messageIds={}", messageIds);
+            return;
+        }
+
+        // 2. 部分失败：参数的接收者所在的 TaskInfo 全部被 Broker 接收才算成功，成功/失败的 messageId 分别返回
+        List<String> acceptedIds = new ArrayList<>(messageIds.size());
+        List<String> failedIds = new ArrayList<>();
+        for (String messageId : messageIds) {
+            (result.failedMessageIds.contains(messageId) ? failedIds : acceptedIds).add(messageId);
+        }
+        sendTaskModel.setFailedMessageIdList(failedIds);
+        context.setNeedBreak(true);
+        if (acceptedIds.isEmpty()) {
+            context.setResponse(BasicResultVO.fail(RespStatusEnum.SERVICE_ERROR.getMsg() + "：MQ投递失败"));
+        } else {
+            BasicResultVO<List<String>> response = new BasicResultVO<>(RespStatusEnum.PARTIAL_SUCCESS, acceptedIds);
+            response.setMsg(RespStatusEnum.PARTIAL_SUCCESS.getMsg() + "：MQ投递成功" + acceptedIds.size()
+                    + "条，失败" + failedIds.size() + "条");
+            context.setResponse(response);
+        }
+        log.error("消息投递MQ失败：paramCount={}, acceptedParams={}, failedParams={}, mqMessageCount={}, failedMqMessages={}",
+                messageIds.size(), acceptedIds.size(), failedIds.size(), result.acceptedMessages, result.failedMessages,
+                result.cause);
+    }
+
+    /**
+     * 分块投递，等待所有分块被 Broker 接收（最多 publishTimeoutMs）
+     * <p>
+     * 超时或任意分块失败时：还没开始的分块不再投递，还在等待确认 / 重试的消息被取消（归还确认窗口许可），
+     * 只有已确认的 MQ 消息计为成功。取消瞬间正在发出的消息可能仍会到达 Broker，
+     * 它们按失败上报（调用方重试时由下游去重兜底），不会出现"报成功但没投递"的情况
+     *
+     * @return 成功与失败的统计
+     */
+    private PublishResult publish(List<TaskInfo> taskInfoList) {
+        // 按路由键分组：接收者分片 > 优先级通道 > 默认路由键
+        Map<String, List<TaskInfo>> groups = new LinkedHashMap<>();
+        for (TaskInfo taskInfo : taskInfoList) {
+            if (shardsEnabled) {
+                splitByShard(taskInfo, groups);
+            } else {
+                String key = lanesEnabled ? MessageLane.of(taskInfo.getMsgType()).resolve(routingKey) : routingKey;
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(taskInfo);
+            }
+        }
 
-            log.info("消息投递MQ成功：messageIds={}", messageIds);
+        List<String> routingKeys = new ArrayList<>();
+        List<List<TaskInfo>> partitions = new ArrayList<>();
+        for (Map.Entry<String, List<TaskInfo>> entry : groups.entrySet()) {
+            for (List<TaskInfo> partition : Lists.partition(entry.getValue(), chunkSize)) {
+                routingKeys.add(entry.getKey());
+                partitions.add(partition);
+            }
+        }
 
+        // 每条消息的确认与重试都不晚于本次请求的截止时间，超时后不会在后台继续重试
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(publishTimeoutMs);
+        Queue<PublishedMessage> published = new ConcurrentLinkedQueue<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Throwable cause = null;
+        try {
+            // 只有一块时直接在当前线程投递，省去线程切换
+            if (partitions.size() == 1) {
+                publishChunk(partitions.get(0), routingKeys.get(0), published, cancelled, deadlineNanos);
+                awaitConfirms(published, deadlineNanos);
+            } else {
+                List<CompletableFuture<Void>> futures = new ArrayList<>(partitions.size());
+                for (int i = 0; i < partitions.size(); i++) {
+                    List<TaskInfo> partition = partitions.get(i);
+                    String partitionRoutingKey = routingKeys.get(i);
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return publishChunk(partition, partitionRoutingKey, new ArrayList<>(), cancelled, deadlineNanos);
+                        } catch (IOException e) {
+                            throw new IllegalStateException("序列化TaskInfo失败", e);
+                        }
+                    }, mqPublishExecutor).thenCompose(messages -> {
+                        published.addAll(messages);
+                        return CompletableFuture.allOf(messages.stream()
+                                .map(PublishedMessage::getConfirm).toArray(CompletableFuture[]::new));
+                    }));
+                }
+                // 任意一块失败立即结束等待，不必等到超时
+                CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+                futures.forEach(future -> future.whenComplete((v, e) -> {
+                    if (e != null) {
+                        all.completeExceptionally(e);
+                    }
+                }));
+                all.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            cause = new TimeoutException("等待MQ确认超时: " + publishTimeoutMs + "ms");
+        } catch (ExecutionException e) {
+            cause = e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cause = e;
         } catch (Exception e) {
-            context.setNeedBreak(true);
-            context.setResponse(BasicResultVO.fail(RespStatusEnum.SERVICE_ERROR.getMsg() + "：MQ投递失败"));
-            log.error("消息投递MQ失败", e);
+            cause = e;
+        }
+
+        // 停止投递剩余分块，只统计已确认的消息
+        cancelled.set(true);
+        PublishResult result = new PublishResult(cause);
+        Set<TaskInfo> accepted = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PublishedMessage message : published) {
+            CompletableFuture<Void> confirm = message.getConfirm();
+            if (confirm.isDone() && !confirm.isCompletedExceptionally()) {
+                accepted.addAll(message.getTasks());
+                result.acceptedMessages++;
+            } else {
+                confirm.cancel(false);
+                result.failedMessages++;
+            }
+        }
+        for (List<TaskInfo> partition : partitions) {
+            for (TaskInfo taskInfo : partition) {
+                if (accepted.contains(taskInfo)) {
+                    continue;
+                }
+                if (taskInfo.getReceiverMessageIds() == null) {
+                    result.failedMessageIds.add(taskInfo.getMessageId());
+                } else {
+                    for (String receiver : taskInfo.getReceiver()) {
+                        result.failedMessageIds.add(taskInfo.messageIdOf(receiver));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void awaitConfirms(Collection<PublishedMessage> messages, long deadlineNanos) throws Exception {
+        CompletableFuture.allOf(messages.stream().map(PublishedMessage::getConfirm).toArray(CompletableFuture[]::new))
+                .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 按接收者所在分片拆分 TaskInfo（接收者都在同一分片时不复制），拆出的 TaskInfo 共享 messageId，
+     * receiverMessageIds 只保留本分片的接收者
+     */
+    private void splitByShard(TaskInfo taskInfo, Map<String, List<TaskInfo>> groups) {
+        Map<Integer, Set<String>> receiversByShard = new TreeMap<>();
+        for (String receiver : taskInfo.getReceiver()) {
+            receiversByShard.computeIfAbsent(ReceiverShards.shardOf(receiver, shardCount), k -> new LinkedHashSet<>())
+                    .add(receiver);
+        }
+
+        for (Map.Entry<Integer, Set<String>> entry : receiversByShard.entrySet()) {
+            TaskInfo shardTask = receiversByShard.size() == 1 ? taskInfo : taskInfo.toBuilder()
+                    .receiver(entry.getValue())
+                    .receiverMessageIds(receiverMessageIdsOf(taskInfo, entry.getValue()))
+                    .build();
+            groups.computeIfAbsent(ReceiverShards.resolve(routingKey, entry.getKey()), k -> new ArrayList<>())
+                    .add(shardTask);
+        }
+    }
+
+    private static Map<String, String> receiverMessageIdsOf(TaskInfo taskInfo, Set<String> receivers) {
+        if (taskInfo.getReceiverMessageIds() == null) {
+            return null;
+        }
+        Map<String, String> subset = new HashMap<>(receivers.size() * 4 / 3 + 1);
+        for (String receiver : receivers) {
+            subset.put(receiver, taskInfo.messageIdOf(receiver));
+        }
+        return subset;
+    }
+
+    /**
+     * 序列化并投递一个分块；超过字节上限时对半拆分后递归投递
+     *
+     * @param chunkRoutingKey 路由键（开启分片 / 优先级通道时为分片 / 通道路由键）
+     * @param published       收集每个 MQ 消息及其确认结果
+     * @param cancelled       整体已超时 / 失败时为 true，不再投递
+     * @param deadlineNanos   确认（含重试）的截止时间
+     * @return published
+     */
+    private <C extends Collection<PublishedMessage>> C publishChunk(List<TaskInfo> chunk, String chunkRoutingKey,
+                                                                  C published, AtomicBoolean cancelled,
+                                                                  long deadlineNanos) throws IOException {
+        if (cancelled.get()) {
+            return published;
+        }
+        boolean binary = CODEC_BINARY.equals(codec);
+        byte[] body = binary ? TaskInfoBinaryCodec.encode(chunk) : objectMapper.writeValueAsBytes(chunk);
+        if (body.length > chunkBytes && chunk.size() > 1) {
+            int middle = chunk.size() / 2;
+            publishChunk(chunk.subList(0, middle), chunkRoutingKey, published, cancelled, deadlineNanos);
+            return publishChunk(chunk.subList(middle, chunk.size()), chunkRoutingKey, published, cancelled, deadlineNanos);
+        }
+
+        String contentType = binary ? TaskInfoBinaryCodec.CONTENT_TYPE : MessageProperties.CONTENT_TYPE_TEXT_PLAIN;
+        published.add(new PublishedMessage(chunk, rabbitMqService.publish(body, contentType, chunkRoutingKey, deadlineNanos)));
+        return published;
+    }
+
+    /**
+     * 一个 MQ 消息：携带的 TaskInfo + Broker 确认结果
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class PublishedMessage {
+
+        private final List<TaskInfo> tasks;
+
+        private final CompletableFuture<Void> confirm;
+    }
+
+    /**
+     * 投递结果：至少有一个 TaskInfo 未被确认的 messageId
+     */
+    private static final class PublishResult {
+
+        private final Set<String> failedMessageIds = new HashSet<>();
+
+        private final Throwable cause;
+
+        private int acceptedMessages;
+
+        private int failedMessages;
+
+        private PublishResult(Throwable cause) {
+            this.cause = cause;
         }
     }
 }
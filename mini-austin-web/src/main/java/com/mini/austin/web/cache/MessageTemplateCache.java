@@ -0,0 +1,131 @@
+package com.mini.austin.web.cache;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.mini.austin.web.dao.MessageTemplateDao;
+import com.mini.austin.web.domain.MessageTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息模板本地缓存（Near Cache）
+ * <p>
+ * ★★★ 面试重点：热点数据如何减少数据库压力？ ★★★
+ * <p>
+ * 场景：每次 /send 都要根据 templateId 查询模板，模板表成为数据库最热的表，
+ * 而每个节点反复读取的只是同样的几百行数据
+ * <p>
+ * 实现原理：
+ * 1. Guava LoadingCache：容量上限 + 写入后过期（TTL），超出容量按 LRU 淘汰
+ * 2. 同一个 templateId 并发未命中时，只有一个线程回源 MySQL，其余线程等待结果
+ * 3. 模板修改/删除后通过 Redis Pub/Sub 广播失效消息，所有节点在毫秒级内删除旧数据
+ * 4. 不存在的模板也会缓存（Optional.empty），防止缓存穿透
+ * <p>
+ * 监控指标（/actuator/metrics）：cache.gets{result=hit|miss}、cache.load.duration 等
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class MessageTemplateCache implements MessageListener {
+
+    private static final String CACHE_NAME = "messageTemplate";
+
+    @Autowired
+    private MessageTemplateDao messageTemplateDao;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 最大缓存模板数
+     */
+    @Value("${mini-austin.template-cache.maximum-size:1000}")
+    private long maximumSize;
+
+    /**
+     * 缓存过期时间（秒），作为失效消息丢失时的兜底
+     */
+    @Value("${mini-austin.template-cache.expire-seconds:300}")
+    private long expireSeconds;
+
+    /**
+     * 失效广播的 Redis 频道
+     */
+    @Value("${mini-austin.template-cache.invalidate-channel:austin:template:invalidate}")
+    private String invalidateChannel;
+
+    private LoadingCache<Long, Optional<MessageTemplate>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(new CacheLoader<Long, Optional<MessageTemplate>>() {
+                    @Override
+                    public Optional<MessageTemplate> load(Long templateId) {
+                        return messageTemplateDao.findById(templateId);
+                    }
+                });
+
+        GuavaCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("模板缓存初始化完成: maximumSize={}, expireSeconds={}, channel={}",
+                maximumSize, expireSeconds, invalidateChannel);
+    }
+
+    /**
+     * 查询模板（优先读本地缓存）
+     */
+    public Optional<MessageTemplate> get(Long templateId) {
+        return cache.getUnchecked(templateId);
+    }
+
+    /**
+     * 失效本节点缓存，并广播给其他节点
+     */
+    public void invalidate(Long templateId) {
+        cache.invalidate(templateId);
+        try {
+            redisTemplate.convertAndSend(invalidateChannel, String.valueOf(templateId));
+        } catch (Exception e) {
+            // 广播失败时其他节点依赖 TTL 兜底
+            log.error("模板缓存失效广播失败: templateId={}", templateId, e);
+        }
+    }
+
+    /**
+     * 收到其他节点（包括自己）的失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            cache.invalidate(Long.valueOf(body));
+            log.debug("收到模板缓存失效消息: templateId={}", body);
+        } catch (NumberFormatException e) {
+            log.warn("无法识别的模板缓存失效消息: {}", body);
+        }
+    }
+
+    public String getInvalidateChannel() {
+        return invalidateChannel;
+    }
+}
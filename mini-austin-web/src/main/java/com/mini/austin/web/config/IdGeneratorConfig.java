@@ -0,0 +1,28 @@
+package com.mini.austin.web.config;
+
+import com.mini.austin.common.id.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ID 生成器配置
+ * <p>
+ * workerId 由 WorkerIdLease 通过 Redis 租约分配
+ *
+ * @author mini-austin
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    /**
+     * 逻辑时钟允许领先物理时钟的最大毫秒数
+     */
+    @Value("${mini-austin.id.max-drift-ms:2000}")
+    private long maxDriftMs;
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator() {
+        return new SnowflakeIdGenerator(maxDriftMs);
+    }
+}
@@ -0,0 +1,54 @@
+package com.mini.austin.web.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MQ 投递线程池配置
+ * <p>
+ * 大批量发送时，TaskInfo 被拆成多个分块，由该线程池并行序列化并投递
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Configuration
+public class PublishThreadPoolConfig {
+
+    @Value("${mini-austin.mq.publish.core-size:4}")
+    private int corePoolSize;
+
+    @Value("${mini-austin.mq.publish.max-size:8}")
+    private int maxPoolSize;
+
+    @Value("${mini-austin.mq.publish.queue-capacity:256}")
+    private int queueCapacity;
+
+    /**
+     * MQ 投递线程池
+     * <p>
+     * 拒绝策略：CallerRunsPolicy - 线程池满时由请求线程自己序列化投递，天然限速
+     */
+    @Bean
+    public ThreadPoolExecutor mqPublishExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                corePoolSize,
+                maxPoolSize,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "mq-publish-" + r.hashCode()),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        log.info("MQ投递线程池初始化: core={}, max={}, queue={}",
+                corePoolSize, maxPoolSize, queueCapacity);
+
+        return executor;
+    }
+}
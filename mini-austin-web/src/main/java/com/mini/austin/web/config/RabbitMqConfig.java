@@ -1,5 +1,7 @@
 package com.mini.austin.web.config;
 
+import com.mini.austin.common.enums.MessageLane;
+import com.mini.austin.common.shard.ReceiverShards;
 import org.springframework.amqp.core.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -9,6 +11,13 @@ import org.springframework.context.annotation.Configuration;
  * RabbitMQ 配置类
  * <p>
  * 定义交换机、队列、绑定关系
+ * <p>
+ * 开启优先级通道（mini-austin.mq.lanes.enabled=true）时，额外为每个通道声明一个队列，
+ * 原队列保留，用于消费升级前已投递的消息
+ * <p>
+ * 开启接收者分片（mini-austin.mq.shards.enabled=true）时，额外声明 count 个分片队列，
+ * 分片队列开启 single-active-consumer：同一时刻只有一个消费者在消费，
+ * Handler 重新分配分片期间新旧两个节点短暂同时订阅，也不会打乱同一接收者的消息顺序
  *
  * @author mini-austin
  */
@@ -24,6 +33,18 @@ public class RabbitMqConfig {
     @Value("${mini-austin.mq.routing-key:austin.send}")
     private String routingKey;
 
+    @Value("${mini-austin.mq.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    @Value("${mini-austin.mq.shards.enabled:false}")
+    private boolean shardsEnabled;
+
+    /**
+     * 分片数，必须与 Handler 端一致
+     */
+    @Value("${mini-austin.mq.shards.count:16}")
+    private int shardCount;
+
     /**
      * 声明交换机（Direct类型）
      */
@@ -47,4 +68,40 @@ public class RabbitMqConfig {
     public Binding austinBinding(Queue austinQueue, DirectExchange austinExchange) {
         return BindingBuilder.bind(austinQueue).to(austinExchange).with(routingKey);
     }
+
+    /**
+     * 声明优先级通道队列并绑定
+     */
+    @Bean
+    public Declarables austinLaneDeclarables(DirectExchange austinExchange) {
+        Declarables declarables = new Declarables();
+        if (!lanesEnabled) {
+            return declarables;
+        }
+        for (MessageLane lane : MessageLane.values()) {
+            Queue laneQueue = QueueBuilder.durable(lane.resolve(queue)).build();
+            declarables.getDeclarables().add(laneQueue);
+            declarables.getDeclarables().add(
+                    BindingBuilder.bind(laneQueue).to(austinExchange).with(lane.resolve(routingKey)));
+        }
+        return declarables;
+    }
+
+    /**
+     * 声明接收者分片队列并绑定
+     */
+    @Bean
+    public Declarables austinShardDeclarables(DirectExchange austinExchange) {
+        Declarables declarables = new Declarables();
+        if (!shardsEnabled) {
+            return declarables;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            Queue shardQueue = QueueBuilder.durable(ReceiverShards.resolve(queue, shard)).singleActiveConsumer().build();
+            declarables.getDeclarables().add(shardQueue);
+            declarables.getDeclarables().add(
+                    BindingBuilder.bind(shardQueue).to(austinExchange).with(ReceiverShards.resolve(routingKey, shard)));
+        }
+        return declarables;
+    }
 }
@@ -0,0 +1,29 @@
+package com.mini.austin.web.config;
+
+import com.mini.austin.web.cache.MessageTemplateCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 模板缓存配置
+ * <p>
+ * 订阅 Redis 频道，接收其他节点广播的模板失效消息
+ *
+ * @author mini-austin
+ */
+@Configuration
+public class TemplateCacheConfig {
+
+    @Bean
+    public RedisMessageListenerContainer templateCacheListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        MessageTemplateCache messageTemplateCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(messageTemplateCache,
+                new ChannelTopic(messageTemplateCache.getInvalidateChannel()));
+        return container;
+    }
+}
@@ -3,13 +3,17 @@ package com.mini.austin.web.controller;
 import com.mini.austin.web.service.SendService;
 import com.mini.austin.web.vo.SendRequest;
 import com.mini.austin.web.vo.SendResponse;
+import com.mini.austin.web.vo.StreamSendResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.InputStream;
+
 /**
  * 发送消息 Controller
  * <p>
@@ -66,4 +70,21 @@ public class SendController {
                 request.getMessageParamList() != null ? request.getMessageParamList().size() : 0);
         return sendService.batchSend(request);
     }
+
+    /**
+     * 流式批量发送（大规模营销活动）
+     * <p>
+     * 请求体为 NDJSON，每行一个 MessageParam，服务端边读边发，不会把整个请求读入内存
+     * <p>
+     * 请求示例：
+     * POST /send/batch/stream?messageTemplateId=1
+     * Content-Type: application/x-ndjson
+     * {"receiver": "user1@example.com", "variables": {"name": "张三"}}
+     * {"receiver": "user2@example.com", "variables": {"name": "李四"}}
+     */
+    @PostMapping("/batch/stream")
+    public StreamSendResponse streamSend(@RequestParam Long messageTemplateId, InputStream body) {
+        log.info("收到流式批量发送请求：templateId={}", messageTemplateId);
+        return sendService.streamSend(messageTemplateId, body);
+    }
 }
@@ -16,7 +16,7 @@ import java.util.List;
  * 在责任链中流转的数据对象，包含：
  * - 入参：messageTemplateId + messageParamList
  * - 中间产物：messageTemplate
- * - 出参：taskInfoList
+ * - 出参：taskInfoList、messageIdList、failedMessageIdList
  *
  * @author mini-austin
  */
@@ -45,4 +45,17 @@ public class SendTaskModel implements ProcessModel {
      * 任务信息列表（由 AssembleAction 拼装生成）
      */
     private List<TaskInfo> taskInfoList;
+
+    /**
+     * 与 messageParamList 一一对应的消息ID（由 AssembleAction 生成）
+     * <p>
+     * 每个参数的消息ID互不相同；内容相同的参数合并到同一个 TaskInfo 时，
+     * 按接收者记录在 TaskInfo.receiverMessageIds 中，TaskInfo.messageId 只作为组ID
+     */
+    private List<String> messageIdList;
+
+    /**
+     * MQ 投递失败的消息ID（部分成功时由 SendMqAction 填充，按 messageIdList 的顺序）
+     */
+    private List<String> failedMessageIdList;
 }
@@ -0,0 +1,190 @@
+package com.mini.austin.web.id;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import com.mini.austin.common.id.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * workerId 租约管理
+ * <p>
+ * ★★★ 面试重点：雪花算法的 workerId 怎么分配才不会撞号？ ★★★
+ * <p>
+ * 写死在配置里：扩缩容、容器漂移时很容易两个节点配成同一个值
+ * <p>
+ * 实现原理：
+ * 1. 启动时从随机位置开始遍历 0 ~ 1023，SET key token NX PX 抢占一个空闲的 workerId
+ * 2. 后台线程定期心跳续期（Lua 校验 token 后 PEXPIRE，只续自己的租约）
+ * 3. 本地记录租约到期时间，续期失败时到期即停止生成 ID，保证 Redis 上的 key 过期、被其他节点抢走之前本节点已经停发。
+ *    逻辑时钟最多领先物理时钟 max-drift 毫秒，停发时已发出的时间戳可能比本地到期时间还晚这么多，
+ *    所以本地到期时间 = 请求时刻 + TTL - max-drift - safety，safety 留给网络延迟和节点间时钟偏差
+ * 4. 发现租约已被他人持有时立即停止生成，并重新抢占
+ * 5. 正常停机时主动释放：已发出的时间戳还领先当前时间时不直接删除，
+ *    而是把 key 的过期时间改为"领先量 + safety"，下一个持有者的物理时钟越过这些时间戳后才能拿到同一个 workerId
+ *
+ * @author mini-austin
+ */
+@Slf4j
+@Component
+public class WorkerIdLease {
+
+    /**
+     * 续期脚本：key 的值仍是自己的 token 才续期
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+
+    /**
+     * 释放脚本：key 的值仍是自己的 token 才释放；ARGV[2] 为还需保留的毫秒数，大于 0 时改为 PEXPIRE，否则删除
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) ~= ARGV[1] then return 0 end "
+                    + "if tonumber(ARGV[2]) > 0 then return redis.call('pexpire', KEYS[1], ARGV[2]) end "
+                    + "return redis.call('del', KEYS[1])", Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    /**
+     * 租约 key 前缀，完整 key 为 prefix + workerId
+     */
+    @Value("${mini-austin.id.lease-key-prefix:austin:id:worker:}")
+    private String keyPrefix;
+
+    /**
+     * 租约有效期（毫秒）
+     */
+    @Value("${mini-austin.id.lease-ttl-ms:30000}")
+    private long leaseTtlMs;
+
+    /**
+     * 心跳间隔（毫秒），应远小于租约有效期
+     */
+    @Value("${mini-austin.id.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    /**
+     * 本地租约在扣除逻辑时钟最大领先量之后，再比 Redis TTL 提前到期的毫秒数，抵消网络延迟和节点间时钟偏差
+     */
+    @Value("${mini-austin.id.lease-safety-ms:2000}")
+    private long safetyMs;
+
+    /**
+     * 本节点的租约标识
+     */
+    private final String token = IdUtil.fastSimpleUUID();
+
+    private volatile int workerId = -1;
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    public void init() {
+        long validMs = leaseTtlMs - snowflakeIdGenerator.getMaxDriftMillis() - safetyMs;
+        if (validMs <= heartbeatMs) {
+            throw new IllegalStateException("workerId 租约配置无效：lease-ttl-ms 扣除 max-drift-ms 和 lease-safety-ms 后为 "
+                    + validMs + "ms，必须大于 heartbeat-ms");
+        }
+        if (!acquire()) {
+            throw new IllegalStateException("无法获取 workerId 租约，所有 workerId 均被占用或 Redis 不可用");
+        }
+
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "id-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+        snowflakeIdGenerator.revoke();
+        if (workerId >= 0) {
+            // 逻辑时钟可能领先：workerId 保留到已发出的时间戳之后，新持有者不会生成相同的 ID
+            long holdMs = snowflakeIdGenerator.lastTimestampMillis() - System.currentTimeMillis() + safetyMs;
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(keyPrefix + workerId),
+                        token, String.valueOf(holdMs));
+                log.info("释放 workerId 租约: workerId={}, holdMs={}", workerId, Math.max(holdMs, 0));
+            } catch (Exception e) {
+                log.warn("释放 workerId 租约失败，等待自然过期: workerId={}", workerId, e);
+            }
+        }
+    }
+
+    /**
+     * 抢占一个空闲的 workerId
+     */
+    private boolean acquire() {
+        int start = RandomUtil.randomInt(SnowflakeIdGenerator.MAX_WORKER_ID + 1);
+        for (int i = 0; i <= SnowflakeIdGenerator.MAX_WORKER_ID; i++) {
+            int candidate = (start + i) & SnowflakeIdGenerator.MAX_WORKER_ID;
+            long requestAt = System.currentTimeMillis();
+            Boolean ok = redisTemplate.opsForValue()
+                    .setIfAbsent(keyPrefix + candidate, token, leaseTtlMs, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(ok)) {
+                workerId = candidate;
+                snowflakeIdGenerator.grant(candidate, localExpireAt(requestAt));
+                log.info("获取 workerId 租约成功: workerId={}, ttlMs={}", candidate, leaseTtlMs);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 心跳续期；租约丢失时停止生成并重新抢占
+     */
+    private void heartbeat() {
+        try {
+            if (workerId < 0) {
+                acquire();
+                return;
+            }
+
+            long requestAt = System.currentTimeMillis();
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(keyPrefix + workerId), token, String.valueOf(leaseTtlMs));
+            if (renewed != null && renewed == 1L) {
+                snowflakeIdGenerator.grant(workerId, localExpireAt(requestAt));
+                return;
+            }
+
+            // 租约已过期并被其他节点抢走
+            log.error("workerId 租约已丢失，停止生成ID并重新抢占: workerId={}", workerId);
+            snowflakeIdGenerator.revoke();
+            workerId = -1;
+            acquire();
+        } catch (Exception e) {
+            // Redis 暂时不可用：保留本地租约直到到期，到期后 nextId 自动拒绝
+            log.warn("workerId 租约续期失败: workerId={}", workerId, e);
+        }
+    }
+
+    /**
+     * 本地租约到期时间：到期时已发出的时间戳最多领先 max-drift，仍比 Redis 上的 key 过期早 safety 毫秒
+     */
+    private long localExpireAt(long requestAt) {
+        return requestAt + leaseTtlMs - snowflakeIdGenerator.getMaxDriftMillis() - safetyMs;
+    }
+}
@@ -1,15 +1,35 @@
 package com.mini.austin.web.mq;
 
+import cn.hutool.core.util.IdUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * RabbitMQ 发送服务
  * <p>
  * 封装 RabbitTemplate，提供统一的消息发送接口
+ * <p>
+ * ★★★ 面试重点：如何确认消息真的到了 Broker？ ★★★
+ * <p>
+ * 两种投递模式（mini-austin.mq.publish.mode）：
+ * - fire-and-forget：发出即返回，吞吐最高，但 Broker 是否收到无从得知
+ * - confirm：开启 Publisher Confirms，Broker 持久化后异步回调 ack/nack，
+ *   用信号量限制"已发出未确认"的消息数（确认窗口），窗口内的消息流水线式发出，
+ *   不必每条消息都等一次往返；nack 的消息自动重试
  *
  * @author mini-austin
  */
@@ -17,32 +37,205 @@ import org.springframework.stereotype.Service;
 @Service
 public class RabbitMqService {
 
+    private static final String MODE_CONFIRM = "confirm";
+
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
+    @Autowired
+    private ThreadPoolExecutor mqPublishExecutor;
+
     @Value("${mini-austin.mq.exchange:austin-exchange}")
     private String exchange;
 
     @Value("${mini-austin.mq.routing-key:austin.send}")
     private String routingKey;
 
+    /**
+     * 投递模式：fire-and-forget / confirm
+     */
+    @Value("${mini-austin.mq.publish.mode:fire-and-forget}")
+    private String publishMode;
+
+    /**
+     * 确认窗口：最多允许多少条消息处于"已发出未确认"状态
+     */
+    @Value("${mini-austin.mq.publish.confirm-window:256}")
+    private int confirmWindow;
+
+    /**
+     * 单条消息等待确认的超时时间（毫秒）
+     */
+    @Value("${mini-austin.mq.publish.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    /**
+     * nack 后的最大重试次数
+     */
+    @Value("${mini-austin.mq.publish.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * 重试间隔（毫秒），按重试次数线性增长
+     */
+    @Value("${mini-austin.mq.publish.retry-backoff-ms:100}")
+    private long retryBackoffMs;
+
+    private Semaphore confirmPermits;
+
+    @PostConstruct
+    public void init() {
+        confirmPermits = new Semaphore(confirmWindow);
+        log.info("RabbitMQ投递模式: mode={}, confirmWindow={}", publishMode, confirmWindow);
+    }
+
     /**
      * 发送消息到 RabbitMQ
      *
      * @param message 消息内容（JSON字符串）
      */
     public void send(String message) {
-        log.debug("发送消息到RabbitMQ: exchange={}, routingKey={}, message={}", 
+        log.debug("发送消息到RabbitMQ: exchange={}, routingKey={}, message={}",
                 exchange, routingKey, message);
         rabbitTemplate.convertAndSend(exchange, routingKey, message);
     }
 
+    /**
+     * 投递已序列化好的消息体
+     * <p>
+     * 直接发送字节，避免大批量时再拷贝一份 String
+     * JSON 消息的 Content-Type 保持 text/plain，与 convertAndSend(String) 的格式一致，旧版消费者可直接解析
+     *
+     * @param body        消息体
+     * @param contentType 消息格式（text/plain 的 JSON 或 TaskInfoBinaryCodec.CONTENT_TYPE）
+     * @return fire-and-forget 模式下立即完成；confirm 模式下 Broker ack 后完成，最终失败时异常完成
+     */
+    public CompletableFuture<Void> publish(byte[] body, String contentType) {
+        return publish(body, contentType, routingKey);
+    }
+
+    /**
+     * 投递已序列化好的消息体到指定路由键（优先级通道）
+     * <p>
+     * confirm 模式下整个重试预算为 confirmTimeoutMs * (maxRetries + 1)
+     */
+    public CompletableFuture<Void> publish(byte[] body, String contentType, String routingKey) {
+        return publish(body, contentType, routingKey,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs * (maxRetries + 1)));
+    }
+
+    /**
+     * 投递已序列化好的消息体到指定路由键，确认（含 nack 重试）不晚于调用方的截止时间
+     * <p>
+     * 调用方放弃等待时应 cancel 返回的 Future：尚未执行的重试不会再发出，确认窗口许可立即归还
+     *
+     * @param deadlineNanos 截止时间（System.nanoTime()），到期后 Future 以 TimeoutException 完成，不再重试
+     */
+    public CompletableFuture<Void> publish(byte[] body, String contentType, String routingKey, long deadlineNanos) {
+        log.debug("发送消息到RabbitMQ: exchange={}, routingKey={}, contentType={}, bytes={}",
+                exchange, routingKey, contentType, body.length);
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(contentType);
+        if (MessageProperties.CONTENT_TYPE_TEXT_PLAIN.equals(contentType)) {
+            properties.setContentEncoding("UTF-8");
+        }
+        Message message = MessageBuilder.withBody(body).andProperties(properties).build();
+
+        if (!MODE_CONFIRM.equals(publishMode)) {
+            rabbitTemplate.send(exchange, routingKey, message);
+            return CompletableFuture.completedFuture(null);
+        }
+        return publishConfirmed(message, routingKey, deadlineNanos);
+    }
+
     /**
      * 发送消息到指定的 exchange 和 routingKey
      */
     public void send(String exchange, String routingKey, String message) {
-        log.debug("发送消息到RabbitMQ: exchange={}, routingKey={}, message={}", 
+        log.debug("发送消息到RabbitMQ: exchange={}, routingKey={}, message={}",
                 exchange, routingKey, message);
         rabbitTemplate.convertAndSend(exchange, routingKey, message);
     }
+
+    /**
+     * 带确认的投递
+     * <p>
+     * 1. 先从确认窗口取一个许可，窗口满时阻塞（反压到投递线程），最多等到截止时间
+     * 2. 发出消息后立即返回，Broker 的 ack/nack 异步完成 Future
+     * 3. Future 完成（成功/失败/超时/被取消）时归还许可，重试期间许可一直占用
+     */
+    private CompletableFuture<Void> publishConfirmed(Message message, String routingKey, long deadlineNanos) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        try {
+            if (remainingNanos <= 0 || !confirmPermits.tryAcquire(
+                    Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs)), TimeUnit.NANOSECONDS)) {
+                result.completeExceptionally(new IllegalStateException("确认窗口已满，等待超时"));
+                return result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        result.whenComplete((v, e) -> confirmPermits.release());
+        result.orTimeout(Math.max(1, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        doPublish(message, routingKey, result, 0, deadlineNanos);
+        return result;
+    }
+
+    private void doPublish(Message message, String routingKey, CompletableFuture<Void> result, int attempt,
+                           long deadlineNanos) {
+        // 已确认、已超时或被调用方取消
+        if (result.isDone()) {
+            return;
+        }
+
+        CorrelationData correlationData = new CorrelationData(IdUtil.fastSimpleUUID());
+        correlationData.getFuture().addCallback(
+                confirm -> {
+                    if (confirm != null && confirm.isAck()) {
+                        if (correlationData.getReturned() != null) {
+                            // 路由不到任何队列，重试也没有意义
+                            result.completeExceptionally(new IllegalStateException(
+                                    "消息无法路由: " + correlationData.getReturned().getReplyText()));
+                        } else {
+                            result.complete(null);
+                        }
+                    } else {
+                        retryOrFail(message, routingKey, result, attempt, deadlineNanos,
+                                confirm != null ? confirm.getReason() : null);
+                    }
+                },
+                ex -> retryOrFail(message, routingKey, result, attempt, deadlineNanos, ex.getMessage()));
+
+        try {
+            rabbitTemplate.send(exchange, routingKey, message, correlationData);
+        } catch (Exception e) {
+            retryOrFail(message, routingKey, result, attempt, deadlineNanos, e.getMessage());
+        }
+    }
+
+    /**
+     * nack 重试：在投递线程池上延迟重发，不占用 AMQP 回调线程
+     * <p>
+     * 重试次数用完，或退避后已经超过截止时间（调用方不会再等这条消息）时直接失败
+     */
+    private void retryOrFail(Message message, String routingKey, CompletableFuture<Void> result,
+                             int attempt, long deadlineNanos, String reason) {
+        if (result.isDone()) {
+            return;
+        }
+        long backoffMs = retryBackoffMs * (attempt + 1);
+        if (attempt >= maxRetries || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs) >= deadlineNanos) {
+            log.error("消息投递最终失败: attempts={}, reason={}", attempt + 1, reason);
+            result.completeExceptionally(new IllegalStateException("消息投递失败: " + reason));
+            return;
+        }
+
+        log.warn("消息未被Broker确认，准备重试: attempt={}, reason={}", attempt + 1, reason);
+        Executor delayed = CompletableFuture.delayedExecutor(backoffMs, TimeUnit.MILLISECONDS, mqPublishExecutor);
+        delayed.execute(() -> doPublish(message, routingKey, result, attempt + 1, deadlineNanos));
+    }
 }
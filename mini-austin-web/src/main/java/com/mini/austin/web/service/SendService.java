@@ -2,6 +2,9 @@ package com.mini.austin.web.service;
 
 import com.mini.austin.web.vo.SendRequest;
 import com.mini.austin.web.vo.SendResponse;
+import com.mini.austin.web.vo.StreamSendResponse;
+
+import java.io.InputStream;
 
 /**
  * 发送服务接口
@@ -25,4 +28,16 @@ public interface SendService {
      * @return 发送响应
      */
     SendResponse batchSend(SendRequest request);
+
+    /**
+     * 流式批量发送
+     * <p>
+     * 逐行读取 NDJSON 格式的 MessageParam，按固定大小分块执行责任链，
+     * 内存占用与请求规模无关
+     *
+     * @param messageTemplateId 消息模板ID
+     * @param inputStream       请求体（每行一个 MessageParam JSON）
+     * @return 批次ID + 成功/拒绝数量
+     */
+    StreamSendResponse streamSend(Long messageTemplateId, InputStream inputStream);
 }
@@ -0,0 +1,113 @@
+package com.mini.austin.web.service.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 限制单行长度的按行读取器（流式发送使用）
+ * <p>
+ * BufferedReader.readLine 会把整行读进内存，客户端发来一行几百 MB 的数据（或根本不换行）时会直接 OOM；
+ * 这里超过 maxLength 的行只计数不缓存，跳过到下一个换行符
+ * <p>
+ * 行分隔符为 \n，行尾的 \r 会被去掉
+ *
+ * @author mini-austin
+ */
+class BoundedLineReader implements Closeable {
+
+    private final Reader reader;
+
+    private final int maxLength;
+
+    private final char[] buffer = new char[8192];
+
+    private final StringBuilder line = new StringBuilder();
+
+    private int position;
+
+    private int limit;
+
+    private boolean oversized;
+
+    BoundedLineReader(Reader reader, int maxLength) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 读取下一行
+     *
+     * @return false 表示已到达输入末尾
+     */
+    boolean next() throws IOException {
+        line.setLength(0);
+        oversized = false;
+        boolean read = false;
+        while (true) {
+            if (position >= limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return read && finish();
+                }
+            }
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            append(start, position);
+            if (position < limit) {
+                // 跳过换行符
+                position++;
+                return finish();
+            }
+        }
+    }
+
+    /**
+     * 当前行内容（超长行为空串）
+     */
+    String line() {
+        return line.toString();
+    }
+
+    /**
+     * 当前行是否超过长度上限（内容已丢弃）
+     */
+    boolean isOversized() {
+        return oversized;
+    }
+
+    private void append(int start, int end) {
+        if (oversized) {
+            return;
+        }
+        // 多留 1 个字符给行尾的 \r
+        if (line.length() + (end - start) > maxLength + 1) {
+            oversized = true;
+            line.setLength(0);
+            return;
+        }
+        line.append(buffer, start, end - start);
+    }
+
+    private boolean finish() {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(--length);
+        }
+        if (length > maxLength) {
+            oversized = true;
+            line.setLength(0);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
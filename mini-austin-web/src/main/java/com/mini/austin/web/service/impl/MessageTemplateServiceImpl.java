@@ -1,5 +1,6 @@
 package com.mini.austin.web.service.impl;
 
+import com.mini.austin.web.cache.MessageTemplateCache;
 import com.mini.austin.web.dao.MessageTemplateDao;
 import com.mini.austin.web.domain.MessageTemplate;
 import com.mini.austin.web.service.MessageTemplateService;
@@ -23,6 +24,9 @@ public class MessageTemplateServiceImpl implements MessageTemplateService {
     @Autowired
     private MessageTemplateDao messageTemplateDao;
 
+    @Autowired
+    private MessageTemplateCache messageTemplateCache;
+
     @Override
     public List<MessageTemplate> list() {
         return messageTemplateDao.findByIsDeleted(NOT_DELETED);
@@ -45,7 +49,10 @@ public class MessageTemplateServiceImpl implements MessageTemplateService {
         }
         template.setUpdatedTime(now);
 
-        return messageTemplateDao.save(template);
+        MessageTemplate saved = messageTemplateDao.save(template);
+        // 写库成功后广播失效，所有节点丢弃旧模板
+        messageTemplateCache.invalidate(saved.getId());
+        return saved;
     }
 
     @Override
@@ -55,6 +62,7 @@ public class MessageTemplateServiceImpl implements MessageTemplateService {
             template.setIsDeleted(DELETED);
             template.setUpdatedTime(System.currentTimeMillis() / 1000);
             messageTemplateDao.save(template);
+            messageTemplateCache.invalidate(id);
         }
     }
 }
@@ -1,22 +1,38 @@
 package com.mini.austin.web.service.impl;
 
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.mini.austin.common.dto.MessageParam;
 import com.mini.austin.common.enums.RespStatusEnum;
+import com.mini.austin.common.id.IdGenerationException;
+import com.mini.austin.common.id.SnowflakeIdGenerator;
 import com.mini.austin.common.pipeline.ProcessContext;
 import com.mini.austin.common.pipeline.ProcessController;
 import com.mini.austin.common.vo.BasicResultVO;
+import com.mini.austin.web.cache.MessageTemplateCache;
+import com.mini.austin.web.domain.MessageTemplate;
 import com.mini.austin.web.domain.SendTaskModel;
 import com.mini.austin.web.enums.BusinessCode;
 import com.mini.austin.web.service.SendService;
 import com.mini.austin.web.vo.SendRequest;
 import com.mini.austin.web.vo.SendResponse;
+import com.mini.austin.web.vo.StreamSendResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 发送服务实现
@@ -35,6 +51,28 @@ public class SendServiceImpl implements SendService {
     @Qualifier("sendProcessController")
     private ProcessController processController;
 
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private MessageTemplateCache messageTemplateCache;
+
+    /**
+     * 流式发送时每块的参数条数
+     */
+    @Value("${mini-austin.stream-send.chunk-size:500}")
+    private int streamChunkSize;
+
+    /**
+     * 流式发送单行最大字符数，超长的行直接拒绝（防止不换行的请求体把内存打满）
+     */
+    @Value("${mini-austin.stream-send.max-line-length:65536}")
+    private int streamMaxLineLength;
+
+    private final ObjectReader messageParamReader = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(MessageParam.class);
+
     @Override
     public SendResponse send(SendRequest request) {
         // 参数校验
@@ -97,6 +135,190 @@ public class SendServiceImpl implements SendService {
         return buildResponse(result);
     }
 
+    @Override
+    public StreamSendResponse streamSend(Long messageTemplateId, InputStream inputStream) {
+        if (messageTemplateId == null) {
+            return StreamSendResponse.builder()
+                    .code(RespStatusEnum.CLIENT_BAD_PARAMETERS.getCode())
+                    .msg(RespStatusEnum.CLIENT_BAD_PARAMETERS.getMsg())
+                    .build();
+        }
+
+        // workerId 租约失效时拒绝请求，不能生成可能重复的批次ID
+        String batchId;
+        try {
+            batchId = snowflakeIdGenerator.nextIdString();
+        } catch (IdGenerationException e) {
+            log.error("流式发送生成批次ID失败: templateId={}", messageTemplateId, e);
+            return StreamSendResponse.builder()
+                    .code(RespStatusEnum.SERVICE_ERROR.getCode())
+                    .msg(RespStatusEnum.SERVICE_ERROR.getMsg() + "：消息ID生成失败")
+                    .build();
+        }
+
+        // 模板不存在/已删除时直接返回，不读取请求体
+        RespStatusEnum templateStatus = checkTemplate(messageTemplateId);
+        if (templateStatus != null) {
+            return StreamSendResponse.builder()
+                    .code(templateStatus.getCode())
+                    .msg(templateStatus.getMsg())
+                    .batchId(batchId)
+                    .aborted(true)
+                    .build();
+        }
+
+        long accepted = 0;
+        long rejected = 0;
+        String failMsg = null;
+        boolean aborted = false;
+        List<MessageParam> chunk = new ArrayList<>(streamChunkSize);
+
+        try (BoundedLineReader reader = new BoundedLineReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8), streamMaxLineLength)) {
+            while (!aborted && reader.next()) {
+                // 1. 逐行解析，超长、格式错误或接收者为空的记录单独拒绝，不影响整批
+                if (reader.isOversized()) {
+                    rejected++;
+                    log.debug("流式发送行超长: batchId={}, maxLineLength={}", batchId, streamMaxLineLength);
+                    continue;
+                }
+                String line = reader.line();
+                if (StrUtil.isBlank(line)) {
+                    continue;
+                }
+
+                MessageParam messageParam;
+                try {
+                    messageParam = messageParamReader.readValue(line);
+                } catch (IOException e) {
+                    rejected++;
+                    log.debug("流式发送解析失败: batchId={}, line={}", batchId, line);
+                    continue;
+                }
+                if (messageParam == null || StrUtil.isBlank(messageParam.getReceiver())) {
+                    rejected++;
+                    continue;
+                }
+
+                // 2. 攒够一块就执行责任链，执行完即释放
+                chunk.add(messageParam);
+                if (chunk.size() >= streamChunkSize) {
+                    BasicResultVO<?> result = process(messageTemplateId, chunk).getResponse();
+                    long chunkAccepted = acceptedCount(result, chunk.size());
+                    accepted += chunkAccepted;
+                    rejected += chunk.size() - chunkAccepted;
+                    if (!isSuccess(result)) {
+                        failMsg = result.getMsg();
+                        // 发送途中模板被删除：后续块必然失败，停止读取
+                        aborted = isTemplateMissing(result);
+                    }
+                    chunk = new ArrayList<>(streamChunkSize);
+                }
+            }
+
+            // 3. 处理最后不足一块的数据
+            if (!aborted && !chunk.isEmpty()) {
+                BasicResultVO<?> result = process(messageTemplateId, chunk).getResponse();
+                long chunkAccepted = acceptedCount(result, chunk.size());
+                accepted += chunkAccepted;
+                rejected += chunk.size() - chunkAccepted;
+                if (!isSuccess(result)) {
+                    failMsg = result.getMsg();
+                }
+            }
+        } catch (IOException e) {
+            log.error("流式发送读取请求体失败: batchId={}", batchId, e);
+            failMsg = RespStatusEnum.SERVICE_ERROR.getMsg() + "：读取请求体失败";
+            aborted = true;
+        }
+
+        log.info("流式发送完成: batchId={}, templateId={}, accepted={}, rejected={}, aborted={}",
+                batchId, messageTemplateId, accepted, rejected, aborted);
+
+        // 全部成功 SUCCESS；部分成功 PARTIAL_SUCCESS；没有一条成功 FAIL。成功/失败条数见 acceptedCount/rejectedCount
+        RespStatusEnum status;
+        if (rejected == 0 && failMsg == null) {
+            status = RespStatusEnum.SUCCESS;
+        } else if (accepted > 0) {
+            status = RespStatusEnum.PARTIAL_SUCCESS;
+        } else {
+            status = RespStatusEnum.FAIL;
+        }
+        String msg = status == RespStatusEnum.SUCCESS ? status.getMsg()
+                : StrUtil.format("{}：成功{}条，失败{}条{}", status.getMsg(), accepted, rejected,
+                failMsg == null ? "" : "（" + failMsg + "）");
+        return StreamSendResponse.builder()
+                .code(status.getCode())
+                .msg(msg)
+                .batchId(batchId)
+                .acceptedCount(accepted)
+                .rejectedCount(rejected)
+                .aborted(aborted)
+                .build();
+    }
+
+    /**
+     * 检查模板是否可用
+     *
+     * @return 模板不可用时的状态，可用返回 null
+     */
+    private RespStatusEnum checkTemplate(Long messageTemplateId) {
+        Optional<MessageTemplate> template = messageTemplateCache.get(messageTemplateId);
+        if (template.isEmpty()) {
+            return RespStatusEnum.TEMPLATE_NOT_FOUND;
+        }
+        Integer isDeleted = template.get().getIsDeleted();
+        if (isDeleted != null && isDeleted == 1) {
+            return RespStatusEnum.TEMPLATE_DELETED;
+        }
+        return null;
+    }
+
+    private boolean isTemplateMissing(BasicResultVO<?> response) {
+        return RespStatusEnum.TEMPLATE_NOT_FOUND.getCode().equals(response.getStatus())
+                || RespStatusEnum.TEMPLATE_DELETED.getCode().equals(response.getStatus());
+    }
+
+    /**
+     * 执行一次发送责任链
+     */
+    private ProcessContext<SendTaskModel> process(Long messageTemplateId, List<MessageParam> messageParamList) {
+        SendTaskModel sendTaskModel = SendTaskModel.builder()
+                .messageTemplateId(messageTemplateId)
+                .messageParamList(messageParamList)
+                .build();
+
+        ProcessContext<SendTaskModel> context = ProcessContext.<SendTaskModel>builder()
+                .code(BusinessCode.SEND.getCode())
+                .processModel(sendTaskModel)
+                .needBreak(false)
+                .response(BasicResultVO.success())
+                .build();
+
+        return processController.process(context);
+    }
+
+    private boolean isSuccess(BasicResultVO<?> response) {
+        return RespStatusEnum.SUCCESS.getCode().equals(response.getStatus());
+    }
+
+    private boolean isPartialSuccess(BasicResultVO<?> response) {
+        return RespStatusEnum.PARTIAL_SUCCESS.getCode().equals(response.getStatus());
+    }
+
+    /**
+     * 一块参数中投递成功的条数（部分成功时 data 为成功参数的 messageId）
+     */
+    private long acceptedCount(BasicResultVO<?> response, int chunkSize) {
+        if (isSuccess(response)) {
+            return chunkSize;
+        }
+        if (isPartialSuccess(response) && response.getData() instanceof List) {
+            return ((List<?>) response.getData()).size();
+        }
+        return 0;
+    }
+
     /**
      * 构建响应
      */
@@ -109,10 +331,13 @@ public class SendServiceImpl implements SendService {
                 .msg(response.getMsg())
                 .build();
 
-        // 如果成功，提取 messageIds
-        if (RespStatusEnum.SUCCESS.getCode().equals(response.getStatus()) && response.getData() != null) {
+        // 如果成功，提取 messageIds；部分成功时同时返回失败的 messageIds
+        if ((isSuccess(response) || isPartialSuccess(response)) && response.getData() != null) {
             sendResponse.setMessageIds((List<String>) response.getData());
         }
+        if (isPartialSuccess(response)) {
+            sendResponse.setFailedMessageIds(context.getProcessModel().getFailedMessageIdList());
+        }
 
         return sendResponse;
     }
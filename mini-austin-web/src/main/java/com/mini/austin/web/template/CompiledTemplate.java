@@ -0,0 +1,61 @@
+package com.mini.austin.web.template;
+
+import com.mini.austin.common.binder.ContentModelBinder;
+import com.mini.austin.common.binder.FieldBinding;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 预编译后的消息模板
+ * <p>
+ * 每个模板版本只解析一次 msgContent JSON，
+ * 之后所有 MessageParam 都直接复用这里的字段片段进行渲染
+ *
+ * @author mini-austin
+ */
+@Getter
+@AllArgsConstructor
+public class CompiledTemplate {
+
+    /**
+     * 编译时的渠道（用于判断模板版本是否变化）
+     */
+    private final Integer sendChannel;
+
+    /**
+     * 编译时的模板原文（用于判断模板版本是否变化）
+     */
+    private final String source;
+
+    /**
+     * 渠道对应的内容模型绑定器
+     */
+    private final ContentModelBinder<?> binder;
+
+    /**
+     * 需要填充的字段（模板中值为空的字段不会出现在这里）
+     */
+    private final List<CompiledField> fields;
+
+    /**
+     * 是否由给定的模板内容编译而来
+     */
+    public boolean isVersionOf(Integer sendChannel, String msgContent) {
+        return Objects.equals(this.sendChannel, sendChannel) && Objects.equals(this.source, msgContent);
+    }
+
+    /**
+     * 单个字段：字段访问器 + 预编译片段
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class CompiledField {
+
+        private final FieldBinding field;
+
+        private final PlaceholderTemplate template;
+    }
+}
@@ -0,0 +1,125 @@
+package com.mini.austin.web.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译后的单个字段模板
+ * <p>
+ * 把 "您好${name}，验证码是${code}" 拆成片段序列：
+ * 文本["您好"] 变量[name] 文本["，验证码是"] 变量[code] 文本[""]
+ * <p>
+ * 渲染时只需按顺序拼接一遍，复杂度 O(长度)，
+ * 替代原先"每个变量整串 String.replace 一次"的 O(变量数 × 长度)
+ *
+ * @author mini-austin
+ */
+public final class PlaceholderTemplate {
+
+    private static final String PLACEHOLDER_PREFIX = "${";
+    private static final char PLACEHOLDER_SUFFIX = '}';
+
+    /**
+     * 预估的单个变量值长度，用于预分配缓冲区
+     */
+    private static final int ESTIMATED_VALUE_LENGTH = 16;
+
+    /**
+     * 文本片段，长度 = 变量数 + 1
+     */
+    private final String[] literals;
+
+    /**
+     * 变量名
+     */
+    private final String[] variables;
+
+    /**
+     * 原始占位符（变量未传入时原样保留）
+     */
+    private final String[] placeholders;
+
+    /**
+     * 渲染缓冲区预估长度
+     */
+    private final int estimatedLength;
+
+    private PlaceholderTemplate(String[] literals, String[] variables, String[] placeholders, int literalLength) {
+        this.literals = literals;
+        this.variables = variables;
+        this.placeholders = placeholders;
+        this.estimatedLength = literalLength + variables.length * ESTIMATED_VALUE_LENGTH;
+    }
+
+    /**
+     * 编译模板字符串
+     * <p>
+     * 解析规则（与原先逐个变量 String.replace 的结果一致）：
+     * - 占位符是 "${" 与其后第一个 '}' 之间的内容，其中不能再含 "${"：
+     *   "${a ${code}" 中前一个 "${" 没有闭合，按文本保留，只有 ${code} 是占位符
+     * - 没有 '}' 的 "${" 按文本保留
+     * <p>
+     * 与原实现的差异：变量值只原样写入、不会再被当成占位符展开。
+     * 原实现逐个变量替换，值里的 ${x}、或嵌套的 ${a${b}} 替换后拼出的新占位符
+     * 会不会被展开取决于 HashMap 的遍历顺序，结果不确定
+     */
+    public static PlaceholderTemplate compile(String source) {
+        List<String> literalList = new ArrayList<>();
+        List<String> variableList = new ArrayList<>();
+        int literalLength = 0;
+
+        int cursor = 0;
+        while (true) {
+            int start = source.indexOf(PLACEHOLDER_PREFIX, cursor);
+            int end = start < 0 ? -1 : source.indexOf(PLACEHOLDER_SUFFIX, start + PLACEHOLDER_PREFIX.length());
+            if (end < 0) {
+                // 没有更多完整的占位符，剩余部分都是文本
+                String tail = source.substring(cursor);
+                literalList.add(tail);
+                literalLength += tail.length();
+                break;
+            }
+            // start 与 end 之间如果还有 "${"，前面的 "${" 没有闭合，按文本处理，取离 '}' 最近的一个
+            start = source.lastIndexOf(PLACEHOLDER_PREFIX, end - PLACEHOLDER_PREFIX.length());
+            String literal = source.substring(cursor, start);
+            literalList.add(literal);
+            literalLength += literal.length();
+            variableList.add(source.substring(start + PLACEHOLDER_PREFIX.length(), end));
+            cursor = end + 1;
+        }
+
+        String[] variables = variableList.toArray(new String[0]);
+        String[] placeholders = new String[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            placeholders[i] = PLACEHOLDER_PREFIX + variables[i] + PLACEHOLDER_SUFFIX;
+        }
+        return new PlaceholderTemplate(literalList.toArray(new String[0]), variables, placeholders, literalLength);
+    }
+
+    /**
+     * 渲染：单次遍历，写入预分配的缓冲区
+     * <p>
+     * 与原实现语义一致：
+     * - 变量存在时替换为变量值（null 视为空串）
+     * - 变量不存在时保留原始占位符
+     */
+    public String render(Map<String, String> values) {
+        if (variables.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder sb = new StringBuilder(estimatedLength);
+        sb.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            String value = values.get(variables[i]);
+            if (value != null) {
+                sb.append(value);
+            } else if (!values.containsKey(variables[i])) {
+                sb.append(placeholders[i]);
+            }
+            sb.append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+}
@@ -32,4 +32,9 @@ public class SendResponse {
      * 消息ID列表（用于追踪）
      */
     private List<String> messageIds;
+
+    /**
+     * 投递失败的消息ID（仅部分成功时返回，调用方可只重试这些参数）
+     */
+    private List<String> failedMessageIds;
 }
@@ -0,0 +1,51 @@
+package com.mini.austin.web.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式批量发送响应 VO
+ * <p>
+ * 流式发送不返回逐条 messageId（否则响应体会随请求规模线性增长），
+ * 只返回批次ID和统计数量
+ *
+ * @author mini-austin
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamSendResponse {
+
+    /**
+     * 状态码
+     */
+    private String code;
+
+    /**
+     * 响应信息
+     */
+    private String msg;
+
+    /**
+     * 批次ID（用于日志追踪）
+     */
+    private String batchId;
+
+    /**
+     * 成功投递的参数条数
+     */
+    private long acceptedCount;
+
+    /**
+     * 被拒绝的参数条数（格式错误、行超长、接收者为空、投递失败）
+     */
+    private long rejectedCount;
+
+    /**
+     * 是否提前中止（模板不存在/已删除、读取请求体失败），为 true 时请求体剩余部分未处理
+     */
+    private boolean aborted;
+}
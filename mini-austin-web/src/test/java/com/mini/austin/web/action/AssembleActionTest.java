@@ -0,0 +1,114 @@
+package com.mini.austin.web.action;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.dto.MessageParam;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.common.id.SnowflakeIdGenerator;
+import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.common.vo.BasicResultVO;
+import com.mini.austin.web.cache.MessageTemplateCache;
+import com.mini.austin.web.domain.MessageTemplate;
+import com.mini.austin.web.domain.SendTaskModel;
+import com.mini.austin.web.template.TemplateCompiler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * AssembleAction 合并参数时的消息ID分配
+ *
+ * @author mini-austin
+ */
+class AssembleActionTest {
+
+    private static final Long TEMPLATE_ID = 1L;
+
+    private AssembleAction action;
+
+    @BeforeEach
+    void setUp() {
+        MessageTemplateCache cache = mock(MessageTemplateCache.class);
+        when(cache.get(TEMPLATE_ID)).thenReturn(Optional.of(MessageTemplate.builder()
+                .id(TEMPLATE_ID)
+                .sendChannel(ChannelType.SMS.getCode())
+                .msgType(20)
+                .sendAccount(1)
+                .isDeleted(0)
+                .msgContent("{\"content\":\"验证码${code}\"}")
+                .build()));
+        TemplateCompiler compiler = new TemplateCompiler();
+        ReflectionTestUtils.setField(compiler, "maximumSize", 10L);
+        compiler.init();
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(2000);
+        idGenerator.grant(1, Long.MAX_VALUE);
+
+        action = new AssembleAction();
+        ReflectionTestUtils.setField(action, "messageTemplateCache", cache);
+        ReflectionTestUtils.setField(action, "templateCompiler", compiler);
+        ReflectionTestUtils.setField(action, "snowflakeIdGenerator", idGenerator);
+        ReflectionTestUtils.setField(action, "maxFanOut", 3);
+    }
+
+    @Test
+    void mergedParamsGetTheirOwnMessageIds() {
+        // a、b、c 内容相同（合并，满 3 个接收者），d 内容相同但超出扇出上限，e 内容不同
+        SendTaskModel model = assemble(param("a", "1"), param("b", "1"), param("c", "1"), param("d", "1"), param("e", "2"));
+
+        List<String> messageIds = model.getMessageIdList();
+        assertThat(messageIds).hasSize(5).doesNotHaveDuplicates();
+
+        List<TaskInfo> tasks = model.getTaskInfoList();
+        assertThat(tasks).hasSize(3);
+        TaskInfo merged = tasks.get(0);
+        assertThat(merged.getReceiver()).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(merged.getReceiverMessageIds())
+                .isEqualTo(Map.of("a", messageIds.get(0), "b", messageIds.get(1), "c", messageIds.get(2)));
+        // 合并后 messageId 只是组ID，不与任何参数的消息ID相同
+        assertThat(messageIds).doesNotContain(merged.getMessageId());
+
+        // 没有合并的 TaskInfo 不带映射，messageId 就是参数的消息ID
+        assertThat(tasks.get(1).getReceiverMessageIds()).isNull();
+        assertThat(tasks.get(1).getMessageId()).isEqualTo(messageIds.get(3));
+        assertThat(tasks.get(2).messageIdOf("e")).isEqualTo(messageIds.get(4));
+    }
+
+    @Test
+    void multiReceiverParamsShareTheirOwnId() {
+        SendTaskModel model = assemble(param("a,b", "1"), param("c", "1"));
+
+        TaskInfo merged = model.getTaskInfoList().get(0);
+        assertThat(merged.messageIdOf("a")).isEqualTo(model.getMessageIdList().get(0));
+        assertThat(merged.messageIdOf("b")).isEqualTo(model.getMessageIdList().get(0));
+        assertThat(merged.messageIdOf("c")).isEqualTo(model.getMessageIdList().get(1));
+        assertThat(new HashSet<>(merged.getReceiverMessageIds().values())).containsExactlyInAnyOrderElementsOf(model.getMessageIdList());
+    }
+
+    private SendTaskModel assemble(MessageParam... params) {
+        SendTaskModel model = SendTaskModel.builder()
+                .messageTemplateId(TEMPLATE_ID)
+                .messageParamList(new ArrayList<>(List.of(params)))
+                .build();
+        ProcessContext<SendTaskModel> context = ProcessContext.<SendTaskModel>builder()
+                .processModel(model)
+                .needBreak(false)
+                .response(BasicResultVO.success())
+                .build();
+        action.process(context);
+        assertThat(context.getNeedBreak()).isFalse();
+        return model;
+    }
+
+    private static MessageParam param(String receiver, String code) {
+        return MessageParam.builder().receiver(receiver).variables(Map.of("code", code)).build();
+    }
+}
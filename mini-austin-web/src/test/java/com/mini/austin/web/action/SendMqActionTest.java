@@ -0,0 +1,143 @@
+package com.mini.austin.web.action;
+
+import com.mini.austin.common.domain.TaskInfo;
+import com.mini.austin.common.enums.RespStatusEnum;
+import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.common.vo.BasicResultVO;
+import com.mini.austin.web.domain.SendTaskModel;
+import com.mini.austin.web.mq.RabbitMqService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * SendMqAction 部分失败 / 超时时的结果与取消
+ *
+ * @author mini-austin
+ */
+class SendMqActionTest {
+
+    private SendMqAction action;
+
+    private RabbitMqService rabbitMqService;
+
+    private ThreadPoolExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        action = new SendMqAction();
+        rabbitMqService = mock(RabbitMqService.class);
+        executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        ReflectionTestUtils.setField(action, "rabbitMqService", rabbitMqService);
+        ReflectionTestUtils.setField(action, "mqPublishExecutor", executor);
+        ReflectionTestUtils.setField(action, "chunkSize", 1);
+        ReflectionTestUtils.setField(action, "chunkBytes", 1 << 20);
+        ReflectionTestUtils.setField(action, "publishTimeoutMs", 200L);
+        ReflectionTestUtils.setField(action, "codec", "json");
+        ReflectionTestUtils.setField(action, "routingKey", "austin.send");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void allConfirmedIsSuccess() {
+        when(rabbitMqService.publish(any(), anyString(), anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+        ProcessContext<SendTaskModel> context = context(3);
+
+        action.process(context);
+
+        assertThat(context.getResponse().getStatus()).isEqualTo(RespStatusEnum.SUCCESS.getCode());
+        assertThat(context.getResponse().getData()).isEqualTo(List.of("m0", "m1", "m2"));
+    }
+
+    @Test
+    void timeoutCancelsPendingConfirmsAndReturnsAccepted() {
+        List<CompletableFuture<Void>> confirms = new ArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        when(rabbitMqService.publish(any(), anyString(), anyString(), anyLong())).thenAnswer(invocation -> {
+            // 第二个消息迟迟不确认
+            CompletableFuture<Void> confirm = calls.getAndIncrement() == 1
+                    ? new CompletableFuture<>() : CompletableFuture.completedFuture(null);
+            synchronized (confirms) {
+                confirms.add(confirm);
+            }
+            return confirm;
+        });
+        ProcessContext<SendTaskModel> context = context(3);
+
+        action.process(context);
+
+        BasicResultVO<?> response = context.getResponse();
+        assertThat(response.getStatus()).isEqualTo(RespStatusEnum.PARTIAL_SUCCESS.getCode());
+        assertThat((List<?>) response.getData()).hasSize(2);
+        assertThat(context.getProcessModel().getFailedMessageIdList()).hasSize(1);
+        assertThat(confirms).filteredOn(CompletableFuture::isCancelled).hasSize(1);
+    }
+
+    @Test
+    void failedChunkEndsWaitWithoutTimeout() {
+        ReflectionTestUtils.setField(action, "publishTimeoutMs", 60_000L);
+        AtomicInteger calls = new AtomicInteger();
+        when(rabbitMqService.publish(any(), anyString(), anyString(), anyLong())).thenAnswer(invocation ->
+                calls.getAndIncrement() == 0
+                        ? CompletableFuture.failedFuture(new IllegalStateException("nack"))
+                        : CompletableFuture.completedFuture(null));
+        ProcessContext<SendTaskModel> context = context(2);
+
+        long start = System.nanoTime();
+        action.process(context);
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(10));
+        // 另一块可能已确认（部分成功），也可能因快速失败而没有投递（整体失败）
+        assertThat(context.getResponse().getStatus())
+                .isIn(RespStatusEnum.PARTIAL_SUCCESS.getCode(), RespStatusEnum.FAIL.getCode());
+        assertThat(context.getProcessModel().getFailedMessageIdList()).isNotEmpty();
+    }
+
+    @Test
+    void nothingConfirmedIsFailure() {
+        when(rabbitMqService.publish(any(), anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("nack")));
+        ProcessContext<SendTaskModel> context = context(1);
+
+        action.process(context);
+
+        assertThat(context.getResponse().getStatus()).isEqualTo(RespStatusEnum.FAIL.getCode());
+        assertThat(context.getNeedBreak()).isTrue();
+    }
+
+    private static ProcessContext<SendTaskModel> context(int tasks) {
+        List<TaskInfo> taskInfoList = new ArrayList<>();
+        List<String> messageIds = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            taskInfoList.add(TaskInfo.builder().messageId("m" + i).receiver(Set.of("r" + i)).build());
+            messageIds.add("m" + i);
+        }
+        SendTaskModel model = SendTaskModel.builder().taskInfoList(taskInfoList).messageIdList(messageIds).build();
+        return ProcessContext.<SendTaskModel>builder()
+                .processModel(model)
+                .needBreak(false)
+                .response(BasicResultVO.success())
+                .build();
+    }
+}
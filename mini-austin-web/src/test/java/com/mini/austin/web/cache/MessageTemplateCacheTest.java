@@ -0,0 +1,211 @@
+package com.mini.austin.web.cache;
+
+import com.mini.austin.web.dao.MessageTemplateDao;
+import com.mini.austin.web.domain.MessageTemplate;
+import com.mini.austin.web.service.impl.MessageTemplateServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * MessageTemplateCache 并发回源合并、空值缓存，以及 MessageTemplateServiceImpl 写库后的失效广播
+ *
+ * @author mini-austin
+ */
+class MessageTemplateCacheTest {
+
+    private static final Long TEMPLATE_ID = 1L;
+
+    private static final String CHANNEL = "austin:template:invalidate";
+
+    private final MessageTemplateDao dao = mock(MessageTemplateDao.class);
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+
+    /**
+     * 本节点发出的失效广播（频道里的消息体）
+     */
+    private final List<String> published = new ArrayList<>();
+
+    private MessageTemplateCache cache;
+
+    private MessageTemplateServiceImpl service;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            published.add(invocation.getArgument(1));
+            return 1L;
+        }).when(redisTemplate).convertAndSend(anyString(), anyString());
+
+        cache = new MessageTemplateCache();
+        ReflectionTestUtils.setField(cache, "messageTemplateDao", dao);
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "expireSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "invalidateChannel", CHANNEL);
+        cache.init();
+
+        service = new MessageTemplateServiceImpl();
+        ReflectionTestUtils.setField(service, "messageTemplateDao", dao);
+        ReflectionTestUtils.setField(service, "messageTemplateCache", cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dao.findById(TEMPLATE_ID)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(template("v1"));
+        });
+
+        int threads = 8;
+        executor = Executors.newFixedThreadPool(threads);
+        List<Future<Optional<MessageTemplate>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> cache.get(TEMPLATE_ID)));
+        }
+
+        // 第一个线程回源期间其余线程都到达，等待同一次加载
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<Optional<MessageTemplate>> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).hasValueSatisfying(t -> assertThat(t.getName()).isEqualTo("v1"));
+        }
+        verify(dao, times(1)).findById(TEMPLATE_ID);
+    }
+
+    @Test
+    void missingTemplateIsCachedAsEmpty() {
+        when(dao.findById(404L)).thenReturn(Optional.empty());
+
+        assertThat(cache.get(404L)).isEmpty();
+        assertThat(cache.get(404L)).isEmpty();
+
+        // 不存在的模板同样命中缓存，不会每次都穿透到数据库
+        verify(dao, times(1)).findById(404L);
+    }
+
+    @Test
+    void invalidationMessageEvictsTheTemplate() {
+        when(dao.findById(TEMPLATE_ID)).thenReturn(Optional.of(template("v1")), Optional.of(template("v2")));
+        assertThat(cache.get(TEMPLATE_ID)).hasValueSatisfying(t -> assertThat(t.getName()).isEqualTo("v1"));
+
+        // 其他节点修改了模板
+        cache.onMessage(message(String.valueOf(TEMPLATE_ID)), null);
+        assertThat(cache.get(TEMPLATE_ID)).hasValueSatisfying(t -> assertThat(t.getName()).isEqualTo("v2"));
+
+        // 无法识别的消息被忽略，缓存保持不变
+        cache.onMessage(message("not-a-number"), null);
+        assertThat(cache.get(TEMPLATE_ID)).hasValueSatisfying(t -> assertThat(t.getName()).isEqualTo("v2"));
+        verify(dao, times(2)).findById(TEMPLATE_ID);
+    }
+
+    @Test
+    void saveOrUpdatePublishesInvalidation() {
+        AtomicReference<MessageTemplate> row = table(template("v1"));
+        assertThat(cache.get(TEMPLATE_ID)).hasValueSatisfying(t -> assertThat(t.getName()).isEqualTo("v1"));
+
+        service.saveOrUpdate(template("v2"));
+
+        // 本节点立即失效（下一次读取回源拿到新模板），并广播给其他节点
+        assertThat(row.get().getName()).isEqualTo("v2");
+        verify(redisTemplate).convertAndSend(CHANNEL, String.valueOf(TEMPLATE_ID));
+        assertThat(published).containsExactly(String.valueOf(TEMPLATE_ID));
+        assertThat(cache.get(TEMPLATE_ID)).hasValueSatisfying(t -> assertThat(t.getName()).isEqualTo("v2"));
+    }
+
+    @Test
+    void deleteByIdPublishesInvalidation() {
+        table(template("v1"));
+        assertThat(cache.get(TEMPLATE_ID)).hasValueSatisfying(t -> assertThat(t.getIsDeleted()).isEqualTo(0));
+
+        service.deleteById(TEMPLATE_ID);
+
+        verify(redisTemplate).convertAndSend(CHANNEL, String.valueOf(TEMPLATE_ID));
+        assertThat(published).containsExactly(String.valueOf(TEMPLATE_ID));
+        assertThat(cache.get(TEMPLATE_ID)).hasValueSatisfying(t -> assertThat(t.getIsDeleted()).isEqualTo(1));
+
+        // 模板不存在时不写库，也不广播
+        when(dao.findById(404L)).thenReturn(Optional.empty());
+        service.deleteById(404L);
+        assertThat(published).hasSize(1);
+    }
+
+    /**
+     * 只有一行的模板表：findById 每次返回副本，缓存中的对象不会被写库操作顺带修改
+     */
+    private AtomicReference<MessageTemplate> table(MessageTemplate initial) {
+        AtomicReference<MessageTemplate> row = new AtomicReference<>(initial);
+        when(dao.findById(TEMPLATE_ID)).thenAnswer(invocation -> Optional.of(copy(row.get())));
+        when(dao.save(any(MessageTemplate.class))).thenAnswer(invocation -> {
+            row.set(copy(invocation.getArgument(0)));
+            return invocation.getArgument(0);
+        });
+        return row;
+    }
+
+    private static MessageTemplate copy(MessageTemplate template) {
+        return MessageTemplate.builder()
+                .id(template.getId())
+                .name(template.getName())
+                .sendChannel(template.getSendChannel())
+                .msgType(template.getMsgType())
+                .isDeleted(template.getIsDeleted())
+                .msgContent(template.getMsgContent())
+                .build();
+    }
+
+    private static MessageTemplate template(String name) {
+        return MessageTemplate.builder()
+                .id(TEMPLATE_ID)
+                .name(name)
+                .sendChannel(30)
+                .msgType(20)
+                .isDeleted(0)
+                .msgContent("{\"content\":\"验证码${code}\"}")
+                .build();
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
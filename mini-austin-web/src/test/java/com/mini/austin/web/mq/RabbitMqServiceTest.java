@@ -0,0 +1,104 @@
+package com.mini.austin.web.mq;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * RabbitMqService confirm 模式下的重试预算与取消
+ *
+ * @author mini-austin
+ */
+class RabbitMqServiceTest {
+
+    private static final byte[] BODY = "[]".getBytes(StandardCharsets.UTF_8);
+
+    private RabbitMqService service;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicInteger sends = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        // Broker 对每条消息都回 nack
+        doAnswer(invocation -> {
+            sends.incrementAndGet();
+            CorrelationData correlationData = invocation.getArgument(3);
+            correlationData.getFuture().set(new CorrelationData.Confirm(false, "nack"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        service = new RabbitMqService();
+        ReflectionTestUtils.setField(service, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(service, "mqPublishExecutor", executor);
+        ReflectionTestUtils.setField(service, "exchange", "austin-exchange");
+        ReflectionTestUtils.setField(service, "routingKey", "austin.send");
+        ReflectionTestUtils.setField(service, "publishMode", "confirm");
+        ReflectionTestUtils.setField(service, "confirmWindow", 1);
+        ReflectionTestUtils.setField(service, "confirmTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "maxRetries", 10);
+        ReflectionTestUtils.setField(service, "retryBackoffMs", 100L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void retriesStopAtCallerDeadline() {
+        long start = System.nanoTime();
+        CompletableFuture<Void> result = service.publish(BODY, MessageProperties.CONTENT_TYPE_TEXT_PLAIN, "austin.send",
+                start + TimeUnit.MILLISECONDS.toNanos(250));
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        // 100ms + 200ms 的退避已经超过 250ms 的截止时间，最多发出 2 次
+        assertThat(sends.get()).isLessThanOrEqualTo(2);
+        assertPermitReturned();
+    }
+
+    @Test
+    void cancelStopsPendingRetriesAndReleasesPermit() throws Exception {
+        CompletableFuture<Void> result = service.publish(BODY, MessageProperties.CONTENT_TYPE_TEXT_PLAIN, "austin.send",
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(30));
+
+        result.cancel(false);
+        int sentAtCancel = sends.get();
+        Thread.sleep(400);
+
+        assertThat(sends.get()).isEqualTo(sentAtCancel);
+        assertPermitReturned();
+    }
+
+    private void assertPermitReturned() {
+        // 确认窗口为 1，许可归还后下一条消息才能立即取得许可
+        CompletableFuture<Void> next = service.publish(BODY, MessageProperties.CONTENT_TYPE_TEXT_PLAIN, "austin.send",
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50));
+        assertThatThrownBy(() -> next.get(5, TimeUnit.SECONDS)).hasMessageNotContaining("确认窗口已满");
+    }
+}
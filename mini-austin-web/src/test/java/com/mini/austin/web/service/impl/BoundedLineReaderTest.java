@@ -0,0 +1,48 @@
+package com.mini.austin.web.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BoundedLineReader 按行读取与超长行跳过
+ *
+ * @author mini-austin
+ */
+class BoundedLineReaderTest {
+
+    @Test
+    void splitsLinesAndStripsCarriageReturn() throws IOException {
+        assertThat(readAll("a\r\nbb\n\nccc", 10)).containsExactly("a", "bb", "", "ccc");
+        assertThat(readAll("a\n", 10)).containsExactly("a");
+        assertThat(readAll("", 10)).isEmpty();
+    }
+
+    @Test
+    void oversizedLineIsSkippedUntilNextNewline() throws IOException {
+        String longLine = "x".repeat(100_000);
+
+        assertThat(readAll("ok\n" + longLine + "\nafter", 16)).containsExactly("ok", "<oversized>", "after");
+        assertThat(readAll(longLine, 16)).containsExactly("<oversized>");
+    }
+
+    @Test
+    void lengthLimitIsInclusiveAndIgnoresCarriageReturn() throws IOException {
+        assertThat(readAll("abcd\r\nabcde\nabc\r", 4)).containsExactly("abcd", "<oversized>", "abc");
+    }
+
+    private static List<String> readAll(String input, int maxLength) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BoundedLineReader reader = new BoundedLineReader(new StringReader(input), maxLength)) {
+            while (reader.next()) {
+                lines.add(reader.isOversized() ? "<oversized>" : reader.line());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,145 @@
+package com.mini.austin.web.service.impl;
+
+import com.mini.austin.common.enums.RespStatusEnum;
+import com.mini.austin.common.id.IdGenerationException;
+import com.mini.austin.common.id.SnowflakeIdGenerator;
+import com.mini.austin.common.pipeline.ProcessContext;
+import com.mini.austin.common.pipeline.ProcessController;
+import com.mini.austin.common.vo.BasicResultVO;
+import com.mini.austin.web.cache.MessageTemplateCache;
+import com.mini.austin.web.domain.MessageTemplate;
+import com.mini.austin.web.domain.SendTaskModel;
+import com.mini.austin.web.vo.StreamSendResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * SendServiceImpl 流式发送的状态与中止
+ *
+ * @author mini-austin
+ */
+class SendServiceImplTest {
+
+    private static final Long TEMPLATE_ID = 1L;
+
+    private SendServiceImpl sendService;
+
+    private ProcessController processController;
+
+    private SnowflakeIdGenerator idGenerator;
+
+    private MessageTemplateCache templateCache;
+
+    @BeforeEach
+    void setUp() {
+        sendService = new SendServiceImpl();
+        processController = mock(ProcessController.class);
+        idGenerator = mock(SnowflakeIdGenerator.class);
+        templateCache = mock(MessageTemplateCache.class);
+        when(idGenerator.nextIdString()).thenReturn("1");
+        when(templateCache.get(TEMPLATE_ID)).thenReturn(Optional.of(MessageTemplate.builder().id(TEMPLATE_ID).isDeleted(0).build()));
+        ReflectionTestUtils.setField(sendService, "processController", processController);
+        ReflectionTestUtils.setField(sendService, "snowflakeIdGenerator", idGenerator);
+        ReflectionTestUtils.setField(sendService, "messageTemplateCache", templateCache);
+        ReflectionTestUtils.setField(sendService, "streamChunkSize", 2);
+        ReflectionTestUtils.setField(sendService, "streamMaxLineLength", 64);
+    }
+
+    @Test
+    void allAcceptedIsSuccess() {
+        respondWith(BasicResultVO.success());
+
+        StreamSendResponse response = sendService.streamSend(TEMPLATE_ID, body(line("a"), line("b"), line("c")));
+
+        assertThat(response.getCode()).isEqualTo(RespStatusEnum.SUCCESS.getCode());
+        assertThat(response.getAcceptedCount()).isEqualTo(3);
+        assertThat(response.getRejectedCount()).isZero();
+    }
+
+    @Test
+    void rejectedLinesMakePartialSuccess() {
+        respondWith(BasicResultVO.success());
+
+        StreamSendResponse response = sendService.streamSend(TEMPLATE_ID,
+                body(line("a"), "not json", "{\"receiver\":\"" + "x".repeat(100) + "\"}", line("b")));
+
+        assertThat(response.getCode()).isEqualTo(RespStatusEnum.PARTIAL_SUCCESS.getCode());
+        assertThat(response.getAcceptedCount()).isEqualTo(2);
+        assertThat(response.getRejectedCount()).isEqualTo(2);
+        assertThat(response.getMsg()).contains("成功2条", "失败2条");
+    }
+
+    @Test
+    void nothingAcceptedIsFail() {
+        respondWith(BasicResultVO.fail("投递失败"));
+
+        StreamSendResponse response = sendService.streamSend(TEMPLATE_ID, body(line("a")));
+
+        assertThat(response.getCode()).isEqualTo(RespStatusEnum.FAIL.getCode());
+        assertThat(response.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void missingTemplateAbortsBeforeReadingBody() {
+        when(templateCache.get(TEMPLATE_ID)).thenReturn(Optional.empty());
+        InputStream body = mock(InputStream.class);
+
+        StreamSendResponse response = sendService.streamSend(TEMPLATE_ID, body);
+
+        assertThat(response.getCode()).isEqualTo(RespStatusEnum.TEMPLATE_NOT_FOUND.getCode());
+        assertThat(response.isAborted()).isTrue();
+        verify(processController, never()).process(any());
+    }
+
+    @Test
+    void templateDeletedMidStreamStopsReading() {
+        respondWith(BasicResultVO.fail(RespStatusEnum.TEMPLATE_DELETED));
+
+        StreamSendResponse response = sendService.streamSend(TEMPLATE_ID,
+                body(line("a"), line("b"), line("c"), line("d"), line("e")));
+
+        assertThat(response.isAborted()).isTrue();
+        assertThat(response.getRejectedCount()).isEqualTo(2);
+        verify(processController).process(any());
+    }
+
+    @Test
+    void idLeaseLossIsServiceError() {
+        when(idGenerator.nextIdString()).thenThrow(new IdGenerationException("lease lost"));
+
+        StreamSendResponse response = sendService.streamSend(TEMPLATE_ID, body(line("a")));
+
+        assertThat(response.getCode()).isEqualTo(RespStatusEnum.SERVICE_ERROR.getCode());
+        verify(processController, never()).process(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respondWith(BasicResultVO<?> response) {
+        when(processController.process(any())).thenAnswer(invocation -> {
+            ProcessContext<SendTaskModel> context = invocation.getArgument(0);
+            context.setResponse(response);
+            return context;
+        });
+    }
+
+    private static String line(String receiver) {
+        return "{\"receiver\":\"" + receiver + "\",\"variables\":{\"code\":\"1\"}}";
+    }
+
+    private static InputStream body(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
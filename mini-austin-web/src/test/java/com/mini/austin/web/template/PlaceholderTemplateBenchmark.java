@@ -0,0 +1,102 @@
+package com.mini.austin.web.template;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.web.domain.MessageTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 模板渲染基准：原实现（每个参数解析一次 JSON + 每个变量 String.replace）vs 预编译渲染
+ * <p>
+ * 不在默认测试集中（类名不以 Test 结尾），手动运行：
+ * mvn -pl mini-austin-web -am test -Dtest=PlaceholderTemplateBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ *
+ * @author mini-austin
+ */
+class PlaceholderTemplateBenchmark {
+
+    private static final int PARAMS = 10_000;
+
+    private static final int ROUNDS = 30;
+
+    private static final String MSG_CONTENT = "{\"content\":\"尊敬的${name}会员，您在${shop}的订单${orderId}已发货，"
+            + "快递单号${trackingNo}，预计${days}天内送达。如有疑问请联系客服，回复TD退订。\",\"url\":\"https://m.example.com/o/${orderId}\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compareWithBaseline() throws Exception {
+        List<Map<String, String>> params = new ArrayList<>(PARAMS);
+        for (int i = 0; i < PARAMS; i++) {
+            Map<String, String> variables = new HashMap<>();
+            variables.put("name", "用户" + i);
+            variables.put("shop", "旗舰店");
+            variables.put("orderId", "O" + (100000000L + i));
+            variables.put("trackingNo", "SF" + (7000000000L + i));
+            variables.put("days", String.valueOf(i % 5 + 1));
+            params.add(variables);
+        }
+
+        TemplateCompiler compiler = new TemplateCompiler();
+        ReflectionTestUtils.setField(compiler, "maximumSize", 10L);
+        compiler.init();
+        MessageTemplate template = MessageTemplate.builder()
+                .id(1L).sendChannel(ChannelType.SMS.getCode()).msgContent(MSG_CONTENT).build();
+
+        // 结果一致性
+        assertThat(compiled(compiler, template, params)).isEqualTo(baseline(params));
+
+        long baselineBest = Long.MAX_VALUE;
+        long compiledBest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            baseline(params);
+            baselineBest = Math.min(baselineBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            compiled(compiler, template, params);
+            compiledBest = Math.min(compiledBest, System.nanoTime() - start);
+        }
+
+        System.out.printf("模板渲染 %d 个参数（最好的一轮）：baseline=%.2fms (%.0fns/param), compiled=%.2fms (%.0fns/param), speedup=%.1fx%n",
+                PARAMS, baselineBest / 1e6, (double) baselineBest / PARAMS,
+                compiledBest / 1e6, (double) compiledBest / PARAMS, (double) baselineBest / compiledBest);
+    }
+
+    /**
+     * 原实现：每个参数解析一次 msgContent，每个字段按变量逐个 String.replace
+     */
+    private List<String> baseline(List<Map<String, String>> params) throws Exception {
+        List<String> out = new ArrayList<>(params.size() * 2);
+        for (Map<String, String> variables : params) {
+            Map<String, String> contentMap = objectMapper.readValue(MSG_CONTENT, new TypeReference<Map<String, String>>() {});
+            for (String field : new String[]{"content", "url"}) {
+                out.add(PlaceholderTemplateTest.baseline(contentMap.get(field), variables));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 现实现：模板编译一次（带版本校验的缓存），每个参数单次遍历渲染
+     */
+    private List<String> compiled(TemplateCompiler compiler, MessageTemplate template, List<Map<String, String>> params) {
+        List<String> out = new ArrayList<>(params.size() * 2);
+        CompiledTemplate compiledTemplate = compiler.compile(template);
+        for (Map<String, String> variables : params) {
+            for (CompiledTemplate.CompiledField field : compiledTemplate.getFields()) {
+                out.add(field.getTemplate().render(variables));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,135 @@
+package com.mini.austin.web.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PlaceholderTemplate 解析与渲染
+ *
+ * @author mini-austin
+ */
+class PlaceholderTemplateTest {
+
+    @Test
+    void rendersVariablesAndLiterals() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("您好${name}，验证码是${code}。");
+
+        assertThat(template.render(Map.of("name", "张三", "code", "123456")))
+                .isEqualTo("您好张三，验证码是123456。");
+    }
+
+    @Test
+    void keepsPlaceholderWhenVariableMissing() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("验证码${code}，${expire}分钟内有效");
+
+        assertThat(template.render(Map.of("code", "1234"))).isEqualTo("验证码1234，${expire}分钟内有效");
+        assertThat(template.render(Collections.emptyMap())).isEqualTo("验证码${code}，${expire}分钟内有效");
+    }
+
+    @Test
+    void rendersNullValueAsEmpty() {
+        Map<String, String> values = new HashMap<>();
+        values.put("code", null);
+
+        assertThat(PlaceholderTemplate.compile("[${code}]").render(values)).isEqualTo("[]");
+    }
+
+    @Test
+    void templateWithoutPlaceholderIsReturnedAsIs() {
+        assertThat(PlaceholderTemplate.compile("纯文本").render(Map.of("a", "b"))).isEqualTo("纯文本");
+        assertThat(PlaceholderTemplate.compile("").render(Map.of("a", "b"))).isEmpty();
+    }
+
+    @Test
+    void unterminatedPrefixIsLiteral() {
+        assertThat(PlaceholderTemplate.compile("价格${price").render(Map.of("price", "9"))).isEqualTo("价格${price");
+        assertThat(PlaceholderTemplate.compile("${").render(Map.of("", "x"))).isEqualTo("${");
+    }
+
+    @Test
+    void unclosedPrefixBeforePlaceholderIsLiteral() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("前缀${a 中间${code}后缀");
+
+        assertThat(template.render(Map.of("code", "1"))).isEqualTo("前缀${a 中间1后缀");
+        assertThat(template.render(Map.of("code", "1"))).isEqualTo(baseline("前缀${a 中间${code}后缀", Map.of("code", "1")));
+    }
+
+    @Test
+    void nestedPlaceholderReplacesInnermostOnce() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("${a${b}}");
+
+        assertThat(template.render(Map.of("b", "x"))).isEqualTo("${ax}");
+        // 替换结果拼出的新占位符不再展开（原实现取决于 HashMap 遍历顺序）
+        assertThat(template.render(Map.of("b", "x", "ax", "y"))).isEqualTo("${ax}");
+    }
+
+    @Test
+    void valuesAreNotExpandedAgain() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("${first}-${second}");
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("first", "${second}");
+        values.put("second", "2");
+
+        assertThat(template.render(values)).isEqualTo("${second}-2");
+    }
+
+    @Test
+    void closingBraceWithoutPrefixIsLiteral() {
+        assertThat(PlaceholderTemplate.compile("}{${a}}").render(Map.of("a", "1"))).isEqualTo("}{1}");
+    }
+
+    @Test
+    void emptyAndRepeatedVariables() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("${}${x}${x}");
+
+        assertThat(template.render(Map.of("", "e", "x", "1"))).isEqualTo("e11");
+    }
+
+    /**
+     * 值中不含 "${" 时，与原实现（逐个变量 String.replace）结果完全一致
+     */
+    @Test
+    void matchesBaselineOnRandomTemplates() {
+        Random random = new Random(42);
+        String[] pieces = {"${a}", "${b}", "${c}", "${", "}", "$", "{", "文本", " ", "x"};
+        for (int round = 0; round < 10_000; round++) {
+            StringBuilder source = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                source.append(pieces[random.nextInt(pieces.length)]);
+            }
+            Map<String, String> values = new HashMap<>();
+            for (String name : new String[]{"a", "b", "c"}) {
+                if (random.nextBoolean()) {
+                    values.put(name, random.nextBoolean() ? name.toUpperCase() : "");
+                }
+            }
+
+            assertThat(PlaceholderTemplate.compile(source.toString()).render(values))
+                    .as("template=%s values=%s", source, values)
+                    .isEqualTo(baseline(source.toString(), values));
+        }
+    }
+
+    /**
+     * 原实现（AssembleAction.replacePlaceholder）
+     */
+    static String baseline(String content, Map<String, String> variables) {
+        if (content.isBlank() || variables.isEmpty()) {
+            return content;
+        }
+        for (Map.Entry<String, String> entry : variables.entrySet()) {
+            String placeholder = "${" + entry.getKey() + "}";
+            String value = entry.getValue() != null ? entry.getValue() : "";
+            content = content.replace(placeholder, value);
+        }
+        return content;
+    }
+}
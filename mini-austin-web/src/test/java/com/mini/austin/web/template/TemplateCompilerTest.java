@@ -0,0 +1,73 @@
+package com.mini.austin.web.template;
+
+import com.mini.austin.common.enums.ChannelType;
+import com.mini.austin.web.domain.MessageTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TemplateCompiler 编译与版本缓存
+ *
+ * @author mini-austin
+ */
+class TemplateCompilerTest {
+
+    private TemplateCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new TemplateCompiler();
+        ReflectionTestUtils.setField(compiler, "maximumSize", 10L);
+        compiler.init();
+    }
+
+    @Test
+    void compilesNonBlankFieldsOnce() {
+        MessageTemplate template = sms(1L, "{\"content\":\"验证码${code}\",\"url\":\"\"}");
+
+        CompiledTemplate first = compiler.compile(template);
+
+        assertThat(first).isNotNull();
+        assertThat(first.getFields()).hasSize(1);
+        assertThat(first.getFields().get(0).getField().getName()).isEqualTo("content");
+        assertThat(first.getFields().get(0).getTemplate().render(Map.of("code", "9"))).isEqualTo("验证码9");
+        assertThat(compiler.compile(template)).isSameAs(first);
+    }
+
+    @Test
+    void recompilesWhenContentChanges() {
+        CompiledTemplate first = compiler.compile(sms(1L, "{\"content\":\"v1 ${code}\"}"));
+        CompiledTemplate second = compiler.compile(sms(1L, "{\"content\":\"v2 ${code}\"}"));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getFields().get(0).getTemplate().render(Map.of("code", "1"))).isEqualTo("v2 1");
+    }
+
+    @Test
+    void invalidTemplatesCompileToNull() {
+        assertThat(compiler.compile(sms(2L, "not json"))).isNull();
+        assertThat(compiler.compile(MessageTemplate.builder().id(3L).msgContent("{}").build())).isNull();
+    }
+
+    @Test
+    void nullChannelDoesNotMatchCachedVersion() {
+        CompiledTemplate compiled = compiler.compile(sms(1L, "{\"content\":\"x\"}"));
+
+        assertThat(compiled.isVersionOf(null, "{\"content\":\"x\"}")).isFalse();
+        assertThat(compiled.isVersionOf(ChannelType.SMS.getCode(), null)).isFalse();
+        assertThat(new CompiledTemplate(null, null, null, null).isVersionOf(null, null)).isTrue();
+    }
+
+    private static MessageTemplate sms(Long id, String msgContent) {
+        return MessageTemplate.builder()
+                .id(id)
+                .sendChannel(ChannelType.SMS.getCode())
+                .msgContent(msgContent)
+                .build();
+    }
+}